@@ -0,0 +1,55 @@
+package database.card;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Benchmarks for loading the card database and reading .dec files. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+public class CardDatabaseBenchmark {
+	private byte[] json;
+	private byte[] updatedJson;
+	private CardDatabase database;
+	private File decFile;
+	private File inexactDecFile;
+
+	@Setup
+	public void setup() throws IOException {
+		json = CardFixtures.cardJson(CardFixtures.CARD_COUNT, null);
+		updatedJson = CardFixtures.updatedCardJson(CardFixtures.CARD_COUNT, null);
+		database = CardDatabase.parseCards(new ByteArrayInputStream(json));
+		List<Card> cards = database.getCards();
+		decFile = CardFixtures.writeDecFile(cards, 10_000, 0);
+		inexactDecFile = CardFixtures.writeDecFile(cards, 10_000, 0.05);
+	}
+
+	@Benchmark
+	public CardDatabase parseCardDatabase() {
+		return CardDatabase.parseCards(new ByteArrayInputStream(json));
+	}
+
+	@Benchmark
+	public CardDatabase.Update updateCardDatabase() {
+		return CardDatabase.updateCards(database, new ByteArrayInputStream(updatedJson));
+	}
+
+	@Benchmark
+	public DecFileParser.CardCounts readDecFile() {
+		return DecFileParser.parse(decFile, database.getNameIndex(), database.getCards().size());
+	}
+
+	@Benchmark
+	public DecFileParser.CardCounts readInexactDecFile() {
+		return DecFileParser.parse(inexactDecFile, database.getNameIndex(), database.getCards().size());
+	}
+}
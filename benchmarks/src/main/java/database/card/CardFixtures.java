@@ -0,0 +1,223 @@
+package database.card;
+
+import application.LogTags;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONWriter;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ Generates synthetic card data for the benchmarks, so they can run without a real carddb.json or network access.
+ The data is random, but seeded, and loosely shaped like Scryfall's bulk data. */
+public final class CardFixtures {
+	/** Roughly the number of cards in the Scryfall oracle bulk file. */
+	public static final int CARD_COUNT = 26042;
+	/** Number of distinct card images generated for the cards to share. */
+	public static final int IMAGE_COUNT = 10;
+
+	private static final String[] TYPES = {
+			"Creature — Human Wizard", "Creature — Elf Druid", "Creature — Dragon", "Creature — Zombie", "Instant",
+			"Sorcery", "Artifact", "Artifact — Equipment", "Enchantment — Aura", "Legendary Planeswalker — Jace",
+			"Land", "Basic Land — Island", "Legendary Creature — Angel", "Token Creature — Goblin", "Card"
+	};
+	private static final String[] KEYWORDS = {
+			"Flying", "Trample", "Haste", "Vigilance", "Deathtouch", "Lifelink", "Scry", "Flash", "Reach", "Menace"
+	};
+	private static final String[] TEXT = {
+			"Draw a card.", "Target creature gets +2/+2 until end of turn.", "Counter target spell.",
+			"Destroy target artifact or enchantment.", "Add {G}.", "When this creature enters the battlefield, scry 2.",
+			"Deal 3 damage to any target.", "You gain 4 life.", "Search your library for a basic land card.",
+			"Creatures you control have haste."
+	};
+	private static final String[] COLORS = {"W", "U", "B", "R", "G"};
+	private static final String SYLLABLES = "ka ro mi tha vel dor an ish ul gar en fae mor lith zan oth bri";
+
+	static {
+		//Use the app's log levels, rather than tinylog's default of logging everything.
+		LogTags.configureLogging();
+	}
+
+	private CardFixtures() {
+	}
+
+	/**
+	 Writes a json array of synthetic Scryfall card objects.
+	 @param count     The number of cards to generate.
+	 @param imageDir  Folder containing fixture images from writeImages, or null for cards without images.
+	 @return The json, encoded as UTF-8.
+	 */
+	public static byte[] cardJson(int count, File imageDir) {
+		return toJson(cardObjects(count, imageDir));
+	}
+
+	/**
+	 Writes a newer version of the json from cardJson with the same arguments, like the next day's Scryfall bulk file.
+	 Every 50th card is removed, every 20th has new rules text, and another 1% of new cards are added at the end.
+	 @param count     The number of cards in the original json.
+	 @param imageDir  Folder containing fixture images from writeImages, or null for cards without images.
+	 @return The json, encoded as UTF-8.
+	 */
+	public static byte[] updatedCardJson(int count, File imageDir) {
+		List<JSONObject> original = cardObjects(count, imageDir);
+		List<JSONObject> updated = new ArrayList<>(original.size() + count / 100);
+		for (int i = 0; i < original.size(); i++) {
+			JSONObject card = original.get(i);
+			if (i % 50 == 49) {
+				continue;
+			}
+			if (i % 20 == 19) {
+				card.put("oracle_text", card.getString("oracle_text") + "\nErrata " + i + ".");
+			}
+			updated.add(card);
+		}
+		Random random = new Random(-count);
+		String[] syllables = SYLLABLES.split(" ");
+		for (int i = count; i < count + count / 100; i++) {
+			updated.add(card(random, syllables, i, imageDir));
+		}
+		return toJson(updated);
+	}
+
+	private static List<JSONObject> cardObjects(int count, File imageDir) {
+		Random random = new Random(count);
+		String[] syllables = SYLLABLES.split(" ");
+		List<JSONObject> cards = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			cards.add(card(random, syllables, i, imageDir));
+		}
+		return cards;
+	}
+
+	private static JSONObject card(Random random, String[] syllables, int i, File imageDir) {
+		JSONObject card = new JSONObject();
+		StringBuilder name = new StringBuilder();
+		int words = 1 + random.nextInt(3);
+		for (int w = 0; w < words; w++) {
+			StringBuilder word = new StringBuilder();
+			for (int s = 0; s <= random.nextInt(3); s++) {
+				word.append(syllables[random.nextInt(syllables.length)]);
+			}
+			word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+			name.append(w > 0 ? " " : "").append(word);
+		}
+		name.append(' ').append(i); //Keep every name unique.
+
+		String type = TYPES[random.nextInt(TYPES.length)];
+		JSONArray colors = new JSONArray();
+		for (String color : COLORS) {
+			if (random.nextInt(4) == 0) {
+				colors.put(color);
+			}
+		}
+		JSONArray keywords = new JSONArray();
+		for (int k = random.nextInt(3); k > 0; k--) {
+			keywords.put(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+		}
+
+		card.put("id", UUID.nameUUIDFromBytes(("fixture-" + i).getBytes(StandardCharsets.UTF_8)).toString());
+		card.put("name", name.toString());
+		card.put("type_line", type);
+		card.put("cmc", (double) random.nextInt(9));
+		card.put("color_identity", colors);
+		card.put("keywords", keywords);
+		card.put("oracle_text", TEXT[random.nextInt(TEXT.length)] + "\n" + TEXT[random.nextInt(TEXT.length)]);
+		if (type.contains("Creature")) {
+			card.put("power", random.nextInt(10) == 0 ? "*" : String.valueOf(random.nextInt(8)));
+			card.put("toughness", String.valueOf(1 + random.nextInt(8)));
+		} else if (type.contains("Planeswalker")) {
+			card.put("loyalty", String.valueOf(2 + random.nextInt(5)));
+		}
+
+		if (imageDir != null) {
+			JSONObject imageUris = new JSONObject();
+			imageUris.put("border_crop", new File(imageDir, (i % IMAGE_COUNT) + ".jpg").toURI().toString());
+			card.put("image_uris", imageUris);
+		}
+		return card;
+	}
+
+	private static byte[] toJson(List<JSONObject> cards) {
+		StringWriter out = new StringWriter(cards.size() * 400);
+		JSONWriter writer = new JSONWriter(out).array();
+		for (JSONObject card : cards) {
+			writer.value(card);
+		}
+		writer.endArray();
+		return out.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 Writes card sized jpgs to a temporary folder, for use as card images.
+	 @return The folder containing the images.
+	 */
+	public static File writeImages() throws IOException {
+		File dir = Files.createTempDirectory("mtgdeckbuddy-images").toFile();
+		Random random = new Random(IMAGE_COUNT);
+		for (int i = 0; i < IMAGE_COUNT; i++) {
+			BufferedImage image = new BufferedImage(480, 680, BufferedImage.TYPE_3BYTE_BGR);
+			Graphics2D g = image.createGraphics();
+			g.setColor(new Color(random.nextInt(0xFFFFFF)));
+			g.fillRect(0, 0, 480, 680);
+			g.setColor(Color.WHITE);
+			g.drawString("Fixture " + i, 40, 60);
+			g.dispose();
+			ImageIO.write(image, "jpg", new File(dir, i + ".jpg"));
+		}
+		return dir;
+	}
+
+	/**
+	 Writes a .dec file listing random cards from the list.
+	 @param cards    The cards to pick from.
+	 @param lines    The number of card lines to write.
+	 @param inexact  Fraction of names to write in lower case or with a typo.
+	 @return The file.
+	 */
+	public static File writeDecFile(List<Card> cards, int lines, double inexact) throws IOException {
+		File file = File.createTempFile("mtgdeckbuddy", ".dec");
+		file.deleteOnExit();
+		Random random = new Random(lines);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			writer.write("// Benchmark collection\n");
+			for (int i = 0; i < lines; i++) {
+				String name = cards.get(random.nextInt(cards.size())).getName();
+				if (random.nextDouble() < inexact) {
+					name = random.nextBoolean() ? name.toLowerCase() : name.substring(0, 2) + name.substring(3);
+				}
+				writer.write((1 + random.nextInt(4)) + " " + name + "\n");
+			}
+		}
+		return file;
+	}
+
+	/** @return The cards from freshly parsed fixture json. */
+	public static List<Card> parseCards(byte[] json) {
+		return CardDatabase.parseCards(new ByteArrayInputStream(json)).getCards();
+	}
+
+	/**
+	 Makes fixture json the active card database. Can only happen once per JVM, since the database can't be replaced.
+	 @return The cards in the database.
+	 */
+	public static synchronized List<Card> installDatabase(byte[] json) {
+		if (CardDatabase.getCardCount() == 0) {
+			CardDatabase.loadCardDatabase(new ByteArrayInputStream(json), null);
+		}
+
+		List<Card> cards = new ArrayList<>(CardDatabase.getCardCount());
+		for (int i = 0; i < CardDatabase.getCardCount(); i++) {
+			cards.add(CardDatabase.getCard(i));
+		}
+		return cards;
+	}
+}
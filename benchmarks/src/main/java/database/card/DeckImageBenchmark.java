@@ -0,0 +1,48 @@
+package database.card;
+
+import database.image.ImageStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Benchmarks compositing a deck into Tabletop Simulator deck sheets, using local fixture images. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+public class DeckImageBenchmark {
+	@Param({"60", "100"})
+	public int deckSize;
+
+	private DeckState deck;
+	private File outputDir;
+
+	@Setup
+	public void setup() throws IOException {
+		List<Card> cards = CardFixtures.installDatabase(CardFixtures.cardJson(CardFixtures.CARD_COUNT, CardFixtures.writeImages()));
+		//Loads the card back that gets used to fill out pages.
+		ImageStore.getLocalIcon("images/defaultcardback.jpg");
+
+		DeckState.Editor editor = new DeckState(cards.size()).edit();
+		for (int i = 0; i < deckSize / 4; i++) {
+			editor.setOwned(cards.get(i), 4);
+			editor.setInDeck(cards.get(i), 4);
+		}
+		deck = editor.build();
+		outputDir = Files.createTempDirectory("mtgdeckbuddy-deck").toFile();
+	}
+
+	@Benchmark
+	public File writeDeckImage() {
+		File file = new File(outputDir, "deck.png");
+		ImageStore.writeDeckImage(deck, file);
+		return file;
+	}
+}
@@ -0,0 +1,91 @@
+package gui.panes.models;
+
+import database.card.Card;
+import database.card.CardColor;
+import database.card.CardFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ Benchmarks each of the CardTableFilter predicates against every card in the database. The query cases compare a
+ planned CardQuery against the same terms run in the order they were written. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+public class CardTableFilterBenchmark {
+	@Param({"mana", "manaColorless", "name", "nameRegex", "type", "text", "textRegex", "textEquals", "keyword", "query", "queryFixedOrder"})
+	public String filter;
+
+	private List<Card> cards;
+	private Predicate<Card> predicate;
+
+	private static final String[] QUERY_TERMS = {"-o:\"draw a card\"", "t:creature", "kw:flying", "cmc<=3", "pow>=4", "c:ur"};
+
+	@Setup
+	public void setup() {
+		if (filter.startsWith("query")) {
+			//Planning measures selectivity against the installed database.
+			cards = CardFixtures.installDatabase(CardFixtures.cardJson(CardFixtures.CARD_COUNT, null));
+		} else {
+			cards = CardFixtures.parseCards(CardFixtures.cardJson(CardFixtures.CARD_COUNT, null));
+		}
+		switch (filter) {
+			case "mana":
+				predicate = CardTableFilter.createManaFilter(EnumSet.of(CardColor.BLUE, CardColor.RED));
+				break;
+			case "manaColorless":
+				predicate = CardTableFilter.createManaFilter(EnumSet.of(CardColor.COLORLESS, CardColor.GREEN));
+				break;
+			case "name":
+				predicate = CardTableFilter.createNameFilter("thador");
+				break;
+			case "nameRegex":
+				predicate = CardTableFilter.createNameFilter("REGEX:^ka.*mi");
+				break;
+			case "type":
+				predicate = CardTableFilter.createTypeFilter("creature");
+				break;
+			case "text":
+				predicate = CardTableFilter.createTextFilter("draw a card");
+				break;
+			case "textRegex":
+				predicate = CardTableFilter.createTextFilter("REGEX:deal \\d+ damage");
+				break;
+			case "textEquals":
+				predicate = CardTableFilter.createTextFilter("EQUALS:draw a card.\ndraw a card.");
+				break;
+			case "keyword":
+				predicate = CardTableFilter.createKeywordFilter("flying,reach+haste");
+				break;
+			case "query":
+				predicate = CardQuery.parse(String.join(" ", QUERY_TERMS));
+				break;
+			case "queryFixedOrder":
+				predicate = CardQuery.parse(QUERY_TERMS[0]);
+				for (int i = 1; i < QUERY_TERMS.length; i++) {
+					predicate = predicate.and(CardQuery.parse(QUERY_TERMS[i]));
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown filter " + filter);
+		}
+	}
+
+	@Benchmark
+	public int filterAllCards() {
+		int matches = 0;
+		for (Card card : cards) {
+			if (predicate.test(card)) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+}
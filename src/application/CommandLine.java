@@ -0,0 +1,291 @@
+package application;
+
+import database.card.CardDatabase;
+import database.card.DeckFormat;
+import org.tinylog.Logger;
+import server.QueryServer;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ Headless entry point for batch deck operations. Actions are run in the order they're given on the command line,
+ so a collection and ban list should be loaded before validating or building decks against them. */
+class CommandLine {
+	private static final int EXIT_OK = 0;
+	private static final int EXIT_INVALID_DECK = 1;
+	private static final int EXIT_ERROR = 2;
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: MtgDeckBuddy [options] [actions]",
+			"Options:",
+			"  --cards <file.json>       Card database to use instead of the embedded one.",
+			"  --persist                 Start from, and save back to, the collection saved by the GUI.",
+			"  --format <name>           Format to check decks against: " + formatNames() + ".",
+			"                            Defaults to collection, which only checks the collection and ban list.",
+			"Actions, run in order:",
+			"  --update <file.json>      Update the card database from a newer Scryfall bulk file, keeping the",
+			"                            collection, deck and ban list. Later runs use the updated cards.",
+			"  --collection <file|dir>   Add a .dec file, or every .dec file in a folder, to the collection.",
+			"  --fill                    Add 99 copies of every card to the collection.",
+			"  --clear-collection        Empty out the collection.",
+			"  --bans <file>             Replace the ban list with the cards in a .dec file.",
+			"  --restricted <file>       Limit the cards in a .dec file to one copy each when checking decks.",
+			"  --deck <file>             Build a deck out of the collection.",
+			"  --clear-deck              Empty out the deck.",
+			"  --save-deck <file>        Write the deck to a .dec file.",
+			"  --stats                   Print the deck's mana curve, colors and card types.",
+			"  --export-image <file.png> Write the deck to Tabletop Simulator deck sheets.",
+			"  --validate <file|dir>     Check .dec files against the format, collection and ban list. Folders are",
+			"                            searched recursively. Exits with " + EXIT_INVALID_DECK + " if any deck is invalid.",
+			"  --serve <port>            After everything else, serve queries on localhost until killed.",
+			"  --help                    Show this message.");
+
+	private final HeadlessInterface ui = new HeadlessInterface();
+	private final PrintStream out;
+	private boolean anyInvalid = false;
+
+	private CommandLine(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 Runs the provided arguments and exits the JVM with the result.
+	 @param args Command line arguments.
+	 */
+	static void run(String[] args) {
+		//noinspection UseOfSystemOutOrSystemErr
+		PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+		int result;
+		try {
+			result = new CommandLine(out).execute(args);
+		} catch (UsageException e) {
+			//noinspection UseOfSystemOutOrSystemErr
+			System.err.println(e.getMessage());
+			//noinspection UseOfSystemOutOrSystemErr
+			System.err.println(USAGE);
+			result = EXIT_ERROR;
+		} catch (IOException e) {
+			Logger.tag(LogTags.USER_INPUT.tag).error(e, "Unable to complete command.");
+			result = EXIT_ERROR;
+		} catch (InterruptedException e) {
+			result = EXIT_ERROR;
+		}
+		out.flush();
+		System.exit(result);
+	}
+
+	private int execute(String[] args) throws IOException, InterruptedException {
+		File cards = null;
+		File stateDirectory = null;
+		DeckFormat format = null;
+		int servePort = -1;
+		List<String[]> actions = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--help":
+					out.println(USAGE);
+					return EXIT_OK;
+				case "--cards":
+					cards = existingFile(args, ++i);
+					break;
+				case "--persist":
+					stateDirectory = new File("userdata");
+					break;
+				case "--format":
+					format = i + 1 < args.length ? DeckFormat.named(args[++i]) : null;
+					if (format == null) {
+						throw new UsageException("--format needs one of " + formatNames() + ".");
+					}
+					break;
+				case "--serve":
+					try {
+						servePort = Integer.parseInt(args[++i]);
+					} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+						throw new UsageException("--serve needs a port number.");
+					}
+					break;
+				case "--fill":
+				case "--clear-collection":
+				case "--clear-deck":
+				case "--stats":
+					actions.add(new String[]{args[i]});
+					break;
+				case "--update":
+				case "--collection":
+				case "--bans":
+				case "--restricted":
+				case "--deck":
+				case "--validate":
+					existingFile(args, i + 1);
+					actions.add(new String[]{args[i], args[++i]});
+					break;
+				case "--save-deck":
+				case "--export-image":
+					if (i + 1 >= args.length) {
+						throw new UsageException(args[i] + " is missing a file.");
+					}
+					actions.add(new String[]{args[i], args[++i]});
+					break;
+				default:
+					throw new UsageException("Unknown argument '" + args[i] + "'.");
+			}
+		}
+		if (actions.isEmpty() && servePort < 0) {
+			throw new UsageException("Nothing to do.");
+		}
+
+		CardDatabase.initCardDatabase(ui, cards, stateDirectory);
+		if (format != null) {
+			CardDatabase.setDeckFormat(format);
+		}
+		List<File> toValidate = new ArrayList<>();
+		for (String[] action : actions) {
+			if (!action[0].equals("--validate") && !toValidate.isEmpty()) {
+				validate(toValidate);
+				toValidate.clear();
+			}
+
+			switch (action[0]) {
+				case "--update":
+					update(new File(action[1]));
+					break;
+				case "--collection":
+					CardDatabase.readCollection(new File(action[1]));
+					break;
+				case "--fill":
+					CardDatabase.fillCollection();
+					break;
+				case "--clear-collection":
+					CardDatabase.clearCollection();
+					break;
+				case "--bans":
+					CardDatabase.readBans(new File(action[1]));
+					break;
+				case "--restricted":
+					CardDatabase.readRestrictedList(new File(action[1]));
+					break;
+				case "--deck":
+					CardDatabase.readDeck(new File(action[1]));
+					break;
+				case "--clear-deck":
+					CardDatabase.clearDeck();
+					break;
+				case "--save-deck":
+					CardDatabase.saveDeck(new File(action[1]));
+					break;
+				case "--export-image":
+					CardDatabase.saveDeckImage(new File(action[1]).getAbsoluteFile());
+					break;
+				case "--stats":
+					printStats();
+					break;
+				case "--validate":
+					toValidate.addAll(findDecFiles(new File(action[1])));
+					break;
+			}
+		}
+		if (!toValidate.isEmpty()) {
+			validate(toValidate);
+		}
+		if (servePort >= 0) {
+			CardDatabase.awaitIdle();
+			out.flush();
+			QueryServer.start(servePort);
+			//Run until the process gets killed.
+			new CountDownLatch(1).await();
+		}
+		CardDatabase.shutdown();
+
+		if (ui.getMessageCount() > 0) {
+			return EXIT_ERROR;
+		}
+		return anyInvalid ? EXIT_INVALID_DECK : EXIT_OK;
+	}
+
+	private void update(File json) throws InterruptedException {
+		try {
+			out.println("Updated card database: " + CardDatabase.updateCardDatabase(json).get());
+		} catch (ExecutionException e) {
+			//Already logged and counted as an error by the database.
+			out.println("Unable to update card database from " + json.getPath());
+		}
+	}
+
+	private void printStats() throws InterruptedException {
+		CardDatabase.awaitIdle();
+		out.println("Deck stats:");
+		for (String line : CardDatabase.getDeckState().getStats().describe()) {
+			out.println("    " + line);
+		}
+	}
+
+	/**
+	 Validates a batch of decks in parallel against the current collection, and prints the results in order.
+	 */
+	private void validate(List<File> decks) throws InterruptedException {
+		CardDatabase.awaitIdle();
+		List<List<String>> results = decks.parallelStream()
+				.map(CardDatabase::validateDeck)
+				.collect(Collectors.toList());
+
+		int invalid = 0;
+		for (int i = 0; i < decks.size(); i++) {
+			List<String> problems = results.get(i);
+			if (problems.isEmpty()) {
+				out.println("VALID   " + decks.get(i).getPath());
+			} else {
+				invalid++;
+				out.println("INVALID " + decks.get(i).getPath());
+				for (String problem : problems) {
+					out.println("    " + problem);
+				}
+			}
+		}
+		out.println(decks.size() + " deck(s) checked, " + invalid + " invalid.");
+		anyInvalid |= invalid > 0;
+	}
+
+	private static List<File> findDecFiles(File file) throws IOException {
+		if (!file.isDirectory()) {
+			return Collections.singletonList(file);
+		}
+
+		try (Stream<Path> paths = Files.walk(file.toPath())) {
+			return paths.filter((path) -> path.getFileName().toString().endsWith(".dec") && Files.isRegularFile(path))
+					.sorted()
+					.map(Path::toFile)
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static String formatNames() {
+		return DeckFormat.getBuiltIn().stream().map((format) -> format.name).collect(Collectors.joining(", "));
+	}
+
+	private static File existingFile(String[] args, int index) {
+		if (index >= args.length) {
+			throw new UsageException(args[index - 1] + " is missing a file.");
+		}
+
+		File file = new File(args[index]);
+		if (!file.exists()) {
+			throw new UsageException("'" + args[index] + "' does not exist.");
+		}
+		return file;
+	}
+
+	private static class UsageException extends RuntimeException {
+		UsageException(String message) {
+			super(message);
+		}
+	}
+}
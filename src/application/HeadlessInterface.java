@@ -0,0 +1,65 @@
+package application;
+
+import database.card.Card;
+import database.card.DeckState;
+import org.tinylog.Logger;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ UserInterface for the command line. There's nothing to display, so only messages meant for the user are printed. */
+class HeadlessInterface implements UserInterface {
+	//Number of messages shown so far. Each one means something the user asked for didn't happen.
+	private final AtomicInteger messageCount = new AtomicInteger(0);
+
+	@Override
+	public void setBusyLoading(boolean isBusy) {
+	}
+
+	@Override
+	public void cardsLoaded() {
+	}
+
+	@Override
+	public void databaseLoaded() {
+	}
+
+	@Override
+	public void databaseUpdated() {
+	}
+
+	@Override
+	public void deckStateChanged(DeckState deck, int[] changedCards) {
+	}
+
+	@Override
+	public void deckCardsChanged(List<Card> deckCards) {
+	}
+
+	@Override
+	public void deckProblemsChanged(List<String> problems) {
+	}
+
+	@Override
+	public void setDeckEditingEnabled(boolean enabled) {
+	}
+
+	@Override
+	public void setSelectedCard(Card card, ImageIcon front, ImageIcon back) {
+	}
+
+	@Override
+	public void showMessage(String message) {
+		messageCount.incrementAndGet();
+		Logger.tag(LogTags.USER_INPUT.tag).warn(message);
+		//noinspection UseOfSystemOutOrSystemErr
+		System.err.println(message);
+	}
+
+	/** @return The number of messages that have been shown to the user. */
+	int getMessageCount() {
+		return messageCount.get();
+	}
+}
@@ -1,71 +1,164 @@
 package application;
 
-public enum LogTags {
-	//TODO: Add support to override the default settings with a config file.
-	DECK_IMAGE("Deck Image", LogLevel.INFO),
-	PREFETCH ("Prefetch", LogLevel.WARN),
-	IMAGE_LOAD("Image Loading", LogLevel.TRACE),
-	DB_INIT("Database Init", LogLevel.WARN),
-	DB_ACTION("Database Action", LogLevel.WARN),
-	USER_INPUT("User Input", LogLevel.INFO),
-	UI_UPDATES("UI Updates", LogLevel.WARN),
-	UI_SYNC("UI Sync", LogLevel.WARN);
+import org.tinylog.Level;
+import org.tinylog.Logger;
+import org.tinylog.configuration.Configuration;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
 
-	@SuppressWarnings("unused")
-	private enum LogLevel {
-		OFF("off"),
-		TRACE("trace"),
-		DEBUG("debug"),
-		INFO("info"),
-		WARN("warn"),
-		ERROR("error");
+/**
+ Log tags and their levels. Each tag's level can be overridden in logging.properties, or the file named by
+ -Dmtgdeckbuddy.logging.config=<file>, with lines like DB_INIT=debug. The file is checked every few seconds, and level
+ changes take effect right away. It can also set file=<log file> to log to a file instead of the console, and
+ buffer=<entries> for the size of the log writer's buffer, but those two are only read at startup. */
+public enum LogTags {
+	DECK_IMAGE("Deck Image", Level.INFO),
+	PREFETCH ("Prefetch", Level.WARN),
+	IMAGE_LOAD("Image Loading", Level.TRACE),
+	DB_INIT("Database Init", Level.WARN),
+	DB_ACTION("Database Action", Level.WARN),
+	USER_INPUT("User Input", Level.INFO),
+	UI_UPDATES("UI Updates", Level.WARN),
+	UI_SYNC("UI Sync", Level.WARN),
+	SERVER("Query Server", Level.INFO),
+	METRICS("Metrics", Level.WARN),
+	EDT_WATCHDOG("EDT Watchdog", Level.WARN),
+	STARTUP("Startup", Level.INFO),
+	LOGGING("Logging", Level.INFO);
 
-		public final String value;
-		LogLevel(String valueName) {
-			value = valueName;
+	private static final String DEFAULT_CONFIG_FILE = "logging.properties";
+	private static final long CONFIG_POLL_MILLIS = 2000;
+	private static final Map<String, LogTags> byTag = new HashMap<>();
+	static {
+		for (LogTags tag : values()) {
+			byTag.put(tag.tag, tag);
 		}
 	}
 
 	public final String tag;
-	private final LogLevel level;
+	private final Level defaultLevel;
+	private volatile Level level;
 
-	LogTags(String tagName, LogLevel levelName) {
+	LogTags(String tagName, Level defaultLevel) {
 		tag = tagName;
-		level = levelName;
+		this.defaultLevel = defaultLevel;
+		level = defaultLevel;
+	}
+
+	/**
+	 Cheap enough to guard log calls in hot loops with, unlike Logger.tag(), which builds a new set of tags every call.
+	 @return Whether or not entries with this tag at this level are currently written.
+	 */
+	public boolean isEnabled(Level level) {
+		return level.ordinal() >= this.level.ordinal();
+	}
+
+	/** @return Whether or not a log entry with this tag and level should be written right now. */
+	static boolean isEnabled(String tag, Level level) {
+		LogTags logTag = tag == null ? null : byTag.get(tag);
+		//Untagged and unknown tags were never configured, so they stay quiet.
+		return logTag != null && logTag.isEnabled(level);
 	}
 
 	public static void configureLogging() {
-		if (WRITE_TO_FILE) {
-			org.tinylog.configuration.Configuration.set("writer", "file");
-			org.tinylog.configuration.Configuration.set("writer.file", "log.txt");
-			org.tinylog.configuration.Configuration.set("writer.charset", "UTF-8");
-		} else {
-			org.tinylog.configuration.Configuration.set("writer", "console");
+		File configFile = new File(System.getProperty("mtgdeckbuddy.logging.config", DEFAULT_CONFIG_FILE));
+		Properties config = readConfig(configFile);
+		applyLevels(config);
+
+		Configuration.set("provider", TagLevelLoggingProvider.class.getName());
+		Configuration.set("level", "trace");
+		Configuration.set("writingthread", "false");
+		Configuration.set("writer", RingBufferWriter.class.getName());
+		String logFile = config.getProperty("file");
+		if (logFile != null) {
+			Configuration.set("writer.file", logFile);
+			Configuration.set("writer.charset", "UTF-8");
+			Configuration.set("writer.buffered", "true");
+		}
+		String capacity = config.getProperty("buffer");
+		if (capacity != null) {
+			Configuration.set("writer.capacity", capacity);
+		}
+		Configuration.set("writer.format", "{thread} {date} - [\"{tag}\"|{level}] : {message|indent=4}");
+
+		//Literally cannot use the logger here.
+		//noinspection UseOfSystemOutOrSystemErr
+		System.out.println("Logging \"" + describeLevels() + "\"");
+		watchConfig(configFile);
+	}
+
+	private static Properties readConfig(File file) {
+		Properties config = new Properties();
+		if (file.isFile()) {
+			try (InputStream in = new FileInputStream(file)) {
+				config.load(in);
+			} catch (IOException e) {
+				//noinspection UseOfSystemOutOrSystemErr
+				System.err.println("Unable to read logging config " + file + ": " + e);
+			}
 		}
+		return config;
+	}
 
-		org.tinylog.configuration.Configuration.set("writingthread", "true");
-		org.tinylog.configuration.Configuration.set("writer.buffered", "true");
-		org.tinylog.configuration.Configuration.set("writer.format", "{thread} {date} - [\"{tag}\"|{level}] : {message|indent=4}");
+	//Tags the config doesn't mention go back to their defaults, so deleting a line undoes it.
+	private static void applyLevels(Properties config) {
+		Map<LogTags, Level> levels = new EnumMap<>(LogTags.class);
+		for (String key : config.stringPropertyNames()) {
+			if (key.equals("file") || key.equals("buffer")) {
+				continue;
+			}
+			try {
+				levels.put(valueOf(key.trim().toUpperCase(Locale.ROOT)),
+						Level.valueOf(config.getProperty(key).trim().toUpperCase(Locale.ROOT)));
+			} catch (IllegalArgumentException e) {
+				//noinspection UseOfSystemOutOrSystemErr
+				System.err.println("Ignoring logging config line " + key + "=" + config.getProperty(key));
+			}
+		}
+		for (LogTags tag : values()) {
+			tag.level = levels.getOrDefault(tag, tag.defaultLevel);
+		}
+	}
 
-		LogTags[] tags = values();
+	private static void watchConfig(File file) {
+		Thread watcher = new Thread(() -> {
+			long lastModified = file.lastModified();
+			while (true) {
+				try {
+					Thread.sleep(CONFIG_POLL_MILLIS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				long modified = file.lastModified();
+				if (modified != lastModified) {
+					lastModified = modified;
+					applyLevels(readConfig(file));
+					Logger.tag(LOGGING.tag).info("Reloaded {}. Logging \"{}\"", file, describeLevels());
+				}
+			}
+		}, "Logging Config Watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	private static String describeLevels() {
 		StringBuilder enabledTags = new StringBuilder();
-		boolean first = true;
-		for (LogTags tag : tags) {
-			if (tag.level != LogLevel.OFF) {
-				if (!first) {
+		for (LogTags tag : values()) {
+			if (tag.level != Level.OFF) {
+				if (enabledTags.length() > 0) {
 					enabledTags.append(",");
 				}
-				enabledTags.append(tag.tag);
-				enabledTags.append("@");
-				enabledTags.append(tag.level.value);
-				first = false;
+				enabledTags.append(tag.tag).append("@").append(tag.level.name().toLowerCase(Locale.ROOT));
 			}
 		}
-
-		//Literally cannot use the logger here.
-		//noinspection UseOfSystemOutOrSystemErr
-		System.out.println("Logging \"" + enabledTags + "\"");
-		org.tinylog.configuration.Configuration.set("writer.tag", enabledTags.toString());
+		return enabledTags.toString();
 	}
-	private static final boolean WRITE_TO_FILE = false;
 }
@@ -2,12 +2,47 @@ package application;
 
 import database.card.CardDatabase;
 import gui.Gui;
+import gui.SwingInterface;
+import metrics.Metrics;
+import org.tinylog.Logger;
+import server.QueryServer;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 public class MtgDeckBuddy {
 
 	public static void main(String[] args) {
+		//The query server streams each response in several writes, which Nagle's algorithm would hold back waiting on ACKs.
+		//The JDK's sun.net.httpserver.ServerConfig reads this once, when the HttpServer classes load, so it has to be set
+		//before anything touches them.
+		if (Integer.getInteger("mtgdeckbuddy.port") != null || Arrays.asList(args).contains("--serve")) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+		//Any arguments means a batch job from the command line. Swing never gets touched in that case.
+		if (args.length > 0) {
+			System.setProperty("java.awt.headless", "true");
+			LogTags.configureLogging();
+			Metrics.start();
+			CommandLine.run(args);
+			return;
+		}
+
 		LogTags.configureLogging();
+		StartupTimeline.mark(StartupTimeline.Milestone.MAIN);
+		Metrics.start();
+		//The database loads on its own worker, so it's started first to load while the look and feel is set up.
+		CardDatabase.initCardDatabase(new SwingInterface());
 		Gui.init();
-		CardDatabase.initCardDatabase();
+
+		//Lets other local tools query the same database, with -Dmtgdeckbuddy.port=<port>.
+		Integer port = Integer.getInteger("mtgdeckbuddy.port");
+		if (port != null) {
+			try {
+				QueryServer.start(port);
+			} catch (IOException e) {
+				Logger.tag(LogTags.SERVER.tag).error(e, "Unable to start query server on port {}.", port);
+			}
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package application;
+
+import metrics.Counter;
+import metrics.Metrics;
+import org.tinylog.Level;
+import org.tinylog.core.LogEntry;
+import org.tinylog.core.LogEntryValue;
+import org.tinylog.runtime.RuntimeProvider;
+import org.tinylog.writers.ConsoleWriter;
+import org.tinylog.writers.FileWriter;
+import org.tinylog.writers.Writer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ tinylog writer that hands entries to a background thread through a fixed size ring buffer. Logging threads never wait
+ on the console or disk: if the buffer is full, the entry is dropped and counted instead, and a note saying how many
+ were lost gets written once there's room. Writes to the file in the file property if there is one, otherwise to the
+ console. The capacity property sets the size of the buffer. */
+public final class RingBufferWriter implements Writer {
+	private static final int DEFAULT_CAPACITY = 8192;
+	private static final long POLL_MILLIS = 100;
+	private static final long DROP_NOTE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+	private static final Counter droppedCount = Metrics.counter("log.dropped");
+
+	private final Writer target;
+	private final BlockingQueue<LogEntry> buffer;
+	//Entries dropped since the last note about it was written.
+	private final AtomicLong unreportedDrops = new AtomicLong();
+	private final Thread drainThread;
+	private volatile boolean closed = false;
+
+	/** Called by tinylog, with every writer property from the logging configuration. */
+	public RingBufferWriter(Map<String, String> properties) throws IOException {
+		target = properties.containsKey("file") ? new FileWriter(properties) : new ConsoleWriter(properties);
+		String capacity = properties.get("capacity");
+		buffer = new ArrayBlockingQueue<>(capacity == null ? DEFAULT_CAPACITY : Integer.parseInt(capacity));
+
+		drainThread = new Thread(this::drain, "Log Writer");
+		drainThread.setDaemon(true);
+		drainThread.start();
+	}
+
+	@Override
+	public Collection<LogEntryValue> getRequiredLogEntryValues() {
+		//Tag and level are always needed for the dropped entry note, even if the format doesn't show them.
+		Collection<LogEntryValue> values = EnumSet.of(LogEntryValue.TAG, LogEntryValue.LEVEL);
+		values.addAll(target.getRequiredLogEntryValues());
+		return values;
+	}
+
+	@Override
+	public void write(LogEntry logEntry) {
+		if (!buffer.offer(logEntry)) {
+			droppedCount.increment();
+			unreportedDrops.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void flush() {
+		//The drain thread flushes after every batch.
+	}
+
+	@Override
+	public void close() throws Exception {
+		closed = true;
+		drainThread.join();
+		if (unreportedDrops.get() > 0) {
+			target.write(dropNote(unreportedDrops.getAndSet(0)));
+		}
+		target.close();
+	}
+
+	private void drain() {
+		List<LogEntry> batch = new ArrayList<>();
+		long lastDropNote = System.nanoTime() - DROP_NOTE_INTERVAL;
+		while (!closed || !buffer.isEmpty()) {
+			try {
+				LogEntry first = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+			} catch (InterruptedException e) {
+				return;
+			}
+			buffer.drainTo(batch);
+
+			try {
+				//At most one note a second, so a flood doesn't just trade its own entries for notes about them.
+				if (unreportedDrops.get() > 0 && System.nanoTime() - lastDropNote >= DROP_NOTE_INTERVAL) {
+					target.write(dropNote(unreportedDrops.getAndSet(0)));
+					lastDropNote = System.nanoTime();
+				}
+				for (LogEntry entry : batch) {
+					target.write(entry);
+				}
+				target.flush();
+			} catch (Exception e) {
+				//Nowhere else to report it, since this is the logger.
+				//noinspection UseOfSystemOutOrSystemErr
+				System.err.println("Unable to write log entries: " + e);
+			}
+			batch.clear();
+		}
+	}
+
+	private static LogEntry dropNote(long drops) {
+		return new LogEntry(RuntimeProvider.createTimestamp(), Thread.currentThread(), Collections.emptyMap(), null, null,
+				null, -1, LogTags.LOGGING.tag, Level.WARN, "Dropped " + drops + " log entries while the log writer was behind.",
+				null);
+	}
+}
@@ -0,0 +1,71 @@
+package application;
+
+import metrics.Metrics;
+import org.tinylog.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ Milestones of a GUI launch, timed from when the JVM started. Each one is logged the first time it's reached, and kept
+ as a startup.<milestone> gauge in milliseconds, so launch time can be tracked through metrics.json like everything
+ else.
+
+ With -Dmtgdeckbuddy.exitAfterStartup=true the application exits once the window is up and the card table has every
+ card in it. That's the training run the build uses to record which classes a launch loads into a class data sharing
+ archive. */
+public final class StartupTimeline {
+	/** Points in a launch, roughly in the order they're reached. */
+	public enum Milestone {
+		MAIN("main", "main() called"),
+		WINDOW_VISIBLE("windowVisible", "Window visible"),
+		TABLE_POPULATED("tablePopulated", "First cards in the table"),
+		TABLE_COMPLETE("tableComplete", "Every card in the table"),
+		FIRST_IMAGE("firstImage", "First card image shown");
+
+		private final String key;
+		private final String description;
+
+		Milestone(String key, String description) {
+			this.key = key;
+			this.description = description;
+		}
+	}
+
+	private static final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+	//Milliseconds from the JVM starting to each milestone, or -1 for ones that haven't been reached.
+	private static final long[] reached = new long[Milestone.values().length];
+	private static final boolean exitAfterStartup = Boolean.getBoolean("mtgdeckbuddy.exitAfterStartup");
+
+	static {
+		Arrays.fill(reached, -1);
+	}
+
+	private StartupTimeline() {
+	}
+
+	/**
+	 Records that a milestone has been reached. Only the first call for each milestone counts. Safe to call from any
+	 thread.
+	 @param milestone The milestone.
+	 */
+	public static void mark(Milestone milestone) {
+		long elapsed = System.currentTimeMillis() - jvmStart;
+		boolean trainingDone;
+		synchronized (reached) {
+			if (reached[milestone.ordinal()] >= 0) {
+				return;
+			}
+			reached[milestone.ordinal()] = elapsed;
+			trainingDone = exitAfterStartup && reached[Milestone.WINDOW_VISIBLE.ordinal()] >= 0
+					&& reached[Milestone.TABLE_COMPLETE.ordinal()] >= 0;
+		}
+		Metrics.gauge("startup." + milestone.key, () -> elapsed);
+		Logger.tag(LogTags.STARTUP.tag).info("{} {}ms after the JVM started.", milestone.description, elapsed);
+
+		if (trainingDone) {
+			Logger.tag(LogTags.STARTUP.tag).info("Startup finished, exiting for -Dmtgdeckbuddy.exitAfterStartup.");
+			System.exit(0);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package application;
+
+import org.tinylog.Level;
+import org.tinylog.core.TinylogLoggingProvider;
+import org.tinylog.format.MessageFormatter;
+import org.tinylog.provider.ContextProvider;
+import org.tinylog.provider.LoggingProvider;
+
+/**
+ Checks each log call against the current level of its LogTags entry before handing it to tinylog. tinylog fixes its
+ levels once it starts, so it's told to pass everything, and the real levels live here where they can change while the
+ program runs. A call below its tag's level returns before its message is formatted or anything else is done. */
+public final class TagLevelLoggingProvider implements LoggingProvider {
+	private final LoggingProvider provider = new TinylogLoggingProvider();
+
+	@Override
+	public ContextProvider getContextProvider() {
+		return provider.getContextProvider();
+	}
+
+	@Override
+	public Level getMinimumLevel() {
+		return Level.TRACE;
+	}
+
+	//Anything could be turned on later, and tinylog's loggers only ask this once.
+	@Override
+	public Level getMinimumLevel(String tag) {
+		return Level.TRACE;
+	}
+
+	@Override
+	public boolean isEnabled(int depth, String tag, Level level) {
+		return LogTags.isEnabled(tag, level) && provider.isEnabled(depth + 1, tag, level);
+	}
+
+	@Override
+	public void log(int depth, String tag, Level level, Throwable exception, MessageFormatter formatter, Object obj,
+			Object... arguments) {
+		if (LogTags.isEnabled(tag, level)) {
+			provider.log(depth + 1, tag, level, exception, formatter, obj, arguments);
+		}
+	}
+
+	@Override
+	public void log(String loggerClassName, String tag, Level level, Throwable exception, MessageFormatter formatter,
+			Object obj, Object... arguments) {
+		if (LogTags.isEnabled(tag, level)) {
+			provider.log(loggerClassName, tag, level, exception, formatter, obj, arguments);
+		}
+	}
+
+	@Override
+	public void shutdown() throws InterruptedException {
+		provider.shutdown();
+	}
+}
@@ -0,0 +1,57 @@
+package application;
+
+import database.card.Card;
+import database.card.DeckState;
+
+import javax.swing.*;
+import java.util.List;
+
+/**
+ Everything the card database needs to tell the user about. Implemented by the Swing GUI, and by a headless version
+ for the command line. Calls can come from any thread, and implementations must not block on the UI. */
+public interface UserInterface {
+	/** Shows or hides the busy indicator. */
+	void setBusyLoading(boolean isBusy);
+
+	/**
+	 Called each time another batch of cards is ready while the card database is still loading.
+	 CardDatabase.getCardCount() already includes them.
+	 */
+	void cardsLoaded();
+
+	/** Called once the card database has finished loading. */
+	void databaseLoaded();
+
+	/** Called when an update has replaced the card database. Cards may have been added, removed, or changed. */
+	void databaseUpdated();
+
+	/**
+	 Called whenever a batch of deck edits has been applied.
+	 @param deck         The newly published deck state.
+	 @param changedCards Ids of the cards that changed, or null if too many changed to list.
+	 */
+	void deckStateChanged(DeckState deck, int[] changedCards);
+
+	/**
+	 Called when the set of cards inside of the deck changes.
+	 @param deckCards Every card inside of the deck.
+	 */
+	void deckCardsChanged(List<Card> deckCards);
+
+	/**
+	 Called when the problems with the deck change, either because it was edited or the format changed.
+	 @param problems Every problem with the deck, in the current format. Empty if it's legal.
+	 */
+	void deckProblemsChanged(List<String> problems);
+
+	/** Enables or disables anything that can edit the deck, while bulk edits are in flight. */
+	void setDeckEditingEnabled(boolean enabled);
+
+	/**
+	 Displays a card and its images. Images are null while loading, or if the card doesn't have them.
+	 */
+	void setSelectedCard(Card card, ImageIcon front, ImageIcon back);
+
+	/** Tells the user about something that went wrong with what they asked for. */
+	void showMessage(String message);
+}
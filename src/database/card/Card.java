@@ -1,21 +1,47 @@
 package database.card;
 
+import application.LogTags;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.tinylog.Logger;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 /**
  Object representing a magic the gathering card. Should only be mutated by CardDatabase, but may be referenced elsewhere
- for convenience or general sanity. */
+ for convenience or general sanity.
+
+ Only the fields used to sort and filter every card are held directly. Text, image URLs, and the display strings for
+ stats are kept as entries in the string pool, which is memory mapped when cards come from a CardStore, and are only
+ turned into objects when something asks for them. */
 public class Card {
 	//Float comparison delta. Used to check if decimal points should get filtered.
 	private static final double DELTA = 0.001;
+	/** Sort value for a power, loyalty, or toughness that the card doesn't have. Sorts before every real value. */
+	public static final float STAT_MISSING = Float.NEGATIVE_INFINITY;
+	/** Sort value for a variable power, loyalty, or toughness like '*' or '1+*'. Sorts the same as 0. */
+	public static final float STAT_VARIABLE = 0;
+	//Keywords never contain line breaks, so they're safe to separate keywords with.
+	private static final String KEYWORD_SEPARATOR = "\n";
+	/** Size in bytes of a card's record inside of a CardStore file. */
+	static final int RECORD_SIZE = 96;
+	//Bits in a record's flags byte.
+	private static final int FLAG_PLAYABLE = 1;
+	private static final int FLAG_BASIC_LAND = 1 << 1;
+	private static final int FLAG_FIXED_POWER = 1 << 2;
+	private static final int FLAG_FIXED_TOUGHNESS = 1 << 3;
+	private static final int FLAG_REMOVED = 1 << 4;
+	//Color identity lists, indexed by a bitmask of the colors' ordinals. Shared between every card with that identity.
+	private static final List<CardColor>[] COLOR_IDENTITIES = createColorIdentities();
 	/** Field names for JTables that are displaying cards. */
 	public static final String[] DATA_FIELD_NAMES = {"Name", "Type", "Mana", "Power", "Tough", "Owned", "In Deck"};
 
@@ -41,39 +67,68 @@ public class Card {
 	public static final int IN_DECK = 6;
 
 	private final String name;
-	private final String type;
-	private final CardField<Double> mana;
-	private final CardField<Float> powerOrLoyalty;
-	private final CardField<Float> toughness;
-	private CardField<Integer> owned = new CardField<>(0);
-	private CardField<Integer> inDeck = new CardField<>(0);
-	/** Whether or not the current active ban list hits this card. */
-	public volatile boolean banned = false;
-	/** The text inside the text box for the card. */
-	public final String cardText;
-	private final boolean isBasicLand;
+	//Pool holding this card's text, type line, and keywords. Set by CardDatabase once every card has been loaded.
+	StringPool strings;
+	//Entries in the string pool.
+	final int typeEntry;
+	final int textEntry;
+	final int keywordsEntry;
+	//Display strings for the stats. Double faced cards show both faces, like '2 // 4'.
+	private final int manaEntry;
+	private final int powerOrLoyaltyEntry;
+	private final int toughnessEntry;
+	//Image URLs, or -1 for a face without an image.
+	private final int frontImageEntry;
+	private final int backImageEntry;
+	private final double manaValue;
+	private final float powerOrLoyalty;
+	private final float toughness;
+	//Whether or not power/toughness are plain numbers, as opposed to missing or variable like '*'.
+	private final boolean hasFixedPowerOrLoyalty;
+	private final boolean hasFixedToughness;
+	//Basic lands are exempt from the 4 copy limit.
+	final boolean isBasicLand;
+	//Bitmask of the ordinals of the card's CardTypes, worked out from the type line once so deck stats don't re-parse it.
+	final int cardTypes;
 	/** Index of this card in the card list, for fast lookups. */
 	public final int id;
 	/** List of colors making up this card's color identity. */
 	public final List<CardColor> colorIdentity;
-	/** Keyworks associated with the card IE: Trample, Likelink, Scry, ect.*/
-	public final List<String> keywords;
-	/** URL for the card's front image in Scryfall. */
-	public final URL frontImageUrl;
-	/** URL for the card's back image on Scryfall. */
-	public final URL backImageUrl;
 	/** Whether or not the card is 'playable' inside a deck. Set to false on some promo cards, tokens, and so on. */
 	public final boolean isPlayable;
+	/**
+	 Whether or not the card has been dropped from the card database by an update. Removed cards keep their id, so that
+	 ids stay stable, but are left out of every search and can't be put in the deck. */
+	public final boolean isRemoved;
+	//Scryfall's id for the card. Unlike Card.id, stays the same between versions of the card database.
+	private final long scryfallIdHigh;
+	private final long scryfallIdLow;
+	//Scryfall's id for the card's oracle text, shared by every printing of the card.
+	private final long oracleIdHigh;
+	private final long oracleIdLow;
+	//Set code and collector number, like 'LEA #161'. Empty if the json didn't say.
+	private final int printingEntry;
+	//Image URLs, built the first time they're asked for. Most cards never get selected, so most never are.
+	private volatile URL frontImageUrl;
+	private volatile URL backImageUrl;
 
 	/**
 	 Constructs a card object from JSON.
 	 @param cardJson The json to construct the card from.
 	 @param id       The ID number for the card.
+	 @param strings  Pool to add the card's text, type line, and keywords to.
 	 @throws JSONException         If the json object returns a parsing error.
 	 @throws MalformedURLException If the url for the card images are invalid.
 	 */
-	public Card(JSONObject cardJson, int id) throws JSONException, MalformedURLException {
+	Card(JSONObject cardJson, int id, StringPool.Builder strings) throws JSONException, MalformedURLException {
 		this.id = id;
+		UUID scryfallId = getScryfallId(cardJson);
+		scryfallIdHigh = scryfallId.getMostSignificantBits();
+		scryfallIdLow = scryfallId.getLeastSignificantBits();
+		UUID oracleId = getOracleId(cardJson);
+		oracleIdHigh = oracleId.getMostSignificantBits();
+		oracleIdLow = oracleId.getLeastSignificantBits();
+		isRemoved = false;
 
 		JSONArray jsonColorIdentity = cardJson.getJSONArray("color_identity");
 		List<CardColor> mutColorIdentity = new ArrayList<>(jsonColorIdentity.length());
@@ -86,101 +141,284 @@ public class Card {
 		}
 		colorIdentity = Collections.unmodifiableList(mutColorIdentity);
 
+		//Keywords get pooled as a single entry, since the same handful of combinations show up over and over.
 		JSONArray jsonKeywords = cardJson.getJSONArray("keywords");
-		List<String> mutKeywords = new ArrayList<>(jsonKeywords.length());
+		StringBuilder joinedKeywords = new StringBuilder();
 		for (Object jsonKeyword : jsonKeywords) {
-			mutKeywords.add(jsonKeyword.toString().toLowerCase());
+			if (joinedKeywords.length() > 0) {
+				joinedKeywords.append(KEYWORD_SEPARATOR);
+			}
+			joinedKeywords.append(jsonKeyword.toString().toLowerCase());
 		}
-		keywords = Collections.unmodifiableList(mutKeywords);
+		keywordsEntry = strings.add(joinedKeywords.toString());
 
-		cardText = cardJson.optString("oracle_text", "").toLowerCase().trim();
+		textEntry = strings.add(cardJson.optString("oracle_text", "").toLowerCase().trim());
 
 		//If invalid characters are being output here, then that means the project was not encoded with UTF-8!
 		name = cardJson.getString("name");
 		String typeline = cardJson.getString("type_line");
 		isPlayable = !typeline.contains("Card") && !typeline.contains("Token");
-		type = typeline;
+		typeEntry = strings.add(typeline);
 		isBasicLand = typeline.contains("Basic Land");
+		cardTypes = CardType.parse(typeline);
+
+		String set = cardJson.optString("set", "").toUpperCase();
+		String number = cardJson.optString("collector_number", "");
+		printingEntry = strings.add(number.isEmpty() ? set : (set + " #" + number).trim());
 
-		double cmc = cardJson.getDouble("cmc");
-		if (cmc - (int) cmc < DELTA) {
-			mana = new CardField<>(String.valueOf((int) cmc), cmc); //Remove decimals from CMCs that doesn't need it.
+		manaValue = cardJson.getDouble("cmc");
+		if (manaValue - (int) manaValue < DELTA) {
+			manaEntry = strings.add(String.valueOf((int) manaValue)); //Remove decimals from CMCs that doesn't need it.
 		} else {
-			mana = new CardField<>(String.valueOf(cmc), cmc);
+			manaEntry = strings.add(String.valueOf(manaValue));
 		}
 
 		if (!cardJson.has("card_faces")) { //Single faced cards.
 			String powerStr = cardJson.optString("power", cardJson.optString("loyalty", "N/A"));
-			float p = Float.MIN_VALUE;
-			try {
-				p = Float.parseFloat(powerStr);
-			} catch (NumberFormatException e) {
-				if (!powerStr.equals("N/A")) {
-					p = 0;
-				}
-			}
-			powerOrLoyalty = new CardField<>(powerStr, p);
+			powerOrLoyaltyEntry = strings.add(powerStr);
+			powerOrLoyalty = parseStat(powerStr);
+			hasFixedPowerOrLoyalty = isFixedStat(powerStr);
 
 			String toughStr = cardJson.optString("toughness", "N/A");
-			float t = Float.MIN_VALUE;
-			try {
-				t = Float.parseFloat(toughStr);
-			} catch (NumberFormatException e) {
-				if (!toughStr.equals("N/A")) {
-					t = 0;
-				}
-			}
-			toughness = new CardField<>(toughStr, t);
+			toughnessEntry = strings.add(toughStr);
+			toughness = parseStat(toughStr);
+			hasFixedToughness = isFixedStat(toughStr);
 
-			frontImageUrl = cardJson.has("image_uris") ? new URL(cardJson.getJSONObject("image_uris").getString("border_crop")) : null;
-			backImageUrl = null;
+			frontImageEntry = addImageUrl(cardJson, strings);
+			backImageEntry = -1;
 		} else { //Double faced cards.
 			JSONArray faces = cardJson.getJSONArray("card_faces");
 			JSONObject front = faces.getJSONObject(0);
 			JSONObject back = faces.getJSONObject(1);
 
-			String powerStr = front.optString("power", front.optString("loyalty", "N/A")) + " // " + back.optString("power", back.optString("loyalty", "N/A"));
-			float pf = Float.MIN_VALUE;
-			float pb = Float.MIN_VALUE;
+			String frontPower = front.optString("power", front.optString("loyalty", "N/A"));
+			String backPower = back.optString("power", back.optString("loyalty", "N/A"));
+			powerOrLoyaltyEntry = strings.add(frontPower + " // " + backPower);
+			powerOrLoyalty = combineFaceStats(frontPower, backPower);
+			hasFixedPowerOrLoyalty = isFixedStat(frontPower) || isFixedStat(backPower);
+
+			String frontToughness = front.optString("toughness", "N/A");
+			String backToughness = back.optString("toughness", "N/A");
+			toughnessEntry = strings.add(frontToughness + " // " + backToughness);
+			toughness = combineFaceStats(frontToughness, backToughness);
+			hasFixedToughness = isFixedStat(frontToughness) || isFixedStat(backToughness);
+
+			frontImageEntry = addImageUrl(front, strings);
+			backImageEntry = addImageUrl(back, strings);
+		}
+	}
+
+	//Checks the url now, so that a bad one is reported while loading instead of whenever the image is wanted.
+	private static int addImageUrl(JSONObject json, StringPool.Builder strings) throws MalformedURLException {
+		if (!json.has("image_uris")) {
+			return -1;
+		}
+		String url = json.getJSONObject("image_uris").getString("border_crop");
+		new URL(url);
+		return strings.add(url);
+	}
+
+	/**
+	 Reads a card back out of a record written by writeRecord.
+	 @param id      The ID number for the card.
+	 @param strings Pool that the record's string entries point into.
+	 @param records Buffer positioned at the start of the record.
+	 */
+	Card(int id, StringPool strings, ByteBuffer records) {
+		this.id = id;
+		this.strings = strings;
+		int start = records.position();
+		name = strings.get(records.getInt(start));
+		typeEntry = records.getInt(start + 4);
+		textEntry = records.getInt(start + 8);
+		keywordsEntry = records.getInt(start + 12);
+		frontImageEntry = records.getInt(start + 16);
+		backImageEntry = records.getInt(start + 20);
+		manaEntry = records.getInt(start + 24);
+		powerOrLoyaltyEntry = records.getInt(start + 28);
+		toughnessEntry = records.getInt(start + 32);
+		powerOrLoyalty = records.getFloat(start + 36);
+		manaValue = records.getDouble(start + 40);
+		toughness = records.getFloat(start + 48);
+		colorIdentity = COLOR_IDENTITIES[records.get(start + 52)];
+		int flags = records.get(start + 53);
+		isPlayable = (flags & FLAG_PLAYABLE) != 0;
+		isBasicLand = (flags & FLAG_BASIC_LAND) != 0;
+		hasFixedPowerOrLoyalty = (flags & FLAG_FIXED_POWER) != 0;
+		hasFixedToughness = (flags & FLAG_FIXED_TOUGHNESS) != 0;
+		isRemoved = (flags & FLAG_REMOVED) != 0;
+		cardTypes = records.getShort(start + 54) & 0xFFFF;
+		scryfallIdHigh = records.getLong(start + 56);
+		scryfallIdLow = records.getLong(start + 64);
+		oracleIdHigh = records.getLong(start + 72);
+		oracleIdLow = records.getLong(start + 80);
+		printingEntry = records.getInt(start + 88);
+		records.position(start + RECORD_SIZE);
+	}
+
+	/**
+	 Creates a removed copy of a card, for when an update drops it from the card database.
+	 @param card    The card that was removed.
+	 @param strings Pool to add the card's text, type line, and keywords to.
+	 */
+	Card(Card card, StringPool.Builder strings) {
+		id = card.id;
+		name = card.name;
+		typeEntry = strings.add(card.getType());
+		textEntry = strings.add(card.getText());
+		keywordsEntry = strings.add(card.strings.get(card.keywordsEntry));
+		frontImageEntry = card.frontImageEntry >= 0 ? strings.add(card.strings.get(card.frontImageEntry)) : -1;
+		backImageEntry = card.backImageEntry >= 0 ? strings.add(card.strings.get(card.backImageEntry)) : -1;
+		manaEntry = strings.add(card.strings.get(card.manaEntry));
+		powerOrLoyaltyEntry = strings.add(card.strings.get(card.powerOrLoyaltyEntry));
+		toughnessEntry = strings.add(card.strings.get(card.toughnessEntry));
+		manaValue = card.manaValue;
+		powerOrLoyalty = card.powerOrLoyalty;
+		toughness = card.toughness;
+		colorIdentity = card.colorIdentity;
+		isPlayable = card.isPlayable;
+		isBasicLand = card.isBasicLand;
+		cardTypes = card.cardTypes;
+		hasFixedPowerOrLoyalty = card.hasFixedPowerOrLoyalty;
+		hasFixedToughness = card.hasFixedToughness;
+		isRemoved = true;
+		scryfallIdHigh = card.scryfallIdHigh;
+		scryfallIdLow = card.scryfallIdLow;
+		oracleIdHigh = card.oracleIdHigh;
+		oracleIdLow = card.oracleIdLow;
+		printingEntry = strings.add(card.getPrinting());
+	}
+
+	/**
+	 Gets Scryfall's id for a card. Falls back on an id made from the name, for card json without ids.
+	 @param cardJson The json for the card.
+	 @return The card's id.
+	 */
+	static UUID getScryfallId(JSONObject cardJson) {
+		String id = cardJson.optString("id", null);
+		if (id != null) {
 			try {
-				pf = Float.parseFloat(front.optString("power", front.optString("loyalty")));
-			} catch (NumberFormatException e) {
-				if (!powerStr.equals("N/A // N/A")) {
-					pf = 0;
-				}
+				return UUID.fromString(id);
+			} catch (IllegalArgumentException e) {
+				//Not one of Scryfall's ids. Use the name instead.
 			}
+		}
+		return UUID.nameUUIDFromBytes(cardJson.getString("name").getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 Gets Scryfall's oracle id for a card. Double faced cards without one of their own use their front face's, and card
+	 json without any falls back on an id made from the name, so that printings still group together.
+	 @param cardJson The json for the card.
+	 @return The card's oracle id.
+	 */
+	static UUID getOracleId(JSONObject cardJson) {
+		String id = cardJson.optString("oracle_id", null);
+		if (id == null && cardJson.has("card_faces")) {
+			id = cardJson.getJSONArray("card_faces").getJSONObject(0).optString("oracle_id", null);
+		}
+		if (id != null) {
 			try {
-				pb = Float.parseFloat(back.optString("power", back.optString("loyalty")));
-			} catch (NumberFormatException e) {
-				if (!powerStr.equals("N/A // N/A")) {
-					pb = 0;
-				}
+				return UUID.fromString(id);
+			} catch (IllegalArgumentException e) {
+				//Not one of Scryfall's ids. Use the name instead.
 			}
-			powerOrLoyalty = new CardField<>(powerStr, Float.max(pf, pb));
+		}
+		return UUID.nameUUIDFromBytes(cardJson.getString("name").getBytes(StandardCharsets.UTF_8));
+	}
 
-			String toughStr = front.optString("toughness", "N/A") + " // " + back.optString("toughness", "N/A");
+	/** @return Scryfall's id for the card, which stays the same between versions of the card database. */
+	public UUID getScryfallId() {
+		return new UUID(scryfallIdHigh, scryfallIdLow);
+	}
 
-			float tf = Float.MIN_VALUE;
-			float tb = Float.MIN_VALUE;
-			try {
-				tf = Float.parseFloat(front.optString("toughness"));
-			} catch (NumberFormatException e) {
-				if (!toughStr.equals("N/A // N/A")) {
-					tf = 0;
-				}
+	/** @return Scryfall's id for the card's oracle text, which every printing of the card shares. */
+	public UUID getOracleId() {
+		return new UUID(oracleIdHigh, oracleIdLow);
+	}
+
+	/** @return Whether or not this card is a printing of the same oracle card as another. */
+	public boolean isPrintingOf(Card other) {
+		return oracleIdHigh == other.oracleIdHigh && oracleIdLow == other.oracleIdLow;
+	}
+
+	/**
+	 Checks if another version of a card looks the same as this one, for working out what an update changed.
+	 @param other The other version of the card. May come from a different string pool.
+	 @return Whether or not every field matches.
+	 */
+	boolean hasSameContents(Card other) {
+		return name.equals(other.name)
+				&& getType().equals(other.getType())
+				&& getText().equals(other.getText())
+				&& strings.get(keywordsEntry).equals(other.strings.get(other.keywordsEntry))
+				&& strings.get(manaEntry).equals(other.strings.get(other.manaEntry)) && manaValue == other.manaValue
+				&& strings.get(powerOrLoyaltyEntry).equals(other.strings.get(other.powerOrLoyaltyEntry))
+				&& strings.get(toughnessEntry).equals(other.strings.get(other.toughnessEntry))
+				&& colorIdentity.equals(other.colorIdentity)
+				&& isPlayable == other.isPlayable
+				&& isRemoved == other.isRemoved
+				&& isPrintingOf(other)
+				&& getPrinting().equals(other.getPrinting())
+				&& getEntry(frontImageEntry).equals(other.getEntry(other.frontImageEntry))
+				&& getEntry(backImageEntry).equals(other.getEntry(other.backImageEntry));
+	}
+
+	/**
+	 Writes this card as a fixed size record, for CardStore.
+	 @param records Buffer to write the record to, at its current position.
+	 @param pool    Pool to add the card's strings to.
+	 */
+	void writeRecord(ByteBuffer records, StringPool.Builder pool) {
+		int colors = 0;
+		for (CardColor color : colorIdentity) {
+			if (color != CardColor.COLORLESS) {
+				colors |= 1 << color.ordinal();
 			}
-			try {
-				tb = Float.parseFloat(back.optString("toughness"));
-			} catch (NumberFormatException e) {
-				if (!toughStr.equals("N/A // N/A")) {
-					tb = 0;
+		}
+		int flags = (isPlayable ? FLAG_PLAYABLE : 0) | (isBasicLand ? FLAG_BASIC_LAND : 0)
+				| (hasFixedPowerOrLoyalty ? FLAG_FIXED_POWER : 0) | (hasFixedToughness ? FLAG_FIXED_TOUGHNESS : 0)
+				| (isRemoved ? FLAG_REMOVED : 0);
+
+		records.putInt(pool.add(name))
+				.putInt(pool.add(getType()))
+				.putInt(pool.add(getText()))
+				.putInt(pool.add(strings.get(keywordsEntry)))
+				.putInt(frontImageEntry >= 0 ? pool.add(strings.get(frontImageEntry)) : -1)
+				.putInt(backImageEntry >= 0 ? pool.add(strings.get(backImageEntry)) : -1)
+				.putInt(pool.add(strings.get(manaEntry)))
+				.putInt(pool.add(strings.get(powerOrLoyaltyEntry)))
+				.putInt(pool.add(strings.get(toughnessEntry)))
+				.putFloat(powerOrLoyalty)
+				.putDouble(manaValue)
+				.putFloat(toughness)
+				.put((byte) colors)
+				.put((byte) flags)
+				.putShort((short) cardTypes)
+				.putLong(scryfallIdHigh)
+				.putLong(scryfallIdLow)
+				.putLong(oracleIdHigh)
+				.putLong(oracleIdLow)
+				.putInt(pool.add(getPrinting()))
+				.putInt(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<CardColor>[] createColorIdentities() {
+		List<CardColor>[] identities = new List[1 << CardColor.COLORLESS.ordinal()];
+		for (int mask = 0; mask < identities.length; mask++) {
+			List<CardColor> colors = new ArrayList<>();
+			for (CardColor color : CardColor.values()) {
+				if ((mask & (1 << color.ordinal())) != 0) {
+					colors.add(color);
 				}
 			}
-			toughness = new CardField<>(toughStr, Float.max(tf, tb));
-
-			frontImageUrl = front.has("image_uris") ? new URL(front.getJSONObject("image_uris").getString("border_crop")) : null;
-			backImageUrl = back.has("image_uris") ? new URL(back.getJSONObject("image_uris").getString("border_crop")) : null;
+			if (colors.isEmpty()) {
+				colors.add(CardColor.COLORLESS);
+			}
+			identities[mask] = Collections.unmodifiableList(colors);
 		}
+		return identities;
 	}
 
 	/** @return The name of the card. */
@@ -190,7 +428,137 @@ public class Card {
 
 	/** @return The typeline of the card. */
 	public String getType() {
-		return type;
+		return strings.get(typeEntry);
+	}
+
+	/** @return The text inside the text box for the card, in lowercase. */
+	public String getText() {
+		return strings.get(textEntry);
+	}
+
+	/** @return The set code and collector number of this printing, like 'LEA #161'. Empty if they aren't known. */
+	public String getPrinting() {
+		return strings.get(printingEntry);
+	}
+
+	/** @return Keywords associated with the card IE: trample, lifelink, scry, ect. In lowercase. */
+	public List<String> getKeywords() {
+		return splitKeywords(strings.get(keywordsEntry));
+	}
+
+	static List<String> splitKeywords(String joined) {
+		if (joined.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(joined.split(KEYWORD_SEPARATOR));
+	}
+
+	//Pool entries that may be missing read as an empty string, so they can be compared without null checks.
+	private String getEntry(int entry) {
+		return entry >= 0 ? strings.get(entry) : "";
+	}
+
+	/** @return URL for the card's front image on Scryfall, or null if it has none. */
+	public URL getFrontImageUrl() {
+		URL url = frontImageUrl;
+		if (url == null && frontImageEntry >= 0) {
+			url = toUrl(frontImageEntry);
+			frontImageUrl = url;
+		}
+		return url;
+	}
+
+	boolean hasFrontImage() {
+		return frontImageEntry >= 0;
+	}
+
+	/** @return URL for the card's back image on Scryfall, or null if it's single faced. */
+	public URL getBackImageUrl() {
+		URL url = backImageUrl;
+		if (url == null && backImageEntry >= 0) {
+			url = toUrl(backImageEntry);
+			backImageUrl = url;
+		}
+		return url;
+	}
+
+	private URL toUrl(int entry) {
+		try {
+			return new URL(strings.get(entry));
+		} catch (MalformedURLException e) {
+			//Urls get checked when the json is loaded, so this takes a damaged card store.
+			Logger.tag(LogTags.DB_ACTION.tag).error(e, "Invalid image url for '{}'.", name);
+			return null;
+		}
+	}
+
+	/** @return The mana value of the card. */
+	public double getManaValue() {
+		return manaValue;
+	}
+
+	/**
+	 @return The card's power, or loyalty for planeswalkers. The larger of the two faces for double faced cards.
+	 STAT_MISSING if the card has neither, and STAT_VARIABLE for values like '*'. Check hasFixedPowerOrLoyalty() before
+	 treating it as a number.
+	 */
+	public float getPowerOrLoyalty() {
+		return powerOrLoyalty;
+	}
+
+	/** @return Whether or not getPowerOrLoyalty() is a real number, rather than missing or variable. */
+	public boolean hasFixedPowerOrLoyalty() {
+		return hasFixedPowerOrLoyalty;
+	}
+
+	/** @return The card's toughness. Uses the same special values as getPowerOrLoyalty(). */
+	public float getToughness() {
+		return toughness;
+	}
+
+	/** @return Whether or not getToughness() is a real number, rather than missing or variable. */
+	public boolean hasFixedToughness() {
+		return hasFixedToughness;
+	}
+
+	//Power, loyalty, and toughness are strings on Scryfall, since they can be things like '*' or '1+*'.
+	private static float parseStat(String stat) {
+		if (stat.equals("N/A")) {
+			return STAT_MISSING;
+		}
+
+		try {
+			return Float.parseFloat(stat);
+		} catch (NumberFormatException e) {
+			return STAT_VARIABLE;
+		}
+	}
+
+	private static boolean isFixedStat(String stat) {
+		if (stat.equals("N/A")) {
+			return false;
+		}
+
+		try {
+			Float.parseFloat(stat);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	//Double faced cards use whichever face has the larger fixed stat. Variable stats only count if neither face is fixed.
+	private static float combineFaceStats(String front, String back) {
+		boolean frontFixed = isFixedStat(front);
+		boolean backFixed = isFixedStat(back);
+		if (frontFixed && backFixed) {
+			return Float.max(parseStat(front), parseStat(back));
+		} else if (frontFixed || backFixed) {
+			return parseStat(frontFixed ? front : back);
+		} else if (front.equals("N/A") && back.equals("N/A")) {
+			return STAT_MISSING;
+		}
+		return STAT_VARIABLE;
 	}
 
 	/**
@@ -203,56 +571,45 @@ public class Card {
 			case NAME:
 				return name;
 			case TYPE:
-				return type;
+				//Sorting by type compares it over and over, so it shouldn't be decoded each time.
+				return strings.getCached(typeEntry);
 			case MANA:
-				return mana;
+				return new CardField<>(strings, manaEntry, manaValue);
 			case POWER_OR_LOYALTY:
-				return powerOrLoyalty;
+				return new CardField<>(strings, powerOrLoyaltyEntry, powerOrLoyalty);
 			case TOUGHNESS:
-				return toughness;
+				return new CardField<>(strings, toughnessEntry, toughness);
 			case IN_TRUNK:
-				return owned;
+				return new CardField<>(getOwned());
 			case IN_DECK:
-				return inDeck;
+				return new CardField<>(copiesInDeck());
 			default:
 				throw new IllegalArgumentException("Attempted to look up a nonexistent card field.");
 		}
 	}
 
-	/** Sets the number of copies of this card that are owned. */
-	public synchronized void setOwned(int count) {
-		owned = new CardField<>(count);
-		setInDeck(copiesInDeck());
-	}
-
-	public synchronized void addOwned(int count) {
-		owned = new CardField<>((int) owned.data + count);
-		setInDeck(copiesInDeck());
-	}
-
-	public synchronized int getOwned() {
-		return (int) owned.data;
-	}
+	/*
+	 Convenience accessors for the current deck state. Anything that reads more than one of these at a time should grab
+	 a DeckState from CardDatabase.getDeckState() instead, so that it sees a consistent snapshot.
+	 */
 
-	public synchronized int copiesInDeck() {
-		return (int) inDeck.data;
+	/** @return The number of copies of this card that are owned. */
+	public int getOwned() {
+		return CardDatabase.getDeckState().getOwned(this);
 	}
 
-	public synchronized void addToDeck(int count) {
-		setInDeck((int) inDeck.data + count);
+	/** @return The number of copies of this card inside of the deck. */
+	public int copiesInDeck() {
+		return CardDatabase.getDeckState().copiesInDeck(this);
 	}
 
-	public synchronized void setInDeck(int count) {
-		int oldValue = copiesInDeck();
-		inDeck = new CardField<>(Integer.max(Integer.min(count, deckMax()), 0));
-		CardDatabase.updateCardInDeck(this, oldValue);
+	/** @return Whether or not the current active ban list hits this card. */
+	public boolean isBanned() {
+		return CardDatabase.getDeckState().isBanned(this);
 	}
 
-	public synchronized int deckMax() {
-		if (banned) {
-			return 0;
-		}
-
-		return Integer.min(isBasicLand ? Integer.MAX_VALUE : 4, (int) owned.data);
+	/** @return The maximum number of copies of this card that can be placed in the deck. */
+	public int deckMax() {
+		return CardDatabase.getDeckState().deckMax(this);
 	}
 }
@@ -1,55 +1,133 @@
 package database.card;
 
 import application.LogTags;
-import database.image.ImagePrefetchThread;
+import application.UserInterface;
 import database.image.ImageStore;
-import gui.Gui;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
+import org.tinylog.Level;
 import org.tinylog.Logger;
 
 import javax.swing.*;
 import java.io.*;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.ObjIntConsumer;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  Class that handles data for all cards. Any mutations to cards should be done through this. */
 public class CardDatabase {
 	//Some of the tasks here can take a bit. So keep them off of the Swing event thread.
 	private static final ExecutorService databaseWorkerThread = Executors.newSingleThreadExecutor();
+	//Loads images for the selected card. Kept apart from the database worker, so cards can be looked at while it's busy.
+	private static final ExecutorService imageLoaderThread = Executors.newSingleThreadExecutor();
 	//Reference to a card loading event. Used to allow for the thread to be interrupted if something else gets clicked.
 	private static Future<?> cardToLoad;
 	//The previously loaded card image.
-	private Card previousCard;
+	private static Card previousCard;
+	//Where to report progress and problems to the user. Set by initCardDatabase.
+	private static volatile UserInterface ui;
 	//Database instance. Should be initialized via initCardDatabase before anything else happens.
-	private static CardDatabase instance;
+	private static volatile CardDatabase instance;
+	//Goes up every time an update replaces the active card database, so that caches of search results know to start over.
+	private static volatile int databaseVersion = 0;
 	//Latch used to allow for offthreads to safely see if the database is initialized.
 	private static final CountDownLatch databaseLoaded = new CountDownLatch(1);
+	//Cards parsed so far while the json is still loading, so the UI can show them early. Only the first loadedCount
+	//are safe to read, and loadedCount is always written last.
+	private static volatile Card[] loadingCards = new Card[0];
+	private static volatile int loadedCount = 0;
+	//Cards are handed to the UI after the first FIRST_PUBLISH_CHUNK are parsed, and the batches double from there up to
+	//PUBLISH_CHUNK. So something shows up right away, without the table being told about every few cards.
+	private static final int FIRST_PUBLISH_CHUNK = 128;
+	private static final int PUBLISH_CHUNK = 1024;
 
-	//Map of cards sorted by name.
-	private Map<String, Card> cardMap;
+	//Index for looking up cards by name.
+	private CardNameIndex nameIndex;
+	//Indexes for range queries on numeric fields.
+	private RangeIndex manaValueIndex;
+	private RangeIndex powerOrLoyaltyIndex;
+	private RangeIndex toughnessIndex;
+	//Printings of each oracle card.
+	private PrintingGroups printingGroups;
 	//List of cards. The id number on a Card object correponds to this. Try using this over the map when possible.
 	private List<Card> cardDataList;
-	//Set of Card objects representing the user's current deck.
-	private Set<Card> deckList;
-	//The number of cards inside of the current deck.
-	private final AtomicInteger deckSize = new AtomicInteger(0);
+	//The user's current collection, deck, and ban list. Replaced wholesale whenever any of them are edited.
+	private static final AtomicReference<DeckState> deckState = new AtomicReference<>(new DeckState(0));
+	//Deck edits waiting for the database worker to apply them.
+	private static final Queue<Consumer<DeckState.Editor>> pendingEdits = new ConcurrentLinkedQueue<>();
+	//Whether or not the worker already has a task queued up to apply pendingEdits.
+	private static final AtomicBoolean editsScheduled = new AtomicBoolean(false);
+	//Number of bulk deck actions that have been submitted but not yet finished.
+	private static final AtomicInteger bulkEditsInFlight = new AtomicInteger(0);
+	//Saves deckState between sessions. Only used by the database worker.
+	private static DeckStore deckStore;
+	//Folder that the user's collection, deck, and bans get saved to.
+	private static final File STATE_DIRECTORY = new File("userdata");
+	//Memory mapped copy of the card database, shared by every process started from the same folder.
+	private static final File CARD_STORE_FILE = new File("cache", "cards.store");
+	//Card json installed by the last update. Used instead of the embedded carddb.json when it exists.
+	private static final File UPDATED_JSON_FILE = new File("cache", "carddb.json");
+	//Edits touching more cards than this refresh the whole table instead of individual rows.
+	private static final int MAX_ROW_UPDATES = 32;
+	//Checks the user's deck, and decks being validated, against the current format. Replaced by the database worker.
+	private static volatile DeckValidator deckValidator = new DeckValidator(DeckFormat.COLLECTION);
+	//Oracle ids of the cards limited to one copy by the restricted list, or null if there isn't one. Keyed by oracle id
+	//so that every printing of a restricted card is restricted, not just the one its name resolved to. Only used by the
+	//database worker.
+	private static Set<UUID> restrictedCards;
+	//Commander named by the last deck that was imported. Only used by the database worker.
+	private static Card deckCommander;
+	private static final ValidationCache validationCache = new ValidationCache();
+
+	//How long each phase of loading takes, and how long later work on the database takes.
+	private static final Histogram loadTime = Metrics.histogram("db.load.total");
+	private static final Histogram storeOpenTime = Metrics.histogram("db.load.storeOpen");
+	private static final Histogram parseTime = Metrics.histogram("db.load.parse");
+	private static final Histogram storeWriteTime = Metrics.histogram("db.load.storeWrite");
+	private static final Histogram indexTime = Metrics.histogram("db.load.indexes");
+	private static final Histogram restoreTime = Metrics.histogram("db.load.restoreCollection");
+	private static final Histogram updateTime = Metrics.histogram("db.update");
+	private static final Histogram editBatchTime = Metrics.histogram("db.edits.apply");
+	private static final Counter editCount = Metrics.counter("db.edits");
+	private static final Histogram deckCheckTime = Metrics.histogram("deck.check");
+	private static final Histogram validateTime = Metrics.histogram("deck.validate");
+	private static final Counter validateCacheHits = Metrics.counter("deck.validate.cacheHits");
+
+	static {
+		Metrics.gauge("db.cards", CardDatabase::getCardCount);
+		Metrics.gauge("db.oracleCards", () -> isLoaded() ? instance.printingGroups.getGroupCount() : 0);
+	}
 
 	private CardDatabase() {
 	}
 
 	/**
 	 Reads the embedded carddb.json file and populates the card database.
+	 @param userInterface Where to report progress and problems to the user.
 	 */
-	public static void initCardDatabase() {
+	public static void initCardDatabase(UserInterface userInterface) {
+		ui = userInterface;
 		databaseWorkerThread.submit(() -> {
 			Thread.currentThread().setName("Card Database Worker");
 			Logger.tag(LogTags.DB_INIT.tag).info("Initializing card database.");
@@ -58,67 +136,490 @@ public class CardDatabase {
 				return;
 			}
 
-			CardDatabase database = new CardDatabase();
-			InputStream databaseUri = CardDatabase.class.getClassLoader().getResourceAsStream("carddb.json");
-			if (databaseUri == null) {
-				Logger.tag(LogTags.DB_INIT.tag).error("Unable to load card database.");
-				return;
+			ui.setBusyLoading(true);
+			try {
+				URL source = getInstalledJson();
+				if (source == null) {
+					throw new FileNotFoundException("carddb.json is missing from the jar.");
+				}
+				loadCardDatabase(source, STATE_DIRECTORY);
+			} catch (IOException e) {
+				Logger.tag(LogTags.DB_INIT.tag).error(e, "Unable to load card database.");
 			}
+			ui.setBusyLoading(false);
+		});
+	}
+
+	/**
+	 Populates the card database and waits for it to finish loading. Intended for the headless command line.
+	 @param userInterface  Where to report progress and problems to the user.
+	 @param json           File containing a json array of Scryfall card objects, or null for the installed card json.
+	 @param stateDirectory Folder to restore and save the user's collection from, or null to start empty and not save.
+	 @throws IOException If the card database couldn't be read.
+	 */
+	public static void initCardDatabase(UserInterface userInterface, File json, File stateDirectory) throws IOException {
+		ui = userInterface;
+		URL source = json != null ? json.toURI().toURL() : getInstalledJson();
+		if (source == null) {
+			throw new FileNotFoundException("carddb.json is missing from the jar.");
+		}
 
-			Gui.setBusyLoading(true);
-			Logger.tag(LogTags.DB_INIT.tag).info("Loading cards.");
-			database.cardDataList = new ArrayList<>(26042);
-			database.cardMap = new HashMap<>(26042);
-			database.deckList = Collections.synchronizedSet(new HashSet<>(100));
-
-			//Read in json objects for cards one at a time to avoid reading all of the JSON to memory at once.
-			JSONTokener databaseJson = new JSONTokener(databaseUri);
-			databaseJson.next('[');
-			int cardNum = 0;
-			while (databaseJson.skipTo('{') != 0) {
-				try {
-					JSONObject cardJson = new JSONObject(databaseJson);
-					Card card = new Card(cardJson, cardNum);
-					database.cardDataList.add(card);
-					database.cardMap.put(card.getName(), card);
-					cardNum++;
-					Logger.tag(LogTags.DB_INIT.tag).debug(() -> "Loaded card " + card.getName());
-				} catch (JSONException e) {
-					Logger.tag(LogTags.DB_INIT.tag).error(e, "Unable to create card #{}", cardNum);
-					throw new RuntimeException("Unable to create card", e);
-				} catch (MalformedURLException e) {
-					Logger.tag(LogTags.DB_INIT.tag).error(e, "Scryfall reported an invalid URL in card #{}", cardNum);
+		try {
+			databaseWorkerThread.submit(() -> {
+				Thread.currentThread().setName("Card Database Worker");
+				if (instance != null) {
+					throw new IllegalStateException("initCardDatabase called more than once!");
 				}
+				loadCardDatabase(source, stateDirectory);
+				return null;
+			}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading card database.", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to load card database.", e.getCause());
+		}
+	}
+
+	//The json from the last update if there was one, otherwise the embedded carddb.json.
+	private static URL getInstalledJson() throws MalformedURLException {
+		if (UPDATED_JSON_FILE.isFile()) {
+			return UPDATED_JSON_FILE.toURI().toURL();
+		}
+		return CardDatabase.class.getClassLoader().getResource("carddb.json");
+	}
+
+	/**
+	 Loads the card json at source, makes it the active card database, and restores the user's saved collection.
+	 Cards come from the memory mapped card store when it's up to date with the json, and the json only gets parsed
+	 to rebuild the store otherwise. Must only be called once.
+	 @param source         Location of a json array of Scryfall card objects.
+	 @param stateDirectory Folder to restore and save the user's collection from, or null to start empty and not save.
+	 @throws IOException If the json couldn't be read.
+	 */
+	static void loadCardDatabase(URL source, File stateDirectory) throws IOException {
+		long start = System.nanoTime();
+		DatabaseLoadEvent loadEvent = DatabaseLoadEvent.start("total");
+		DatabaseLoadEvent openEvent = DatabaseLoadEvent.start("storeOpen");
+		String sourceKey = CardStore.sourceKey(source);
+		List<Card> storedCards = CardStore.open(CARD_STORE_FILE, sourceKey);
+		storeOpenTime.recordSince(start);
+		openEvent.finish(storedCards == null ? 0 : storedCards.size());
+		CardDatabase database;
+		if (storedCards != null) {
+			database = new CardDatabase();
+			database.cardDataList = storedCards;
+			database.buildIndexes();
+		} else {
+			long parseStart = System.nanoTime();
+			DatabaseLoadEvent parseEvent = DatabaseLoadEvent.start("parse");
+			try (InputStream json = new BufferedInputStream(source.openStream(), 1 << 16)) {
+				//Nothing to show early cards to without a UI.
+				database = parseCards(json, ui != null ? CardDatabase::publishLoadedCards : null);
 			}
+			parseTime.recordSince(parseStart);
+			parseEvent.finish(database.cardDataList.size());
+			long writeStart = System.nanoTime();
+			DatabaseLoadEvent writeEvent = DatabaseLoadEvent.start("storeWrite");
+			CardStore.write(CARD_STORE_FILE, sourceKey, database.cardDataList);
+			storeWriteTime.recordSince(writeStart);
+			writeEvent.finish(database.cardDataList.size());
+		}
+		install(database, stateDirectory);
+		loadTime.recordSince(start);
+		loadEvent.finish(database.cardDataList.size());
+	}
 
-			Logger.tag(LogTags.DB_INIT.tag).info("Loaded {} cards. Updating GUI.", database.cardDataList.size());
-			instance = database;
-			databaseLoaded.countDown();
+	/**
+	 Parses the provided card json, makes it the active card database, and restores the user's saved collection.
+	 Doesn't touch the card store. Must only be called once.
+	 @param json           Stream containing a json array of Scryfall card objects.
+	 @param stateDirectory Folder to restore and save the user's collection from, or null to start empty and not save.
+	 */
+	static void loadCardDatabase(InputStream json, File stateDirectory) {
+		install(parseCards(json), stateDirectory);
+	}
 
-			Gui.initializeCardListTable();
-			Gui.setBusyLoading(false);
-		});
+	/**
+	 Hands the cards parsed so far to the UI, before the rest of the database is done loading. Only name lookups and
+	 indexes wait for every card, and deck editing stays off until then, since the saved collection can't be restored
+	 before all of the cards are known.
+	 @param cards   Every card parsed so far, ordered by id.
+	 @param strings Pool covering the cards' strings. Replaced with the finished pool once loading is done.
+	 */
+	private static void publishLoadedCards(List<Card> cards, StringPool strings) {
+		int start = loadedCount;
+		Card[] published = loadingCards;
+		if (published.length < cards.size()) {
+			published = Arrays.copyOf(published, Integer.max(published.length * 2, cards.size()));
+		}
+		for (int id = start; id < cards.size(); id++) {
+			Card card = cards.get(id);
+			card.strings = strings;
+			published[id] = card;
+		}
+		loadingCards = published;
+		//The deck state has to cover every card that can be seen.
+		deckState.set(deckState.get().edit(cards.size()).build());
+		loadedCount = cards.size();
+
+		if (start == 0 && bulkEditsInFlight.getAndIncrement() == 0) {
+			ui.setDeckEditingEnabled(false);
+		}
+		ui.cardsLoaded();
+	}
+
+	private static void install(CardDatabase database, File stateDirectory) {
+		DeckState savedState = null;
+		if (stateDirectory != null) {
+			long start = System.nanoTime();
+			DatabaseLoadEvent event = DatabaseLoadEvent.start("restoreCollection");
+			deckStore = new DeckStore(stateDirectory, database.cardDataList);
+			savedState = deckStore.load();
+			restoreTime.recordSince(start);
+			event.finish(database.cardDataList.size());
+		}
+		List<Card> cards = database.cardDataList;
+		DeckState.Editor editor = (savedState != null ? savedState : new DeckState(cards.size()))
+				.edit(cards.size(), database.printingGroups);
+		if (savedState != null) {
+			//Collections saved before the copy limit covered every printing of a card may have too many copies of one.
+			for (Card card : cards) {
+				editor.setInDeck(card, editor.copiesInDeck(card));
+			}
+		}
+		DeckState state = editor.build();
+		if (savedState != null) {
+			deckStore.save(savedState, state);
+		}
+		deckState.set(state);
+		instance = database;
+		databaseLoaded.countDown();
+
+		if (ui != null) {
+			ui.databaseLoaded();
+			if (loadedCount > 0 && bulkEditsInFlight.decrementAndGet() == 0) {
+				ui.setDeckEditingEnabled(true);
+			}
+			if (savedState != null) {
+				ui.deckStateChanged(state, null);
+				ui.deckCardsChanged(state.getDeckCards());
+			}
+			checkDeck(deckState.get(), null);
+		}
 	}
 
 	/**
-	 Called by card objects when the number of that card inside of the current deck changes.
-	 Used to keep the deck list stuff up to date.
-	 @param card The card being added to/removed from the deck.
-	 @param prev The previous number of copies that card was in the deck prior to this update.
+	 Parses the provided card json into a new database, without making it the active one.
+	 @param json Stream containing a json array of Scryfall card objects.
+	 @return The parsed database.
 	 */
-	public static void updateCardInDeck(Card card, int prev) {
-		//No need to await here, Card objects don't exist if the database has not been initialized.
-		int curr = card.copiesInDeck();
-		if (curr > 0) {
-			instance.deckList.add(card);
-		} else {
-			instance.deckList.remove(card);
+	static CardDatabase parseCards(InputStream json) {
+		return parseCards(json, null);
+	}
+
+	/**
+	 Parses the provided card json into a new database, without making it the active one.
+	 @param json      Stream containing a json array of Scryfall card objects.
+	 @param publisher Called with the cards parsed so far and a pool covering them, after each batch. May be null.
+	 @return The parsed database.
+	 */
+	private static CardDatabase parseCards(InputStream json, BiConsumer<List<Card>, StringPool> publisher) {
+		Logger.tag(LogTags.DB_INIT.tag).info("Loading cards.");
+		CardDatabase database = new CardDatabase();
+		StringPool.Builder strings = new StringPool.Builder();
+		int[] nextId = {0};
+		database.cardDataList = readCards(json, strings, new IdAssigner() {
+			@Override
+			public int assign(UUID scryfallId) {
+				return nextId[0]++;
+			}
+
+			@Override
+			public void release(UUID scryfallId, int id) {
+				nextId[0]--;
+			}
+		}, publisher);
+
+		StringPool pool = strings.build();
+		for (Card card : database.cardDataList) {
+			card.strings = pool;
+		}
+		Logger.tag(LogTags.DB_INIT.tag).info("Loaded {} cards, sharing {} distinct strings in {} bytes.",
+				database.cardDataList.size(), pool.size(), pool.byteSize());
+		database.buildIndexes();
+		return database;
+	}
+
+	/**
+	 Reads every card out of json, in the order they're listed. The cards don't have a string pool yet.
+	 @param json    Stream containing a json array of Scryfall card objects.
+	 @param strings Pool to add the cards' strings to.
+	 @param ids       Picks the id for each card.
+	 @param publisher Called with the cards read so far and a snapshot of the pool after each batch. May be null.
+	 @return The cards.
+	 */
+	private static List<Card> readCards(InputStream json, StringPool.Builder strings, IdAssigner ids,
+			BiConsumer<List<Card>, StringPool> publisher) {
+		List<Card> cards = new ArrayList<>(26042);
+		int nextPublish = FIRST_PUBLISH_CHUNK;
+
+		//Read in json objects for cards one at a time to avoid reading all of the JSON to memory at once.
+		JSONTokener databaseJson = new JSONTokener(json);
+		databaseJson.next('[');
+		while (databaseJson.skipTo('{') != 0) {
+			UUID scryfallId = null;
+			int cardNum = -1;
+			try {
+				JSONObject cardJson = new JSONObject(databaseJson);
+				scryfallId = Card.getScryfallId(cardJson);
+				cardNum = ids.assign(scryfallId);
+				Card card = new Card(cardJson, cardNum, strings);
+				cards.add(card);
+				if (LogTags.DB_INIT.isEnabled(Level.DEBUG)) {
+					Logger.tag(LogTags.DB_INIT.tag).debug("Loaded card {}", card.getName());
+				}
+				if (publisher != null && cards.size() == nextPublish) {
+					publisher.accept(cards, strings.snapshot());
+					nextPublish += Integer.min(nextPublish, PUBLISH_CHUNK);
+				}
+			} catch (JSONException e) {
+				Logger.tag(LogTags.DB_INIT.tag).error(e, "Unable to create card #{}", cards.size());
+				throw new RuntimeException("Unable to create card", e);
+			} catch (MalformedURLException e) {
+				Logger.tag(LogTags.DB_INIT.tag).error(e, "Scryfall reported an invalid URL in card #{}", cards.size());
+				ids.release(scryfallId, cardNum);
+			}
+		}
+		return cards;
+	}
+
+	/**
+	 Works out how a newer card json differs from a database, by Scryfall id, and builds the database it describes.
+	 Cards that are still around keep their ids, new cards are given ids after the existing ones, and cards that are
+	 gone are left in place as removed cards. So ids from the old database still point at the same cards in the new one.
+	 @param current The database being updated.
+	 @param json    Stream containing a json array of Scryfall card objects.
+	 @return The new database, and a summary of what changed.
+	 */
+	static Update updateCards(CardDatabase current, InputStream json) {
+		List<Card> oldCards = current.cardDataList;
+		Map<UUID, Integer> unclaimedIds = new HashMap<>(oldCards.size() * 2);
+		for (Card card : oldCards) {
+			unclaimedIds.putIfAbsent(card.getScryfallId(), card.id);
+		}
+
+		int[] nextId = {oldCards.size()};
+		StringPool.Builder strings = new StringPool.Builder();
+		List<Card> parsed = readCards(json, strings, new IdAssigner() {
+			@Override
+			public int assign(UUID scryfallId) {
+				Integer id = unclaimedIds.remove(scryfallId);
+				return id != null ? id : nextId[0]++;
+			}
+
+			@Override
+			public void release(UUID scryfallId, int id) {
+				if (id < oldCards.size()) {
+					unclaimedIds.put(scryfallId, id);
+				} else {
+					nextId[0]--;
+				}
+			}
+		}, null);
+
+		Update update = new Update();
+		Card[] merged = new Card[nextId[0]];
+		for (Card card : parsed) {
+			merged[card.id] = card;
+		}
+		for (int id = 0; id < oldCards.size(); id++) {
+			if (merged[id] == null) {
+				Card removed = oldCards.get(id);
+				merged[id] = new Card(removed, strings);
+				if (!removed.isRemoved) {
+					update.removed++;
+				}
+			}
+		}
+
+		StringPool pool = strings.build();
+		for (Card card : merged) {
+			card.strings = pool;
+		}
+		for (Card card : parsed) {
+			if (card.id >= oldCards.size()) {
+				update.added++;
+			} else if (card.hasSameContents(oldCards.get(card.id))) {
+				update.unchanged++;
+			} else {
+				update.changed++;
+			}
+		}
+
+		update.database = new CardDatabase();
+		update.database.cardDataList = new ArrayList<>(Arrays.asList(merged));
+		update.database.buildIndexes();
+		return update;
+	}
+
+	private void buildIndexes() {
+		long start = System.nanoTime();
+		DatabaseLoadEvent event = DatabaseLoadEvent.start("indexes");
+		nameIndex = new CardNameIndex(cardDataList);
+		manaValueIndex = new RangeIndex(cardDataList, (card) -> !card.isRemoved, Card::getManaValue);
+		powerOrLoyaltyIndex = new RangeIndex(cardDataList, (card) -> !card.isRemoved && card.hasFixedPowerOrLoyalty(), Card::getPowerOrLoyalty);
+		toughnessIndex = new RangeIndex(cardDataList, (card) -> !card.isRemoved && card.hasFixedToughness(), Card::getToughness);
+		printingGroups = new PrintingGroups(cardDataList);
+		indexTime.recordSince(start);
+		event.finish(cardDataList.size());
+	}
+
+	//Hands out card ids while reading card json.
+	private interface IdAssigner {
+		int assign(UUID scryfallId);
+
+		//Gives back an id for a card that turned out to be unreadable.
+		void release(UUID scryfallId, int id);
+	}
+
+	/** Result of updating the card database. */
+	static final class Update {
+		CardDatabase database;
+		int added = 0;
+		int removed = 0;
+		int changed = 0;
+		int unchanged = 0;
+
+		@Override
+		public String toString() {
+			return added + " added, " + removed + " removed, " + changed + " changed, " + unchanged + " unchanged";
 		}
+	}
+
+	/** @return Every card in this database, ordered by id. */
+	List<Card> getCards() {
+		return Collections.unmodifiableList(cardDataList);
+	}
+
+	/** @return Index for looking up this database's cards by name. */
+	CardNameIndex getNameIndex() {
+		return nameIndex;
+	}
+
+	/**
+	 @return The current snapshot of the user's collection, deck, and ban list. Never changes once returned, so
+	 readers that need several values to agree with each other should hold onto one snapshot rather than re-reading.
+	 */
+	public static DeckState getDeckState() {
+		return deckState.get();
+	}
+
+	/**
+	 Queues up an edit to the deck state. Edits are applied in the order they are submitted by the database worker,
+	 which batches everything that has piled up into a single new DeckState. Never blocks.
+	 @param edit The changes to make. Must not have side effects beyond the editor, since it runs on the worker.
+	 */
+	private static void submitEdit(Consumer<DeckState.Editor> edit) {
+		pendingEdits.add(edit);
+		if (editsScheduled.compareAndSet(false, true)) {
+			databaseWorkerThread.submit(CardDatabase::applyPendingEdits);
+		}
+	}
+
+	/**
+	 Applies every queued edit to a private copy of the current deck state, publishes the result, and lets the UI know
+	 once that is done. Must only be called from the database worker, which is the only thread allowed to publish.
+	 */
+	private static void applyPendingEdits() {
+		editsScheduled.set(false);
+		Consumer<DeckState.Editor> edit = pendingEdits.poll();
+		if (edit == null) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		DeckEditEvent event = new DeckEditEvent();
+		event.begin();
+		DeckState prev = deckState.get();
+		DeckState.Editor editor = prev.edit();
+		int batchSize = 0;
+		while (edit != null) {
+			edit.accept(editor);
+			batchSize++;
+			edit = pendingEdits.poll();
+		}
+		DeckState next = editor.build();
+		deckState.set(next);
+		if (deckStore != null) {
+			deckStore.save(prev, next);
+		}
+		Logger.tag(LogTags.DB_ACTION.tag).debug("Applied batch of {} deck edits.", batchSize);
+		editBatchTime.recordSince(start);
+		editCount.add(batchSize);
+		event.end();
+		if (event.shouldCommit()) {
+			event.edits = batchSize;
+			event.deckSize = next.getDeckSize();
+			event.saved = deckStore != null;
+			event.commit();
+		}
+
+		int[] changedCards = next.changedCards(prev, MAX_ROW_UPDATES);
+		ui.deckStateChanged(next, changedCards);
+		if (next.deckCardsDiffer(prev)) {
+			ui.deckCardsChanged(next.getDeckCards());
+		}
+		checkDeck(next, changedCards);
+	}
+
+	/**
+	 Checks the user's deck against the format again, and lets the UI know if the problems with it changed. Must only be
+	 called from the database worker.
+	 @param deck         The current deck state.
+	 @param changedCards Ids of the cards that changed since the last check, or null to check everything.
+	 */
+	private static void checkDeck(DeckState deck, int[] changedCards) {
+		long start = System.nanoTime();
+		if (deckValidator.update(deck, instance.printingGroups, deckCommander, changedCards)) {
+			ui.deckProblemsChanged(deckValidator.getProblems());
+		}
+		deckCheckTime.recordSince(start);
+	}
 
-		Gui.setDeckSize(instance.deckSize.addAndGet(curr - prev));
-		//TODO: Make UI interface with database for adding/removing cards rather than directly interacting with cards.
-		//Will enable more efficient handling of deck prefetching.
-		ImagePrefetchThread.setDeckPrefetchList(instance.deckList);
+	/** @return The format that the deck and validated decks are checked against. */
+	public static DeckFormat getDeckFormat() {
+		return deckValidator.getFormat();
+	}
+
+	/**
+	 Switches the format that the deck and validated decks are checked against. The restricted list, if there is one,
+	 carries over to the new format.
+	 @param format The new format.
+	 */
+	public static void setDeckFormat(DeckFormat format) {
+		databaseWorkerThread.submit(() -> {
+			Logger.tag(LogTags.DB_ACTION.tag).info("Checking decks against {}.", format);
+			deckValidator = new DeckValidator(format.withRestricted(restrictedCards));
+			checkDeck(deckState.get(), null);
+		});
+	}
+
+	/**
+	 Replaces the restricted list with the cards in the provided file. Restricted cards are limited to one copy each.
+	 @param file The list of restricted cards.
+	 */
+	public static void readRestrictedList(File file) {
+		editDeck(() -> {
+			DecFileParser.CardCounts restricted = instance.readDecFile(file);
+			Set<UUID> oracleIds = new HashSet<>();
+			for (int id : restricted.listedIds()) {
+				oracleIds.add(instance.cardDataList.get(id).getOracleId());
+			}
+			restrictedCards = oracleIds;
+			deckValidator = new DeckValidator(deckValidator.getFormat().withRestricted(oracleIds));
+			checkDeck(deckState.get(), null);
+		});
 	}
 
 	/**
@@ -130,52 +631,99 @@ public class CardDatabase {
 	 @param card Card to load image(s) for.
 	 */
 	public static synchronized void loadAndDisplayImage(Card card) {
-		try {
-			databaseLoaded.await();
-		} catch (InterruptedException e) {
-			Logger.tag(LogTags.DB_ACTION.tag).error("Database not yet initialized. Thread waiting on it was interrupted.");
-			throw new RuntimeException(e);
-		}
-
-		if (card == instance.previousCard) {
+		if (card == previousCard) {
 			return;
 		}
-		instance.previousCard = card;
+		previousCard = card;
 
 		//Stop the previous request, since it's no longer relevant.
 		if (cardToLoad != null && !cardToLoad.isDone()) {
 			cardToLoad.cancel(true);
 		}
-		Gui.setSelectedCard(card, null, null);
+		ui.setSelectedCard(card, null, null);
 
-		cardToLoad = databaseWorkerThread.submit(() -> {
+		cardToLoad = imageLoaderThread.submit(() -> {
 			try {
 				Logger.tag(LogTags.DB_ACTION.tag).info("Requesting images for '{}'.", card.getName());
-				Gui.setBusyLoading(true);
+				ui.setBusyLoading(true);
 				ImageIcon front = null;
 				ImageIcon back = null;
-				if (card.frontImageUrl != null) {
-					front = ImageStore.getCardImage(card.frontImageUrl);
+				if (card.getFrontImageUrl() != null) {
+					front = ImageStore.getCardImage(card.getFrontImageUrl());
 				}
-				if (card.backImageUrl != null) {
-					back = ImageStore.getCardImage(card.backImageUrl);
+				if (card.getBackImageUrl() != null) {
+					back = ImageStore.getCardImage(card.getBackImageUrl());
 				}
-				Gui.setSelectedCard(card, front, back);
+				ui.setSelectedCard(card, front, back);
 			} catch (InterruptedException e) {
 				Logger.tag(LogTags.DB_ACTION.tag).info("Image loading interrupted.");
 			} finally {
-				Gui.setBusyLoading(false);
+				ui.setBusyLoading(false);
 			}
 		});
 	}
 
 	/**
-	 Helper method that applies the relevant wrapping for deck related ations to be run on its own thread with the
-	 proper UI synchronization.
-	 @param action The action being performed to edit the deck.
+	 Blocks until every deck action and edit submitted so far has been applied.
+	 @throws InterruptedException If the calling thread was interrupted while waiting.
+	 */
+	public static void awaitIdle() throws InterruptedException {
+		try {
+			//The worker runs tasks in order, and every action queues its follow up work ahead of this.
+			databaseWorkerThread.submit(() -> {
+			}).get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Empty task failed.", e);
+		}
+	}
+
+	/**
+	 Finishes every pending action, flushes the saved collection to disk, and stops the database worker.
+	 Nothing else may be done with the database afterwards.
+	 @throws InterruptedException If the calling thread was interrupted while waiting.
+	 */
+	public static void shutdown() throws InterruptedException {
+		databaseWorkerThread.submit(() -> {
+			if (deckStore != null) {
+				deckStore.close();
+			}
+		});
+		databaseWorkerThread.shutdown();
+		imageLoaderThread.shutdownNow();
+		databaseWorkerThread.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+	}
+
+	/**
+	 Helper method for bulk deck related actions (imports, clears, exports). Deck editing is disabled in the UI while
+	 they are in flight, and re-enabled once the last one has finished and its edits have been applied. Doesn't wait on
+	 the UI at any point.
+	 @param action The action being performed to edit the deck. Runs on the database worker.
 	 */
 	private static void editDeck(Runnable action) {
-		databaseWorkerThread.submit(() -> Gui.editDeck(action));
+		if (bulkEditsInFlight.getAndIncrement() == 0) {
+			ui.setDeckEditingEnabled(false);
+		}
+
+		databaseWorkerThread.submit(() -> {
+			try {
+				action.run();
+			} finally {
+				//Apply anything the action queued up right away, so later tasks on the worker see the results.
+				applyPendingEdits();
+				if (bulkEditsInFlight.decrementAndGet() == 0) {
+					ui.setDeckEditingEnabled(true);
+				}
+			}
+		});
+	}
+
+	/**
+	 Adds or removes copies of a card from the deck. The number of copies is clamped to what the collection allows.
+	 @param card  The card to add or remove.
+	 @param count The number of copies to add, negative to remove.
+	 */
+	public static void addToDeck(Card card, int count) {
+		submitEdit((editor) -> editor.addToDeck(card, count));
 	}
 
 	/**
@@ -184,10 +732,12 @@ public class CardDatabase {
 	public static void clearDeck() {
 		editDeck(() -> {
 			Logger.tag(LogTags.DB_ACTION.tag).info("Clearing deck.");
-			for (Card card : instance.cardDataList) {
-				card.setInDeck(0);
-			}
-			//ImagePrefetchThread.setDeckPrefetchList(instance.deckList);
+			deckCommander = null;
+			submitEdit((editor) -> {
+				for (Card card : instance.cardDataList) {
+					editor.setInDeck(card, 0);
+				}
+			});
 		});
 	}
 
@@ -197,9 +747,11 @@ public class CardDatabase {
 	public static void clearCollection() {
 		editDeck(() -> {
 			Logger.tag(LogTags.DB_ACTION.tag).info("Clearing collection.");
-			for (Card card : instance.cardDataList) {
-				card.setOwned(0);
-			}
+			submitEdit((editor) -> {
+				for (Card card : instance.cardDataList) {
+					editor.setOwned(card, 0);
+				}
+			});
 		});
 	}
 
@@ -211,14 +763,17 @@ public class CardDatabase {
 		File[] files = file.isDirectory() ? file.listFiles((f) -> f.getName().endsWith(".dec")) : new File[]{file};
 		if (files == null || files.length == 0) {
 			Logger.tag(LogTags.DB_ACTION.tag).warn("No .dec files found inside of '{}'.", file.getAbsolutePath());
-			JOptionPane.showMessageDialog(Gui.getFrame(), "No .dec files found inside of selected folder.");
+			ui.showMessage("No .dec files found inside of selected folder.");
 			return;
 		}
 
 		editDeck(() -> {
-			for (File f : files) {
-				instance.readDecFile(f, Card::addOwned);
-			}
+			DecFileParser.CardCounts collection = DecFileParser.parseAll(files, instance.nameIndex, instance.cardDataList.size());
+			submitEdit((editor) -> {
+				for (int id : collection.listedIds()) {
+					editor.addOwned(instance.cardDataList.get(id), collection.get(id));
+				}
+			});
 		});
 	}
 
@@ -228,13 +783,11 @@ public class CardDatabase {
 	 */
 	public static synchronized void readBans(File file) {
 		editDeck(() -> {
-			for (Card card : instance.cardDataList) {
-				card.banned = false;
-			}
-
-			instance.readDecFile(file, (card, count) -> {
-				card.banned = true;
-				card.setInDeck(0);
+			DecFileParser.CardCounts bans = instance.readDecFile(file);
+			submitEdit((editor) -> {
+				for (Card card : instance.cardDataList) {
+					editor.setBanned(card, bans.isListed(card.id));
+				}
 			});
 		});
 	}
@@ -245,8 +798,15 @@ public class CardDatabase {
 	 */
 	public static synchronized void readDeck(File file) {
 		editDeck(() -> {
-			instance.readDecFile(file, Card::addToDeck);
-			//ImagePrefetchThread.setDeckPrefetchList(instance.deckList);
+			DecFileParser.CardCounts deck = instance.readDecFile(file);
+			if (deck.getCommanderId() >= 0) {
+				deckCommander = instance.cardDataList.get(deck.getCommanderId());
+			}
+			submitEdit((editor) -> {
+				for (int id : deck.listedIds()) {
+					editor.addToDeck(instance.cardDataList.get(id), deck.get(id));
+				}
+			});
 		});
 	}
 
@@ -256,20 +816,25 @@ public class CardDatabase {
 	 */
 	public static synchronized void saveDeck(File file) {
 		editDeck(() -> {
-			if (instance.deckSize.get() == 0) {
+			DeckState deck = deckState.get();
+			if (deck.getDeckSize() == 0) {
 				Logger.tag(LogTags.DB_ACTION.tag).info("User attempted to save an empty deck.");
-				JOptionPane.showMessageDialog(Gui.getFrame(), "Your deck is currently empty.");
+				ui.showMessage("Your deck is currently empty.");
 				return;
 			}
 
 			try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-				writer.write("// Deck with " + instance.deckSize + " cards - " + Calendar.getInstance().getTime());
+				writer.write("// Deck with " + deck.getDeckSize() + " cards - " + Calendar.getInstance().getTime());
 				writer.newLine();
-				for (Card card : instance.deckList) {
-					writer.write(card.copiesInDeck() + " " + card.getName());
+				if (deckCommander != null) {
+					writer.write("// Commander: " + deckCommander.getName());
 					writer.newLine();
 				}
-				Gui.setBusyLoading(false);
+				for (Card card : deck.getDeckCards()) {
+					writer.write(deck.copiesInDeck(card) + " " + card.getName());
+					writer.newLine();
+				}
+				ui.setBusyLoading(false);
 			} catch (IOException e) {
 				Logger.tag(LogTags.DB_ACTION.tag).error("Unable to write deck to {}", file.getAbsolutePath());
 			}
@@ -282,11 +847,12 @@ public class CardDatabase {
 	 */
 	public static void saveDeckImage(File file) {
 		editDeck(() -> {
-			if (instance.deckSize.get() <= 0) {
+			DeckState deck = deckState.get();
+			if (deck.getDeckSize() <= 0) {
 				Logger.tag(LogTags.DB_ACTION.tag).info("User attempted to save an empty deck.");
-				JOptionPane.showMessageDialog(Gui.getFrame(), "Your deck is currently empty.");
+				ui.showMessage("Your deck is currently empty.");
 			} else {
-				ImageStore.writeDeckImage(instance.deckList, instance.deckSize.get(), file);
+				ImageStore.writeDeckImage(deck, file);
 			}
 		});
 	}
@@ -297,52 +863,208 @@ public class CardDatabase {
 	public static void fillCollection() {
 		editDeck(() -> {
 			Logger.tag(LogTags.DB_ACTION.tag).info("Filling collection.");
-			for (Card card : instance.cardDataList) {
-				card.setOwned(99);
-			}
+			submitEdit((editor) -> {
+				for (Card card : instance.cardDataList) {
+					editor.setOwned(card, 99);
+				}
+			});
 		});
 	}
 
 	/**
-	 Parses the provided .dec file and executes the desired action based on whatever cards are found + the
-	 quantity of that card.
-	 @param file   The file being read.
-	 @param action Action to perform for every card.
-	 */
-	private void readDecFile(File file, ObjIntConsumer<Card> action) {
-		Logger.tag(LogTags.DB_ACTION.tag).info("Reading collection file at '{}'.", file.getAbsolutePath());
-		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-			long lineNum = 0;
-			String line;
-
-			while ((line = reader.readLine()) != null) {
-				try {
-					lineNum++;
-					if (!line.isEmpty() && !line.startsWith("//")) {
-						int count = Integer.parseInt(line.substring(0, line.indexOf(' ')));
-						String name = line.substring(line.indexOf(' ')).trim();
-						Card card = instance.cardMap.get(name);
-						if (card != null) {
-							action.accept(card, count);
-						} else {
-							Logger.tag(LogTags.DB_ACTION.tag).error("Unable to find card named {} in database!", name);
-						}
-					}
-				} catch (NumberFormatException e) {
-					Logger.tag(LogTags.DB_ACTION.tag).error(e, "Unable to read number of cards in line {} or {}", lineNum, file.getName());
-				}
+	 Updates the card database from a newer Scryfall bulk file, without losing the user's collection, deck, or ban list.
+	 Cards are matched up by Scryfall id, and keep their ids. The file gets installed as the card database used from
+	 then on, in place of the embedded one.
+	 @param json File containing a json array of Scryfall card objects.
+	 @return Finishes with a summary of what changed, once the new database is active.
+	 */
+	public static Future<String> updateCardDatabase(File json) {
+		CompletableFuture<String> result = new CompletableFuture<>();
+		editDeck(() -> {
+			try {
+				result.complete(installUpdate(json));
+			} catch (IOException | RuntimeException e) {
+				Logger.tag(LogTags.DB_ACTION.tag).error(e, "Unable to update card database from '{}'.", json.getAbsolutePath());
+				ui.showMessage("Unable to update the card database.");
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	//Runs on the database worker.
+	private static String installUpdate(File json) throws IOException {
+		long start = System.nanoTime();
+		DatabaseLoadEvent event = DatabaseLoadEvent.start("update");
+		//Edits that were queued up before the update should be applied to the cards they were made against.
+		applyPendingEdits();
+
+		File installed = UPDATED_JSON_FILE.getAbsoluteFile();
+		if (!json.getCanonicalFile().equals(installed.getCanonicalFile())) {
+			File parent = installed.getParentFile();
+			if (!parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Unable to create directory " + parent.getAbsolutePath());
 			}
+			File tempFile = new File(parent, installed.getName() + ".tmp");
+			Files.copy(json.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempFile.toPath(), installed.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		URL source = installed.toURI().toURL();
+		Update update;
+		try (InputStream in = new BufferedInputStream(source.openStream(), 1 << 16)) {
+			update = updateCards(instance, in);
+		}
+		List<Card> cards = update.database.cardDataList;
+
+		//Removed cards can't stay in the deck, and changed cards may allow a different number of copies.
+		DeckState prev = deckState.get();
+		DeckState.Editor editor = prev.edit(cards.size(), update.database.printingGroups);
+		for (Card card : cards) {
+			editor.setInDeck(card, editor.copiesInDeck(card));
+		}
+		editor.recountStats(cards);
+		DeckState next = editor.build();
+		if (deckCommander != null) {
+			deckCommander = cards.get(deckCommander.id);
+		}
+
+		//The new state goes first, so anything that sees the new cards also sees a state big enough to cover them.
+		deckState.set(next);
+		instance = update.database;
+		databaseVersion++;
+		if (deckStore != null) {
+			deckStore.cardsChanged(cards);
+			deckStore.save(prev, next);
+		}
+		CardStore.write(CARD_STORE_FILE, CardStore.sourceKey(source), cards);
+		Logger.tag(LogTags.DB_ACTION.tag).info("Updated card database from '{}': {}.", json.getAbsolutePath(), update);
+
+		ui.databaseUpdated();
+		ui.deckStateChanged(next, null);
+		if (next.deckCardsDiffer(prev)) {
+			ui.deckCardsChanged(next.getDeckCards());
+		}
+		checkDeck(next, null);
+		updateTime.recordSince(start);
+		event.finish(cards.size());
+		return update.toString();
+	}
+
+	/** @return A number that goes up whenever the card database is updated. */
+	public static int getDatabaseVersion() {
+		return databaseVersion;
+	}
+
+	/**
+	 Checks whether a deck is legal in the current format and can be built out of the current collection and ban list,
+	 without touching the current deck. Safe to call from several threads at once, so many decks can be validated in
+	 parallel.
+	 @param file The .dec file containing the deck.
+	 @return A description of every problem with the deck. Empty if the deck is valid.
+	 */
+	public static List<String> validateDeck(File file) {
+		ByteBuffer contents;
+		try {
+			contents = DecFileParser.read(file);
 		} catch (IOException e) {
 			Logger.tag(LogTags.DB_ACTION.tag).error(e, "Error while reading file {}.", file.getName());
+			return Collections.singletonList("unable to read file: " + e.getMessage());
+		}
+		return validateDeck(file.getName(), contents);
+	}
+
+	/**
+	 Checks whether a deck is legal in the current format and can be built out of the current collection and ban list,
+	 without touching the current deck. Safe to call from several threads at once.
+	 @param deckName Name of the deck, for logging.
+	 @param contents The contents of a .dec file, from index 0 up to its limit.
+	 @return A description of every problem with the deck. Empty if the deck is valid.
+	 */
+	public static List<String> validateDeck(String deckName, ByteBuffer contents) {
+		awaitDatabase();
+		long start = System.nanoTime();
+		//Version first, so an update partway through can't get results from the new cards cached under the old version.
+		int version = databaseVersion;
+		CardDatabase database = instance;
+		DeckState collection = deckState.get();
+		DeckValidator validator = deckValidator;
+		ValidationCache.Key key = ValidationCache.key(contents, validator.getFormat(), collection, version);
+		List<String> problems = validationCache.get(key);
+		if (problems != null) {
+			validateCacheHits.increment();
+			return problems;
+		}
+
+		DecFileParser.CardCounts deck = DecFileParser.parse(contents, deckName, database.nameIndex, database.cardDataList.size());
+		problems = Collections.unmodifiableList(validator.check(collection, deck, database.cardDataList, database.printingGroups));
+		if (databaseVersion == version) {
+			validationCache.put(key, problems);
+		}
+		validateTime.recordSince(start);
+		return problems;
+	}
+
+	/**
+	 Returns the range index for a numeric field. Waits for the database to load.
+	 @param field Card.MANA, Card.POWER_OR_LOYALTY, or Card.TOUGHNESS.
+	 @return The index for that field.
+	 */
+	public static RangeIndex getRangeIndex(int field) {
+		awaitDatabase();
+		switch (field) {
+			case Card.MANA:
+				return instance.manaValueIndex;
+			case Card.POWER_OR_LOYALTY:
+				return instance.powerOrLoyaltyIndex;
+			case Card.TOUGHNESS:
+				return instance.toughnessIndex;
+			default:
+				throw new IllegalArgumentException("Card field " + field + " isn't numeric.");
 		}
 	}
 
 	/**
-	 Returns a Card corresponding to the desired id number.
+	 Looks up a card by name. Names that don't match exactly are resolved the same way as names inside of .dec files.
+	 @param name The name of the card.
+	 @return The matching card, or null if nothing is close enough.
+	 */
+	public static Card findCard(String name) {
+		awaitDatabase();
+		return instance.nameIndex.resolve(name);
+	}
+
+	private static void awaitDatabase() {
+		try {
+			databaseLoaded.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting on the card database.", e);
+		}
+	}
+
+	/**
+	 Parses the provided .dec file and returns whatever cards are found + the quantity of that card.
+	 Cards listed more than once have their counts summed.
+	 @param file The file being read.
+	 @return The cards inside of the file.
+	 */
+	private DecFileParser.CardCounts readDecFile(File file) {
+		return DecFileParser.parse(file, nameIndex, cardDataList.size());
+	}
+
+	/**
+	 Returns a Card corresponding to the desired id number. Waits for the database to load, unless the card is one that
+	 has already been handed out by getCardCount().
 	 @param index The id number of the card.
 	 @return The related Card object.
 	 */
 	public static Card getCard(int index) {
+		if (databaseLoaded.getCount() > 0 && index < loadedCount) {
+			//Cards that have already been parsed can be handed out before the rest are done.
+			return loadingCards[index];
+		}
+
 		try {
 			databaseLoaded.await();
 		} catch (InterruptedException e) {
@@ -354,13 +1076,26 @@ public class CardDatabase {
 	}
 
 	/**
-	 @return The total number of cards.
+	 @return The total number of cards. While the database is still loading, the number that can be looked at so far.
 	 */
 	public static int getCardCount() {
 		if (databaseLoaded.getCount() > 0) {
-			return 0;
+			return loadedCount;
 		}
 
 		return instance.cardDataList.size();
 	}
+
+	/**
+	 @return The printings of each oracle card in the current database, or null if the database is still loading. A new
+	 one is built whenever the database is updated.
+	 */
+	public static PrintingGroups getPrintingGroups() {
+		return isLoaded() ? instance.printingGroups : null;
+	}
+
+	/** @return Whether or not every card has been loaded, so that indexes and name lookups won't wait. */
+	public static boolean isLoaded() {
+		return databaseLoaded.getCount() == 0;
+	}
 }
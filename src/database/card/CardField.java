@@ -2,20 +2,37 @@ package database.card;
 
 class CardField<T> implements Comparable<T> {
 	public final Comparable<T> data; //Value to use for table sorting.
-	public final String string; //String to display in the table.
+	private String string; //String to display in the table.
+	//Where to decode the string from, if it's only needed for display. Sorting never needs it.
+	private final StringPool strings;
+	private final int entry;
 
 	public CardField (Comparable<T> data) {
 		this.data = data;
 		string = data.toString();
+		strings = null;
+		entry = -1;
 	}
 
-	public CardField (String string, Comparable<T> data) {
+	//For fields that show something other than the value they sort by.
+	public CardField (Comparable<T> data, String string) {
 		this.data = data;
 		this.string = string;
+		strings = null;
+		entry = -1;
+	}
+
+	public CardField (StringPool strings, int entry, Comparable<T> data) {
+		this.data = data;
+		this.strings = strings;
+		this.entry = entry;
 	}
 
 	@Override
 	public String toString() {
+		if (string == null) {
+			string = strings.get(entry);
+		}
 		return string;
 	}
 
@@ -0,0 +1,336 @@
+package database.card;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ Prebuilt, read-only hash table from card names to cards. Keyed on the UTF-8 bytes of each name, so names can be
+ looked up straight out of a file buffer without decoding them into Strings first.
+ Uses open addressing with linear probing. The table is at most half full, so misses end quickly.
+ Names that don't match exactly can be passed to resolve(), which falls back on normalized and fuzzy matching. */
+final class CardNameIndex {
+	private final byte[][] keys;
+	private final int[] hashes;
+	private final Card[] cards;
+	private final int mask;
+	private final List<Card> cardList;
+	//Normalized lookups are only needed when something fails to match, so they're built on first use.
+	private volatile FuzzyIndex fuzzyIndex;
+
+	/**
+	 Builds the index. If multiple cards share a name, the one that comes last in the list wins.
+	 @param cardList The cards to index.
+	 */
+	CardNameIndex(List<Card> cardList) {
+		int capacity = Integer.highestOneBit(Integer.max(cardList.size(), 1) * 2 - 1) << 1;
+		keys = new byte[capacity][];
+		hashes = new int[capacity];
+		cards = new Card[capacity];
+		mask = capacity - 1;
+		this.cardList = cardList;
+
+		for (Card card : cardList) {
+			if (card.isRemoved) {
+				continue;
+			}
+			byte[] key = card.getName().getBytes(StandardCharsets.UTF_8);
+			int hash = hash(ByteBuffer.wrap(key), 0, key.length);
+			int slot = hash & mask;
+			while (keys[slot] != null && !(hashes[slot] == hash && matches(keys[slot], ByteBuffer.wrap(key), 0, key.length))) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			hashes[slot] = hash;
+			cards[slot] = card;
+		}
+	}
+
+	/**
+	 Looks up a card by the UTF-8 encoded name stored in part of a buffer. Uses absolute reads, so the buffer's
+	 position is left alone.
+	 @param buffer The buffer containing the name.
+	 @param offset Index of the first byte of the name.
+	 @param length Length of the name in bytes.
+	 @return The card with that exact name, or null if there isn't one.
+	 */
+	Card find(ByteBuffer buffer, int offset, int length) {
+		int hash = hash(buffer, offset, length);
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && matches(keys[slot], buffer, offset, length)) {
+				return cards[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 @param name The exact name of the card.
+	 @return The card with that name, or null if there isn't one.
+	 */
+	Card find(String name) {
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		return find(ByteBuffer.wrap(key), 0, key.length);
+	}
+
+	/**
+	 Resolves a name that may not match a card exactly. Tries an exact match, then a match ignoring case, diacritics
+	 and split card separators, then the front face of split/double faced cards, and finally the closest name within
+	 a small edit distance.
+	 @param name The name to look up.
+	 @return The best matching card, or null if nothing is close enough.
+	 */
+	Card resolve(String name) {
+		Card card = find(name);
+		if (card != null) {
+			return card;
+		}
+
+		FuzzyIndex fuzzy = fuzzyIndex;
+		if (fuzzy == null) {
+			synchronized (this) {
+				fuzzy = fuzzyIndex;
+				if (fuzzy == null) {
+					fuzzy = new FuzzyIndex(cardList);
+					fuzzyIndex = fuzzy;
+				}
+			}
+		}
+		return fuzzy.resolve(normalize(name));
+	}
+
+	/**
+	 Normalizes a name for loose matching: lower case, no diacritics or ligatures, collapsed whitespace, and split card
+	 halves separated by a plain "//".
+	 */
+	static String normalize(String name) {
+		//Only bother with unicode normalization when there's something outside of ASCII to normalize.
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) > 0x7F) {
+				name = Normalizer.normalize(name, Normalizer.Form.NFD).replace("\u00c6", "AE").replace("\u00e6", "ae");
+				break;
+			}
+		}
+
+		StringBuilder normalized = new StringBuilder(name.length());
+		boolean pendingSpace = false;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (Character.getType(c) == Character.NON_SPACING_MARK) {
+				continue;
+			} else if (Character.isWhitespace(c)) {
+				pendingSpace = normalized.length() > 0;
+			} else if (c == '/') {
+				//Split cards are written as "Fire // Ice", "Fire / Ice", or "Fire/Ice" depending on the source.
+				int end = normalized.length();
+				if (end < 2 || normalized.charAt(end - 1) != '/' || normalized.charAt(end - 2) != '/') {
+					normalized.append("//");
+				}
+				pendingSpace = false;
+			} else {
+				if (pendingSpace && normalized.charAt(normalized.length() - 1) != '/') {
+					normalized.append(' ');
+				}
+				pendingSpace = false;
+				normalized.append(Character.toLowerCase(c));
+			}
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 Normalized name lookups, plus a SymSpell style index for edit distance searches. Every normalized name is indexed
+	 under itself and every variant with one character deleted. A query looks up the same variants of itself, which
+	 finds every name within one edit (and most transpositions and double typos) without scanning the whole list.
+	 Variants are stored by 64-bit hash rather than as Strings, so the index stays a few flat arrays. */
+	private static final class FuzzyIndex {
+		private static final long HASH_BASE = 0x100000001B3L;
+
+		private final Map<String, Card> normalizedNames;
+		private final String[] names;
+		private final Card[] nameCards;
+		//Open addressing table from variant hash to the first entry of a chain of names sharing that variant.
+		private final long[] variantHashes;
+		private final int[] chainHeads;
+		private final int tableMask;
+		private final int[] chainNames;
+		private final int[] chainNext;
+
+		private FuzzyIndex(List<Card> cardList) {
+			normalizedNames = new HashMap<>(cardList.size() * 2);
+			for (Card card : cardList) {
+				if (card.isRemoved) {
+					continue;
+				}
+				normalizedNames.put(normalize(card.getName()), card);
+			}
+
+			//Front faces go in afterwards, so that they never shadow a real card with the same name.
+			Map<String, Card> frontFaces = new HashMap<>();
+			for (Map.Entry<String, Card> entry : normalizedNames.entrySet()) {
+				int separator = entry.getKey().indexOf("//");
+				if (separator > 0) {
+					frontFaces.putIfAbsent(entry.getKey().substring(0, separator), entry.getValue());
+				}
+			}
+			frontFaces.forEach(normalizedNames::putIfAbsent);
+
+			names = new String[normalizedNames.size()];
+			nameCards = new Card[names.length];
+			int variantCount = 0;
+			int n = 0;
+			for (Map.Entry<String, Card> entry : normalizedNames.entrySet()) {
+				names[n] = entry.getKey();
+				nameCards[n] = entry.getValue();
+				variantCount += entry.getKey().length() + 1;
+				n++;
+			}
+
+			int capacity = Integer.highestOneBit(Integer.max(variantCount, 1) * 2 - 1) << 1;
+			variantHashes = new long[capacity];
+			chainHeads = new int[capacity];
+			Arrays.fill(chainHeads, -1);
+			tableMask = capacity - 1;
+			chainNames = new int[variantCount];
+			chainNext = new int[variantCount];
+
+			int chainSize = 0;
+			for (int name = 0; name < names.length; name++) {
+				for (long hash : variants(names[name])) {
+					int slot = findSlot(hash);
+					//Deleting either letter of a double letter gives the same variant. Only index it once.
+					if (chainHeads[slot] != -1 && chainNames[chainHeads[slot]] == name) {
+						continue;
+					}
+					variantHashes[slot] = hash;
+					chainNames[chainSize] = name;
+					chainNext[chainSize] = chainHeads[slot];
+					chainHeads[slot] = chainSize++;
+				}
+			}
+		}
+
+		private Card resolve(String normalized) {
+			Card card = normalizedNames.get(normalized);
+			if (card != null) {
+				return card;
+			}
+
+			//Allow one typo in short names and two in longer ones. Anything under 4 letters is too ambiguous.
+			int maxDistance = normalized.length() < 4 ? 0 : normalized.length() < 10 ? 1 : 2;
+			if (maxDistance == 0) {
+				return null;
+			}
+
+			int bestDistance = maxDistance + 1;
+			Card best = null;
+			for (long hash : variants(normalized)) {
+				for (int chain = chainHeads[findSlot(hash)]; chain != -1; chain = chainNext[chain]) {
+					String candidate = names[chainNames[chain]];
+					if (Math.abs(candidate.length() - normalized.length()) < bestDistance) {
+						int distance = editDistance(normalized, candidate);
+						if (distance < bestDistance) {
+							bestDistance = distance;
+							best = nameCards[chainNames[chain]];
+						}
+					}
+				}
+			}
+			return best;
+		}
+
+		private int findSlot(long hash) {
+			int slot = (int) (hash ^ (hash >>> 32)) & tableMask;
+			while (chainHeads[slot] != -1 && variantHashes[slot] != hash) {
+				slot = (slot + 1) & tableMask;
+			}
+			return slot;
+		}
+
+		/**
+		 Hashes the string, followed by the string with each character deleted. Uses a polynomial hash, so every
+		 deletion can be hashed in constant time from prefix and suffix hashes.
+		 */
+		private static long[] variants(String s) {
+			int length = s.length();
+			long[] prefix = new long[length + 1];
+			for (int i = 0; i < length; i++) {
+				prefix[i + 1] = prefix[i] * HASH_BASE + s.charAt(i);
+			}
+			long[] suffix = new long[length + 1];
+			long power = 1;
+			long[] powers = new long[length + 1];
+			for (int i = length - 1; i >= 0; i--) {
+				powers[length - 1 - i] = power;
+				suffix[i] = suffix[i + 1] + s.charAt(i) * power;
+				power *= HASH_BASE;
+			}
+			powers[length] = power;
+
+			long[] hashes = new long[length + 1];
+			hashes[0] = prefix[length];
+			for (int i = 0; i < length; i++) {
+				//Hash of s with character i removed: prefix shifted over by the suffix length, plus the suffix.
+				hashes[i + 1] = prefix[i] * powers[length - 1 - i] + suffix[i + 1];
+			}
+			return hashes;
+		}
+	}
+
+	//Optimal string alignment distance. Levenshtein, plus swapping two adjacent characters counts as one edit.
+	private static int editDistance(String a, String b) {
+		int[] prevPrev = new int[b.length() + 1];
+		int[] prev = new int[b.length() + 1];
+		int[] row = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			prev[j] = j;
+		}
+
+		for (int i = 1; i <= a.length(); i++) {
+			row[0] = i;
+			char ca = a.charAt(i - 1);
+			for (int j = 1; j <= b.length(); j++) {
+				char cb = b.charAt(j - 1);
+				int cost = Integer.min(Integer.min(row[j - 1], prev[j]) + 1, prev[j - 1] + (ca == cb ? 0 : 1));
+				if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+					cost = Integer.min(cost, prevPrev[j - 2] + 1);
+				}
+				row[j] = cost;
+			}
+			int[] recycled = prevPrev;
+			prevPrev = prev;
+			prev = row;
+			row = recycled;
+		}
+		return prev[b.length()];
+	}
+
+	//FNV-1a, followed by a final mix so that linear probing doesn't cluster on similar names.
+	private static int hash(ByteBuffer buffer, int offset, int length) {
+		int hash = 0x811C9DC5;
+		for (int i = offset; i < offset + length; i++) {
+			hash ^= buffer.get(i) & 0xFF;
+			hash *= 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean matches(byte[] key, ByteBuffer buffer, int offset, int length) {
+		if (key.length != length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (key[i] != buffer.get(offset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,171 @@
+package database.card;
+
+import application.LogTags;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ Read-only binary copy of the card database, so that later startups can skip parsing json. The file is memory mapped
+ rather than read, so the string heap holding card text never lands on the Java heap, and every process that opens the
+ same file shares one copy of it through the OS page cache.
+
+ Layout, big endian: a header, a table of fixed size card records, the string heap's entry offsets, and then the
+ string heap itself. The header includes a key describing the json the file was built from, so a changed card
+ database is noticed and the file is rebuilt. */
+final class CardStore {
+	private static final int MAGIC = 0x4D544343; //"MTCC"
+	private static final int VERSION = 5;
+	//Sections are aligned so the int offsets never straddle a page boundary.
+	private static final int ALIGNMENT = 8;
+
+	private CardStore() {
+	}
+
+	/**
+	 Describes a card json source well enough to notice when it changes.
+	 @param source Location of the json.
+	 @return A key to store alongside the cards.
+	 @throws IOException If the source can't be reached.
+	 */
+	static String sourceKey(URL source) throws IOException {
+		URLConnection connection = source.openConnection();
+		try {
+			return source + "|" + connection.getContentLengthLong() + "|" + connection.getLastModified();
+		} finally {
+			connection.getInputStream().close();
+		}
+	}
+
+	/**
+	 Maps a previously written store.
+	 @param file      The store file.
+	 @param sourceKey Key for the json the cards should have come from.
+	 @return The cards, backed by the mapped file, or null if the file is missing, out of date, or unreadable.
+	 */
+	static List<Card> open(File file, String sourceKey) {
+		if (!file.isFile()) {
+			return null;
+		}
+
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			Logger.tag(LogTags.DB_INIT.tag).warn(e, "Unable to map card store {}.", file);
+			return null;
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				Logger.tag(LogTags.DB_INIT.tag).info("Card store {} is from a different version. Rebuilding it.", file);
+				return null;
+			}
+			byte[] key = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(key);
+			if (!sourceKey.equals(new String(key, StandardCharsets.UTF_8))) {
+				Logger.tag(LogTags.DB_INIT.tag).info("Card store {} is out of date. Rebuilding it.", file);
+				return null;
+			}
+			int cardCount = buffer.getInt();
+			int stringCount = buffer.getInt();
+			int byteCount = buffer.getInt();
+
+			int recordStart = align(buffer.position());
+			int offsetStart = recordStart + cardCount * Card.RECORD_SIZE;
+			int byteStart = offsetStart + (stringCount + 1) * Integer.BYTES;
+			IntBuffer offsets = section(buffer, offsetStart, (stringCount + 1) * Integer.BYTES).asIntBuffer();
+			StringPool strings = new StringPool(section(buffer, byteStart, byteCount), offsets);
+
+			ByteBuffer records = section(buffer, recordStart, cardCount * Card.RECORD_SIZE);
+			List<Card> cards = new ArrayList<>(cardCount);
+			for (int id = 0; id < cardCount; id++) {
+				cards.add(new Card(id, strings, records));
+			}
+			Logger.tag(LogTags.DB_INIT.tag).info("Mapped {} cards from {}.", cardCount, file);
+			return cards;
+		} catch (RuntimeException e) {
+			//Covers truncated files too, since reading past the end of the buffer throws.
+			Logger.tag(LogTags.DB_INIT.tag).warn(e, "Card store {} is corrupt. Rebuilding it.", file);
+			return null;
+		}
+	}
+
+	/**
+	 Writes cards to a new store, replacing any existing one. Failures are logged, since the store is only a cache.
+	 @param file      The store file.
+	 @param sourceKey Key for the json the cards came from.
+	 @param cards     The cards, ordered by id.
+	 */
+	static void write(File file, String sourceKey, List<Card> cards) {
+		StringPool.Builder pool = new StringPool.Builder();
+		ByteBuffer records = ByteBuffer.allocate(cards.size() * Card.RECORD_SIZE);
+		for (Card card : cards) {
+			card.writeRecord(records, pool);
+		}
+		StringPool strings = pool.build();
+
+		byte[] key = sourceKey.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer header = ByteBuffer.allocate(align(4 + 4 + 2 + key.length + 4 + 4 + 4));
+		header.putInt(MAGIC)
+				.putInt(VERSION)
+				.putShort((short) key.length)
+				.put(key)
+				.putInt(cards.size())
+				.putInt(strings.size())
+				.putInt(strings.byteSize());
+		header.position(0);
+		records.flip();
+		ByteBuffer offsets = ByteBuffer.allocate((strings.size() + 1) * Integer.BYTES);
+		offsets.asIntBuffer().put(strings.getOffsets());
+		ByteBuffer bytes = strings.getBytes();
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		File tempFile = new File(parent, file.getName() + ".tmp");
+		try {
+			if (!parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Unable to create " + parent);
+			}
+			try (RandomAccessFile out = new RandomAccessFile(tempFile, "rw"); FileChannel channel = out.getChannel()) {
+				out.setLength(0);
+				ByteBuffer[] sections = {header, records, offsets, bytes};
+				for (ByteBuffer section : sections) {
+					while (section.hasRemaining()) {
+						channel.write(section);
+					}
+				}
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Logger.tag(LogTags.DB_INIT.tag).info("Saved {} cards to {}.", cards.size(), file);
+		} catch (IOException e) {
+			//Another process may still have the old file mapped, which some platforms won't replace.
+			Logger.tag(LogTags.DB_INIT.tag).warn(e, "Unable to save card store {}.", file);
+			//noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+		}
+	}
+
+	private static ByteBuffer section(ByteBuffer buffer, int start, int length) {
+		ByteBuffer section = buffer.duplicate();
+		section.limit(start + length).position(start);
+		return section.slice();
+	}
+
+	private static int align(int position) {
+		return (position + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+}
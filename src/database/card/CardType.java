@@ -0,0 +1,44 @@
+package database.card;
+
+/** Card types that deck statistics are broken down by. A card can have several, like an artifact creature. */
+public enum CardType {
+	CREATURE("Creature"),
+	LAND("Land"),
+	ARTIFACT("Artifact"),
+	ENCHANTMENT("Enchantment"),
+	PLANESWALKER("Planeswalker"),
+	BATTLE("Battle"),
+	INSTANT("Instant"),
+	SORCERY("Sorcery");
+
+	public final String niceName;
+
+	CardType(String niceName) {
+		this.niceName = niceName;
+	}
+
+	public String toString() {
+		return niceName;
+	}
+
+	/**
+	 Works out which types are on a type line. Subtypes are ignored, and double faced cards have the types of both faces.
+	 @param typeLine A type line, like 'Artifact Creature — Golem'.
+	 @return A bitmask of the ordinals of every type on the line.
+	 */
+	static int parse(String typeLine) {
+		int types = 0;
+		for (String face : typeLine.split(" // ")) {
+			int subtypes = face.indexOf('—');
+			String cardTypes = subtypes >= 0 ? face.substring(0, subtypes) : face;
+			for (String word : cardTypes.split(" ")) {
+				for (CardType type : values()) {
+					if (word.equals(type.niceName)) {
+						types |= 1 << type.ordinal();
+					}
+				}
+			}
+		}
+		return types;
+	}
+}
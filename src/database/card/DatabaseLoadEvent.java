@@ -0,0 +1,37 @@
+package database.card;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight recorder event covering one phase of loading or updating the card database. */
+@Name("mtgdeckbuddy.DatabaseLoad")
+@Label("Card Database Load")
+@Category({"MtgDeckBuddy", "Database"})
+final class DatabaseLoadEvent extends Event {
+	@Label("Phase")
+	@Description("storeOpen, parse, storeWrite, indexes, restoreCollection, update, or total for the whole load.")
+	String phase;
+
+	@Label("Card Count")
+	int cardCount;
+
+	/** @return A new event for the phase, with its clock started. */
+	static DatabaseLoadEvent start(String phase) {
+		DatabaseLoadEvent event = new DatabaseLoadEvent();
+		event.phase = phase;
+		event.begin();
+		return event;
+	}
+
+	/** Ends the phase and records it, if the recording wants it. */
+	void finish(int cardCount) {
+		end();
+		if (shouldCommit()) {
+			this.cardCount = cardCount;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package database.card;
+
+import application.LogTags;
+import org.tinylog.Level;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ Parser for .dec files. Works on the raw bytes of the file, only creating Strings for lines that can't be resolved to
+ a card. Each line is either empty, a comment starting with "//", or a count followed by a space and a card name.
+ A comment like "// Commander: name" names the deck's commander. */
+final class DecFileParser {
+	//Files larger than this get memory mapped rather than copied onto the heap.
+	private static final long MAP_THRESHOLD = 1 << 20;
+	//Max number of unresolved or corrected lines to list when logging a file's errors.
+	private static final int MAX_LOGGED_ERRORS = 10;
+	private static final byte[] COMMANDER_PREFIX = "Commander:".getBytes(StandardCharsets.UTF_8);
+
+	private DecFileParser() {
+	}
+
+	/**
+	 Card counts read out of one or more .dec files, indexed by Card.id. */
+	static final class CardCounts {
+		private final int[] counts;
+		private final BitSet listed;
+		private List<String> errors = Collections.emptyList();
+		private int errorCount = 0;
+		private int commanderId = -1;
+
+		CardCounts(int cardCount) {
+			counts = new int[cardCount];
+			listed = new BitSet(cardCount);
+		}
+
+		/** @return The total number of copies listed for the card. */
+		int get(int id) {
+			return counts[id];
+		}
+
+		/** @return Whether or not the card was listed at all, even with a count of 0. */
+		boolean isListed(int id) {
+			return listed.get(id);
+		}
+
+		/** @return Ids of every listed card, in ascending order. */
+		int[] listedIds() {
+			return listed.stream().toArray();
+		}
+
+		/** @return Id of the commander named in the file, or -1 if it didn't name one. */
+		int getCommanderId() {
+			return commanderId;
+		}
+
+		/** @return Descriptions of the first few lines that couldn't be read. */
+		List<String> getErrors() {
+			return errors;
+		}
+
+		/** @return The number of lines that couldn't be read, including ones not listed in getErrors(). */
+		int getErrorCount() {
+			return errorCount;
+		}
+
+		private void add(int id, int count) {
+			counts[id] += count;
+			listed.set(id);
+		}
+
+		/** Adds the counts from another set of files into this one. */
+		void merge(CardCounts other) {
+			for (int id = other.listed.nextSetBit(0); id >= 0; id = other.listed.nextSetBit(id + 1)) {
+				add(id, other.counts[id]);
+			}
+			if (other.errorCount > 0) {
+				errors = new ArrayList<>(errors);
+				errors.addAll(other.errors);
+				errorCount += other.errorCount;
+			}
+		}
+	}
+
+	/**
+	 Parses several files in parallel and sums up their contents.
+	 @param files     The files to read.
+	 @param index     Name index to resolve cards with.
+	 @param cardCount The number of cards in the database.
+	 @return The merged counts for every file.
+	 */
+	static CardCounts parseAll(File[] files, CardNameIndex index, int cardCount) {
+		return Arrays.stream(files).parallel()
+				.map((file) -> parse(file, index, cardCount))
+				.reduce((a, b) -> {
+					a.merge(b);
+					return a;
+				})
+				.orElseGet(() -> new CardCounts(cardCount));
+	}
+
+	/**
+	 Parses a single .dec file. Lines that can't be read are collected and logged once for the whole file.
+	 @param file      The file to read.
+	 @param index     Name index to resolve cards with.
+	 @param cardCount The number of cards in the database.
+	 @return The counts for every card in the file.
+	 */
+	static CardCounts parse(File file, CardNameIndex index, int cardCount) {
+		Logger.tag(LogTags.DB_ACTION.tag).info("Reading collection file at '{}'.", file.getAbsolutePath());
+		ByteBuffer buffer;
+		try {
+			buffer = read(file);
+		} catch (IOException e) {
+			Logger.tag(LogTags.DB_ACTION.tag).error(e, "Error while reading file {}.", file.getName());
+			return new CardCounts(cardCount);
+		}
+		return parse(buffer, file.getName(), index, cardCount);
+	}
+
+	/**
+	 Parses the contents of a .dec file that's already in memory.
+	 @param buffer    The contents of the file, from index 0 up to its limit. Only read with absolute gets.
+	 @param name      Name of the file, for logging.
+	 @param index     Name index to resolve cards with.
+	 @param cardCount The number of cards in the database.
+	 @return The counts for every card in the file.
+	 */
+	static CardCounts parse(ByteBuffer buffer, String name, CardNameIndex index, int cardCount) {
+		CardCounts result = new CardCounts(cardCount);
+		List<String> errors = new ArrayList<>(0);
+		int errorCount = 0;
+		List<String> corrections = new ArrayList<>(0);
+		int correctionCount = 0;
+		//Corrections are only ever logged, so there's no point describing them if nobody will see it.
+		boolean logCorrections = LogTags.DB_ACTION.isEnabled(Level.INFO);
+
+		int end = buffer.limit();
+		int pos = 0;
+		//Skip the UTF-8 byte order mark that some editors like to add.
+		if (end >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+			pos = 3;
+		}
+
+		long lineNum = 0;
+		while (pos < end) {
+			lineNum++;
+			int lineStart = pos;
+			int lineEnd = pos;
+			while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			pos = lineEnd + 1;
+
+			//Trim trailing whitespace, including the \r from windows line endings.
+			while (lineEnd > lineStart && isWhitespace(buffer.get(lineEnd - 1))) {
+				lineEnd--;
+			}
+			if (lineEnd == lineStart) {
+				continue;
+			} else if (lineEnd - lineStart >= 2 && buffer.get(lineStart) == '/' && buffer.get(lineStart + 1) == '/') {
+				int nameStart = commanderName(buffer, lineStart + 2, lineEnd);
+				if (nameStart >= 0) {
+					Card commander = index.find(buffer, nameStart, lineEnd - nameStart);
+					if (commander == null) {
+						commander = index.resolve(decode(buffer, nameStart, lineEnd));
+					}
+					if (commander != null) {
+						result.commanderId = commander.id;
+					} else if (errorCount++ < MAX_LOGGED_ERRORS) {
+						errors.add("line " + lineNum + ": unknown commander '" + decode(buffer, nameStart, lineEnd) + "'");
+					}
+				}
+				continue;
+			}
+
+			int count = 0;
+			int nameStart = lineStart;
+			while (nameStart < lineEnd && buffer.get(nameStart) >= '0' && buffer.get(nameStart) <= '9' && count <= 100_000_000) {
+				count = count * 10 + (buffer.get(nameStart) - '0');
+				nameStart++;
+			}
+			if (nameStart == lineStart || nameStart == lineEnd || buffer.get(nameStart) != ' ') {
+				if (errorCount++ < MAX_LOGGED_ERRORS) {
+					errors.add("line " + lineNum + ": unable to read number of cards");
+				}
+				continue;
+			}
+
+			while (nameStart < lineEnd && isWhitespace(buffer.get(nameStart))) {
+				nameStart++;
+			}
+			Card card = index.find(buffer, nameStart, lineEnd - nameStart);
+			if (card == null) {
+				//Slow path. Only taken for names that aren't written exactly as they are in the database.
+				String cardName = decode(buffer, nameStart, lineEnd);
+				card = index.resolve(cardName);
+				if (card == null) {
+					if (errorCount++ < MAX_LOGGED_ERRORS) {
+						errors.add("line " + lineNum + ": unknown card '" + cardName + "'");
+					}
+					continue;
+				} else if (correctionCount++ < MAX_LOGGED_ERRORS && logCorrections) {
+					corrections.add("line " + lineNum + ": '" + cardName + "' -> '" + card.getName() + "'");
+				}
+			}
+			result.add(card.id, count);
+		}
+
+		if (correctionCount > 0) {
+			int finalCorrectionCount = correctionCount;
+			Logger.tag(LogTags.DB_ACTION.tag).info(() -> "Matched " + finalCorrectionCount + " inexact name(s) in " + name + ":\n"
+					+ String.join("\n", corrections) + (finalCorrectionCount > corrections.size() ? "\n..." : ""));
+		}
+		if (errorCount > 0) {
+			result.errors = errors;
+			result.errorCount = errorCount;
+			int finalErrorCount = errorCount;
+			Logger.tag(LogTags.DB_ACTION.tag).error(() -> "Unable to read " + finalErrorCount + " line(s) of " + name + ":\n"
+					+ String.join("\n", errors) + (finalErrorCount > errors.size() ? "\n..." : ""));
+		}
+		return result;
+	}
+
+	//Start of the name in a "// Commander: name" comment, or -1 if the comment is anything else.
+	private static int commanderName(ByteBuffer buffer, int pos, int end) {
+		while (pos < end && isWhitespace(buffer.get(pos))) {
+			pos++;
+		}
+		if (end - pos < COMMANDER_PREFIX.length) {
+			return -1;
+		}
+		for (byte b : COMMANDER_PREFIX) {
+			if (buffer.get(pos++) != b) {
+				return -1;
+			}
+		}
+		while (pos < end && isWhitespace(buffer.get(pos))) {
+			pos++;
+		}
+		return pos < end ? pos : -1;
+	}
+
+	/**
+	 Reads a whole file, memory mapping it if it's large.
+	 @return The contents of the file, from index 0 up to the limit.
+	 */
+	static ByteBuffer read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to be a deck.");
+			} else if (size >= MAP_THRESHOLD) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				//Keep reading until full.
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	private static String decode(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			bytes[i - start] = buffer.get(i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,21 @@
+package database.card;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight recorder event covering one batch of deck and collection edits being applied and saved. */
+@Name("mtgdeckbuddy.DeckEditBatch")
+@Label("Deck Edit Batch")
+@Category({"MtgDeckBuddy", "Database"})
+final class DeckEditEvent extends Event {
+	@Label("Edits")
+	int edits;
+
+	@Label("Deck Size")
+	int deckSize;
+
+	@Label("Saved")
+	boolean saved;
+}
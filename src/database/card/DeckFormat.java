@@ -0,0 +1,85 @@
+package database.card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A named set of rules that decks are checked against, plus an optional list of cards restricted to one copy. */
+public final class DeckFormat {
+	//Source of version numbers, so cached results from one format are never mistaken for another's.
+	private static final AtomicLong versions = new AtomicLong();
+
+	/** Only what the collection and ban list allow. */
+	public static final DeckFormat COLLECTION = new DeckFormat("collection", DeckRules.collection());
+	/** The collection's limits, with at least 60 cards. */
+	public static final DeckFormat CONSTRUCTED = new DeckFormat("constructed", DeckRules.collection(), DeckRules.deckSize(60, Integer.MAX_VALUE));
+	/** Exactly 100 cards, one of each, all within the commander's colors. */
+	public static final DeckFormat COMMANDER = new DeckFormat("commander", DeckRules.collection(), DeckRules.copyLimit(1),
+			DeckRules.deckSize(100, 100), DeckRules.hasCommander(), DeckRules.commanderColors());
+	private static final List<DeckFormat> BUILT_IN = Collections.unmodifiableList(Arrays.asList(COLLECTION, CONSTRUCTED, COMMANDER));
+
+	/** Name of the format, like commander. */
+	public final String name;
+	//Identifies this exact set of rules, for caching results.
+	final long version;
+	private final List<DeckRule> baseRules;
+	private final List<DeckRule> rules;
+	//Oracle ids of the cards limited to one copy, or null if there's no restricted list.
+	private final Set<UUID> restricted;
+
+	private DeckFormat(String name, DeckRule... rules) {
+		this(name, Arrays.asList(rules), null);
+	}
+
+	private DeckFormat(String name, List<DeckRule> baseRules, Set<UUID> restricted) {
+		this.name = name;
+		this.baseRules = baseRules;
+		this.restricted = restricted;
+		List<DeckRule> allRules = new ArrayList<>(baseRules);
+		if (restricted != null) {
+			allRules.add(DeckRules.restricted(restricted));
+		}
+		rules = Collections.unmodifiableList(allRules);
+		version = versions.incrementAndGet();
+	}
+
+	/** @return Every format that comes with MtgDeckBuddy. */
+	public static List<DeckFormat> getBuiltIn() {
+		return BUILT_IN;
+	}
+
+	/** @return The built in format with this name, or null if there isn't one. */
+	public static DeckFormat named(String name) {
+		for (DeckFormat format : BUILT_IN) {
+			if (format.name.equalsIgnoreCase(name)) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	/** @return Every rule in the format, including the restricted list. */
+	public List<DeckRule> getRules() {
+		return rules;
+	}
+
+	/**
+	 @param restricted Oracle ids of the cards limited to one copy, or null for none. Must not be changed afterwards.
+	 @return This format, with the restricted list in place of any it already had.
+	 */
+	DeckFormat withRestricted(Set<UUID> restricted) {
+		if (restricted == this.restricted) {
+			return this;
+		}
+		return new DeckFormat(name, baseRules, restricted);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,44 @@
+package database.card;
+
+import java.util.Set;
+
+/**
+ One rule a deck has to follow to be legal in a format, like a copy limit or a minimum deck size. Rules say which
+ parts of the deck they look at, so that when the deck changes, only the rules that could have a different answer get
+ checked again. Rules must not keep any state, since the same rule gets used by several threads at once. */
+public interface DeckRule {
+	/** Parts of a deck that a rule's answer can depend on. */
+	enum Input {
+		/**
+		 The copies, owned count, and ban of a single card. Rules that depend on this are checked card by card, and
+		 only for the cards that change.
+		 */
+		CARD,
+		/** The total number of cards in the deck. */
+		DECK_SIZE,
+		/** The deck's commander. */
+		COMMANDER
+	}
+
+	/** @return The parts of the deck this rule's answer depends on. */
+	Set<Input> getInputs();
+
+	/**
+	 Checks a single card. Only called for rules that depend on CARD, and only for cards with copies in the deck.
+	 @param deck The deck being checked.
+	 @param card The card to check.
+	 @return A description of the problem with the card, or null if there isn't one.
+	 */
+	default String checkCard(DeckView deck, Card card) {
+		return null;
+	}
+
+	/**
+	 Checks the deck as a whole. Only called for rules that don't depend on CARD.
+	 @param deck The deck being checked.
+	 @return A description of the problem with the deck, or null if there isn't one.
+	 */
+	default String checkDeck(DeckView deck) {
+		return null;
+	}
+}
@@ -0,0 +1,163 @@
+package database.card;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/** The rules that formats are built out of. */
+public final class DeckRules {
+	private static final Set<DeckRule.Input> CARD = Collections.unmodifiableSet(EnumSet.of(DeckRule.Input.CARD));
+	private static final Set<DeckRule.Input> DECK_SIZE = Collections.unmodifiableSet(EnumSet.of(DeckRule.Input.DECK_SIZE));
+	private static final Set<DeckRule.Input> COMMANDER = Collections.unmodifiableSet(EnumSet.of(DeckRule.Input.COMMANDER));
+	private static final Set<DeckRule.Input> CARD_AND_COMMANDER =
+			Collections.unmodifiableSet(EnumSet.of(DeckRule.Input.CARD, DeckRule.Input.COMMANDER));
+
+	private DeckRules() {
+	}
+
+	/**
+	 @return Rule that a deck can only use the copies the collection and ban list allow: no banned cards, no more of a
+	 printing than are owned, and no more than 4 of anything other than basic lands, over every printing of it.
+	 */
+	public static DeckRule collection() {
+		return new DeckRule() {
+			@Override
+			public Set<Input> getInputs() {
+				return CARD;
+			}
+
+			@Override
+			public String checkCard(DeckView deck, Card card) {
+				DeckState collection = deck.getCollection();
+				int printingCopies = deck.printingCopies(card);
+				if (collection.isBanned(card)) {
+					return printingCopies + " " + printingName(card) + ": banned";
+				} else if (printingCopies > collection.getOwned(card)) {
+					return printingCopies + " " + printingName(card) + ": only " + collection.getOwned(card) + " owned";
+				}
+				int copies = deck.copies(card);
+				if (copies <= DeckState.COPY_LIMIT || card.isBasicLand) {
+					return null;
+				}
+				return copies + " " + card.getName() + ": only " + DeckState.COPY_LIMIT + " allowed";
+			}
+		};
+	}
+
+	/**
+	 @param max The most copies of a card the deck can have. 1 for singleton formats.
+	 @return Rule that limits copies of every card other than basic lands.
+	 */
+	public static DeckRule copyLimit(int max) {
+		return new DeckRule() {
+			@Override
+			public Set<Input> getInputs() {
+				return CARD;
+			}
+
+			@Override
+			public String checkCard(DeckView deck, Card card) {
+				int copies = deck.copies(card);
+				if (copies <= max || card.isBasicLand) {
+					return null;
+				}
+				return copies + " " + card.getName() + ": limited to " + max + (max == 1 ? " copy" : " copies");
+			}
+		};
+	}
+
+	/**
+	 @param restricted Oracle ids of the restricted cards, so every printing is restricted. Must not be changed afterwards.
+	 @return Rule that the deck can have at most one copy of each restricted card.
+	 */
+	static DeckRule restricted(Set<UUID> restricted) {
+		return new DeckRule() {
+			@Override
+			public Set<Input> getInputs() {
+				return CARD;
+			}
+
+			@Override
+			public String checkCard(DeckView deck, Card card) {
+				int copies = deck.copies(card);
+				if (copies <= 1 || !restricted.contains(card.getOracleId())) {
+					return null;
+				}
+				return copies + " " + card.getName() + ": restricted to 1 copy";
+			}
+		};
+	}
+
+	/**
+	 @param min The fewest cards the deck can have.
+	 @param max The most cards the deck can have. Integer.MAX_VALUE for no limit.
+	 @return Rule that the deck's size has to be within the bounds.
+	 */
+	public static DeckRule deckSize(int min, int max) {
+		return new DeckRule() {
+			@Override
+			public Set<Input> getInputs() {
+				return DECK_SIZE;
+			}
+
+			@Override
+			public String checkDeck(DeckView deck) {
+				int size = deck.getDeckSize();
+				if (size >= min && size <= max) {
+					return null;
+				} else if (min == max) {
+					return "deck has " + size + " cards, needs exactly " + min;
+				} else if (size < min) {
+					return "deck has " + size + " cards, needs at least " + min;
+				}
+				return "deck has " + size + " cards, can have at most " + max;
+			}
+		};
+	}
+
+	/** @return Rule that the deck has to name a commander, with a '// Commander: name' line. */
+	public static DeckRule hasCommander() {
+		return new DeckRule() {
+			@Override
+			public Set<Input> getInputs() {
+				return COMMANDER;
+			}
+
+			@Override
+			public String checkDeck(DeckView deck) {
+				return deck.getCommander() == null ? "no commander, add a line like '// Commander: <name>'" : null;
+			}
+		};
+	}
+
+	/** @return Rule that every card has to be within the commander's color identity. Passes if there's no commander. */
+	public static DeckRule commanderColors() {
+		return new DeckRule() {
+			@Override
+			public Set<Input> getInputs() {
+				return CARD_AND_COMMANDER;
+			}
+
+			@Override
+			public String checkCard(DeckView deck, Card card) {
+				Card commander = deck.getCommander();
+				if (commander == null) {
+					return null;
+				}
+				for (CardColor color : card.colorIdentity) {
+					if (color != CardColor.COLORLESS && !commander.colorIdentity.contains(color)) {
+						return deck.copies(card) + " " + card.getName() + ": " + color + " is outside of "
+								+ commander.getName() + "'s colors";
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	//Owned counts and bans are per printing, so problems with them say which printing.
+	private static String printingName(Card card) {
+		return card.getPrinting().isEmpty() ? card.getName() : card.getName() + " (" + card.getPrinting() + ")";
+	}
+}
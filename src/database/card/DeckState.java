@@ -0,0 +1,303 @@
+package database.card;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ Immutable snapshot of the user's collection, deck, and ban list. Indexed by Card.id.
+ Published by CardDatabase through an atomic reference, so readers can grab a single snapshot and see a consistent
+ version of everything without locking. Writers create an Editor, apply their changes, and swap in the result.
+
+ Owned counts and bans are per printing, but the copy limit is per card, over every printing of it. */
+public final class DeckState {
+	/** The most copies of a card other than basic lands that a deck can have, over every printing of it. */
+	public static final int COPY_LIMIT = 4;
+	//Source of version numbers, shared by every state so that no two unrelated states ever share a version.
+	private static final AtomicLong versions = new AtomicLong();
+
+	private final int[] owned;
+	private final int[] inDeck;
+	private final boolean[] banned;
+	//Ids of every card with at least one copy in the deck, in ascending order.
+	private final int[] deckIds;
+	private final int deckSize;
+	private final DeckStats stats;
+	//Changes whenever owned or inDeck changes.
+	private final long collectionVersion;
+	//Changes whenever banned changes.
+	private final long banVersion;
+	//Printings of each card, for the copy limit. Null until the database is done loading, which limits each printing
+	//on its own instead.
+	private final PrintingGroups groups;
+
+	/**
+	 Creates an empty state for a database with the given number of cards.
+	 @param cardCount The number of cards in the database.
+	 */
+	DeckState(int cardCount) {
+		this(new int[cardCount], new int[cardCount], new boolean[cardCount], DeckStats.EMPTY,
+				versions.incrementAndGet(), versions.incrementAndGet(), null);
+	}
+
+	/**
+	 Recreates a previously saved state. Takes ownership of the provided arrays.
+	 @param cards The cards in the database, ordered by id, for counting up the deck's stats.
+	 */
+	static DeckState restore(int[] owned, int[] inDeck, boolean[] banned, List<Card> cards) {
+		return new DeckState(owned, inDeck, banned, DeckStats.count(inDeck, cards),
+				versions.incrementAndGet(), versions.incrementAndGet(), null);
+	}
+
+	//Takes ownership of the provided arrays. Nothing else may hold onto them afterwards.
+	private DeckState(int[] owned, int[] inDeck, boolean[] banned, DeckStats stats, long collectionVersion, long banVersion,
+			PrintingGroups groups) {
+		this.owned = owned;
+		this.inDeck = inDeck;
+		this.banned = banned;
+		this.stats = stats;
+		this.collectionVersion = collectionVersion;
+		this.banVersion = banVersion;
+		this.groups = groups;
+
+		int size = 0;
+		int uniqueCards = 0;
+		for (int copies : inDeck) {
+			if (copies > 0) {
+				size += copies;
+				uniqueCards++;
+			}
+		}
+
+		deckIds = new int[uniqueCards];
+		for (int id = 0, i = 0; i < uniqueCards; id++) {
+			if (inDeck[id] > 0) {
+				deckIds[i++] = id;
+			}
+		}
+		deckSize = size;
+	}
+
+	/** @return The number of copies of the card that are owned. */
+	public int getOwned(Card card) {
+		return owned[card.id];
+	}
+
+	/** @return The number of copies of the card inside of the deck. */
+	public int copiesInDeck(Card card) {
+		return inDeck[card.id];
+	}
+
+	/** @return Whether or not the ban list hits this card. */
+	public boolean isBanned(Card card) {
+		return banned[card.id];
+	}
+
+	int getOwned(int id) {
+		return owned[id];
+	}
+
+	int copiesInDeck(int id) {
+		return inDeck[id];
+	}
+
+	boolean isBanned(int id) {
+		return banned[id];
+	}
+
+	/**
+	 @return The maximum number of copies of this printing that can be placed in the deck, given the copies of its other
+	 printings that are already in it.
+	 */
+	public int deckMax(Card card) {
+		return deckMax(card, owned, inDeck, banned, groups);
+	}
+
+	/** @return The number of cards in the database this state covers. Cards with higher ids were added since. */
+	public int getCardCount() {
+		return owned.length;
+	}
+
+	/** @return The total number of cards inside of the deck. */
+	public int getDeckSize() {
+		return deckSize;
+	}
+
+	/** @return Mana curve, colors, and card types of the deck. */
+	public DeckStats getStats() {
+		return stats;
+	}
+
+	/**
+	 @return A number that changes whenever the owned or deck counts change, and only then. Lets caches that depend on
+	 the collection tell whether they're stale without comparing every card.
+	 */
+	public long getCollectionVersion() {
+		return collectionVersion;
+	}
+
+	/** @return A number that changes whenever the ban list changes, and only then. */
+	public long getBanVersion() {
+		return banVersion;
+	}
+
+	/** @return The number of distinct cards inside of the deck. */
+	public int getUniqueDeckSize() {
+		return deckIds.length;
+	}
+
+	/** @return Every card with at least one copy inside of the deck, ordered by id. */
+	public List<Card> getDeckCards() {
+		return new AbstractList<Card>() {
+			@Override
+			public Card get(int index) {
+				return CardDatabase.getCard(deckIds[index]);
+			}
+
+			@Override
+			public int size() {
+				return deckIds.length;
+			}
+		};
+	}
+
+	/** @return True if this state has a different set of cards in the deck than the provided one. */
+	boolean deckCardsDiffer(DeckState other) {
+		return !Arrays.equals(deckIds, other.deckIds);
+	}
+
+	/**
+	 Lists the cards whose owned count, deck count, or ban status differ between this state and an older one.
+	 @param prev  The older state.
+	 @param limit The most ids worth returning.
+	 @return The ids of the changed cards, or null if more than limit cards changed.
+	 */
+	int[] changedCards(DeckState prev, int limit) {
+		int[] changed = new int[limit];
+		int count = 0;
+		for (int id = 0; id < owned.length; id++) {
+			//Cards added to the database since prev count as having nothing.
+			boolean isNew = id >= prev.owned.length;
+			if (isNew ? owned[id] != 0 || inDeck[id] != 0 || banned[id]
+					: owned[id] != prev.owned[id] || inDeck[id] != prev.inDeck[id] || banned[id] != prev.banned[id]) {
+				if (count == limit) {
+					return null;
+				}
+				changed[count++] = id;
+			}
+		}
+		return Arrays.copyOf(changed, count);
+	}
+
+	/** @return An editor with a private copy of this state. */
+	Editor edit() {
+		return new Editor(this, owned.length, groups);
+	}
+
+	/**
+	 @param cardCount The number of cards in the database. Must be at least as many as this state already covers.
+	 @return An editor with a private copy of this state, grown to cover cards added to the database.
+	 */
+	Editor edit(int cardCount) {
+		return new Editor(this, cardCount, groups);
+	}
+
+	/**
+	 @param cardCount The number of cards in the database. Must be at least as many as this state already covers.
+	 @param groups    The printings of each card in the database, for the copy limit.
+	 @return An editor with a private copy of this state, grown to cover the cards of a newly loaded or updated database.
+	 */
+	Editor edit(int cardCount, PrintingGroups groups) {
+		return new Editor(this, cardCount, groups);
+	}
+
+	private static int deckMax(Card card, int[] owned, int[] inDeck, boolean[] banned, PrintingGroups groups) {
+		if (banned[card.id] || card.isRemoved) {
+			return 0;
+		} else if (card.isBasicLand) {
+			return owned[card.id];
+		}
+
+		int otherPrintings = groups != null ? groups.sumOverPrintings(card, (id) -> inDeck[id]) - inDeck[card.id] : 0;
+		return Integer.max(Integer.min(COPY_LIMIT - otherPrintings, owned[card.id]), 0);
+	}
+
+	/**
+	 Mutable copy of a DeckState. Applies the same clamping rules that Card objects used to apply to themselves.
+	 Single use, and not thread safe. */
+	static final class Editor {
+		private final int[] owned;
+		private final int[] inDeck;
+		private final boolean[] banned;
+		private final DeckState base;
+		private final PrintingGroups groups;
+		private DeckStats.Builder stats;
+		private boolean collectionChanged = false;
+		private boolean bansChanged = false;
+
+		private Editor(DeckState base, int cardCount, PrintingGroups groups) {
+			this.base = base;
+			this.groups = groups;
+			owned = Arrays.copyOf(base.owned, cardCount);
+			inDeck = Arrays.copyOf(base.inDeck, cardCount);
+			banned = Arrays.copyOf(base.banned, cardCount);
+			stats = new DeckStats.Builder(base.stats);
+		}
+
+		int getOwned(Card card) {
+			return owned[card.id];
+		}
+
+		int copiesInDeck(Card card) {
+			return inDeck[card.id];
+		}
+
+		/** Sets the number of copies of this card that are owned. */
+		void setOwned(Card card, int count) {
+			collectionChanged |= owned[card.id] != count;
+			owned[card.id] = count;
+			setInDeck(card, inDeck[card.id]);
+		}
+
+		void addOwned(Card card, int count) {
+			setOwned(card, owned[card.id] + count);
+		}
+
+		void setInDeck(Card card, int count) {
+			int clamped = Integer.max(Integer.min(count, deckMax(card, owned, inDeck, banned, groups)), 0);
+			if (inDeck[card.id] != clamped) {
+				collectionChanged = true;
+				stats.add(card, clamped - inDeck[card.id]);
+				inDeck[card.id] = clamped;
+			}
+		}
+
+		void addToDeck(Card card, int count) {
+			setInDeck(card, inDeck[card.id] + count);
+		}
+
+		/** Bans or unbans the card. Banned cards are removed from the deck. */
+		void setBanned(Card card, boolean isBanned) {
+			bansChanged |= banned[card.id] != isBanned;
+			banned[card.id] = isBanned;
+			setInDeck(card, inDeck[card.id]);
+		}
+
+		/**
+		 Counts the deck's stats up again from scratch, for when cards have changed underneath the deck, like after an
+		 update to the card database.
+		 @param cards The cards in the database, ordered by id.
+		 */
+		void recountStats(List<Card> cards) {
+			stats = new DeckStats.Builder(DeckStats.count(inDeck, cards));
+		}
+
+		/** @return A new immutable state. The editor must not be used afterwards. */
+		DeckState build() {
+			return new DeckState(owned, inDeck, banned, stats.build(),
+					collectionChanged ? versions.incrementAndGet() : base.collectionVersion,
+					bansChanged ? versions.incrementAndGet() : base.banVersion, groups);
+		}
+	}
+}
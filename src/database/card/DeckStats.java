@@ -0,0 +1,157 @@
+package database.card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ Immutable summary of what's in a deck: mana curve, colors, card types, and average mana value. Part of every
+ DeckState, and kept up to date as the deck is edited by adding and removing each changed card's copies, rather than
+ going back over the whole deck. */
+public final class DeckStats {
+	/** Number of mana curve buckets. The last one holds everything with that mana value or more. */
+	public static final int CURVE_SIZE = 8;
+	private static final CardColor[] COLORS = CardColor.values();
+	private static final CardType[] TYPES = CardType.values();
+	static final DeckStats EMPTY = new Builder(null).build();
+
+	private final int deckSize;
+	//Copies of nonland cards, by mana value.
+	private final int[] curve;
+	//Copies by color identity. Multicolored cards count towards each of their colors.
+	private final int[] colors;
+	private final int[] types;
+	private final int nonLands;
+	//Total mana value of every nonland copy, doubled so half mana values add up exactly.
+	private final long doubledManaValue;
+
+	private DeckStats(Builder builder) {
+		deckSize = builder.deckSize;
+		curve = builder.curve;
+		colors = builder.colors;
+		types = builder.types;
+		nonLands = builder.nonLands;
+		doubledManaValue = builder.doubledManaValue;
+	}
+
+	/**
+	 Counts up the stats for a deck from scratch.
+	 @param inDeck Copies of each card in the deck, by id.
+	 @param cards  The cards the ids refer to.
+	 */
+	static DeckStats count(int[] inDeck, List<Card> cards) {
+		Builder builder = new Builder(null);
+		for (int id = 0; id < inDeck.length; id++) {
+			if (inDeck[id] > 0) {
+				builder.add(cards.get(id), inDeck[id]);
+			}
+		}
+		return builder.build();
+	}
+
+	/** @return The total number of cards inside of the deck. */
+	public int getDeckSize() {
+		return deckSize;
+	}
+
+	/**
+	 @param manaValue A mana value, rounded down. Anything from CURVE_SIZE - 1 up shares the last bucket.
+	 @return The number of nonland cards in the deck with that mana value.
+	 */
+	public int getCurve(int manaValue) {
+		return curve[Integer.min(manaValue, CURVE_SIZE - 1)];
+	}
+
+	/** @return The number of cards in the deck with this color in their color identity. */
+	public int getColorCount(CardColor color) {
+		return colors[color.ordinal()];
+	}
+
+	/** @return The number of cards in the deck with this card type. */
+	public int getTypeCount(CardType type) {
+		return types[type.ordinal()];
+	}
+
+	/** @return The average mana value of the nonland cards in the deck, or 0 if there are none. */
+	public double getAverageManaValue() {
+		return nonLands == 0 ? 0 : doubledManaValue / 2.0 / nonLands;
+	}
+
+	/** @return The stats as a few lines of text, for showing to the user. */
+	public List<String> describe() {
+		List<String> lines = new ArrayList<>();
+		lines.add(deckSize + " cards, " + getTypeCount(CardType.LAND) + " lands, "
+				+ String.format("%.2f", getAverageManaValue()) + " average mana value");
+
+		StringBuilder line = new StringBuilder("Curve:");
+		for (int i = 0; i < CURVE_SIZE; i++) {
+			line.append(' ').append(i).append(i == CURVE_SIZE - 1 ? "+=" : "=").append(curve[i]);
+		}
+		lines.add(line.toString());
+
+		line = new StringBuilder("Colors:");
+		for (CardColor color : COLORS) {
+			line.append(' ').append(color).append('=').append(getColorCount(color));
+		}
+		lines.add(line.toString());
+
+		line = new StringBuilder("Types:");
+		for (CardType type : TYPES) {
+			line.append(' ').append(type).append('=').append(getTypeCount(type));
+		}
+		lines.add(line.toString());
+		return lines;
+	}
+
+	/** Mutable copy of a DeckStats, for DeckState.Editor. Each change only touches the changed card's numbers. */
+	static final class Builder {
+		private int deckSize;
+		private final int[] curve;
+		private final int[] colors;
+		private final int[] types;
+		private int nonLands;
+		private long doubledManaValue;
+
+		Builder(DeckStats base) {
+			if (base == null) {
+				curve = new int[CURVE_SIZE];
+				colors = new int[COLORS.length];
+				types = new int[TYPES.length];
+				return;
+			}
+			deckSize = base.deckSize;
+			curve = Arrays.copyOf(base.curve, base.curve.length);
+			colors = Arrays.copyOf(base.colors, base.colors.length);
+			types = Arrays.copyOf(base.types, base.types.length);
+			nonLands = base.nonLands;
+			doubledManaValue = base.doubledManaValue;
+		}
+
+		/**
+		 @param card   The card whose count in the deck changed.
+		 @param copies How many copies were added, negative if they were removed.
+		 */
+		void add(Card card, int copies) {
+			deckSize += copies;
+			for (CardColor color : card.colorIdentity) {
+				colors[color.ordinal()] += copies;
+			}
+			for (CardType type : TYPES) {
+				if ((card.cardTypes & 1 << type.ordinal()) != 0) {
+					types[type.ordinal()] += copies;
+				}
+			}
+			if ((card.cardTypes & 1 << CardType.LAND.ordinal()) == 0) {
+				double manaValue = card.getManaValue();
+				curve[Integer.min((int) manaValue, CURVE_SIZE - 1)] += copies;
+				nonLands += copies;
+				doubledManaValue += Math.round(manaValue * 2) * copies;
+			}
+		}
+
+		/** @return The stats. Takes the builder's arrays, so it must not be used afterwards. */
+		DeckStats build() {
+			return new DeckStats(this);
+		}
+	}
+}
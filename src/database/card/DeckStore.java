@@ -0,0 +1,356 @@
+package database.card;
+
+import application.LogTags;
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ Saves the user's collection, deck, and ban list between sessions. Consists of a snapshot of the full state, plus an
+ append-only journal of every card changed since the snapshot was taken. The journal is folded into a new snapshot
+ once it grows large enough. Only touched by the database worker.
+
+ Cards are saved by their Scryfall id, so that the saved state still lines up with the cards after the card database
+ changes. Cards that are no longer in the database are dropped. Files from version 1 were saved by Card.id instead, and
+ are only read if they were written against the same card database, going by the fingerprint in their header. */
+final class DeckStore {
+	private static final int MAGIC = 0x4D544744; //"MTGD"
+	private static final int VERSION = 2;
+	private static final int VERSION_CARD_IDS = 1;
+	//Number of journaled card changes after which the journal gets compacted into a new snapshot.
+	private static final int COMPACT_THRESHOLD = 4096;
+	//Journal entries are fsynced to disk after this many batches, on top of being flushed after every batch.
+	private static final int SYNC_INTERVAL = 16;
+	//Counts are stored as unsigned shorts. Nobody owns 65 thousand copies of a card.
+	private static final int MAX_COUNT = 0xFFFF;
+
+	private final File snapshotFile;
+	private final File journalFile;
+	//Only used to check version 1 files.
+	private final long fingerprint;
+	private int cardCount;
+	private List<Card> cardList;
+	private final Map<UUID, Integer> ids = new HashMap<>();
+	//Entries in the loaded files that are for cards no longer in the database.
+	private int unknownCards = 0;
+	private FileOutputStream journalStream;
+	private DataOutputStream journal;
+	private int journaledChanges = 0;
+	private int unsyncedBatches = 0;
+	//Whether the loaded journal ends in bytes that aren't a whole batch, which new batches mustn't be appended after.
+	private boolean journalTorn = false;
+
+	/**
+	 @param directory Folder to keep the state files in.
+	 @param cardList  The cards in the database, used to make sure the saved state matches them.
+	 */
+	DeckStore(File directory, List<Card> cardList) {
+		snapshotFile = new File(directory, "collection.snapshot");
+		journalFile = new File(directory, "collection.journal");
+		cardsChanged(cardList);
+
+		long hash = cardCount;
+		for (Card card : cardList) {
+			hash = hash * 31 + card.getName().hashCode();
+		}
+		fingerprint = hash;
+	}
+
+	/**
+	 Points the store at a new version of the card database, after an update. Ids of existing cards must not change.
+	 @param cardList The cards in the database, ordered by id.
+	 */
+	void cardsChanged(List<Card> cardList) {
+		this.cardList = cardList;
+		cardCount = cardList.size();
+		ids.clear();
+		for (Card card : cardList) {
+			ids.put(card.getScryfallId(), card.id);
+		}
+	}
+
+	/**
+	 Reads the last saved state from disk. Journal batches that were only partly written are discarded.
+	 If the saved state belongs to a different card database, it's deleted.
+	 @return The saved state, or null if there isn't one that matches the current card database.
+	 */
+	DeckState load() {
+		if (!snapshotFile.exists() && !journalFile.exists()) {
+			return null;
+		}
+
+		int[] owned = new int[cardCount];
+		int[] inDeck = new int[cardCount];
+		boolean[] banned = new boolean[cardCount];
+		boolean needsUpgrade = false;
+		try {
+			if (snapshotFile.exists()) {
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+					int version = readHeader(in);
+					if (version == 0) {
+						discard();
+						return null;
+					}
+					needsUpgrade = version != VERSION;
+					int entries = in.readInt();
+					for (int i = 0; i < entries; i++) {
+						readEntry(in, version, owned, inDeck, banned);
+					}
+				}
+			}
+
+			if (journalFile.exists()) {
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+					int version;
+					try {
+						version = readHeader(in);
+					} catch (EOFException e) {
+						//The journal is created before its header is written, so a crash can leave it short. It has no
+						//changes in it yet, and the snapshot is still good.
+						Logger.tag(LogTags.DB_INIT.tag).warn("Collection journal has an incomplete header. Ignoring it.");
+						version = -1;
+						journalTorn = true;
+					}
+					if (version == 0) {
+						discard();
+						return null;
+					} else if (version > 0) {
+						needsUpgrade |= version != VERSION;
+						journaledChanges = replayJournal(in, version, owned, inDeck, banned);
+					}
+				}
+			}
+		} catch (IOException e) {
+			Logger.tag(LogTags.DB_INIT.tag).error(e, "Unable to read saved collection from '{}'.", snapshotFile.getAbsolutePath());
+			return null;
+		}
+
+		Logger.tag(LogTags.DB_INIT.tag).info("Restored saved collection with {} journaled changes.", journaledChanges);
+		if (unknownCards > 0) {
+			Logger.tag(LogTags.DB_INIT.tag).warn("Dropped {} saved cards that are no longer in the card database.", unknownCards);
+		}
+		DeckState state = DeckState.restore(owned, inDeck, banned, cardList);
+		if (journaledChanges > 0 || journalTorn || needsUpgrade || unknownCards > 0) {
+			//Fold the journal in now, so that new batches don't get appended after a torn one and lost with it.
+			try {
+				writeSnapshot(state);
+			} catch (IOException e) {
+				Logger.tag(LogTags.DB_INIT.tag).error(e, "Unable to compact saved collection.");
+			}
+		}
+		return state;
+	}
+
+	//Deletes saved state that doesn't belong to the current card database.
+	private void discard() {
+		Logger.tag(LogTags.DB_INIT.tag).warn("Saved collection is for a different card database. Discarding it.");
+		if ((snapshotFile.exists() && !snapshotFile.delete()) || (journalFile.exists() && !journalFile.delete())) {
+			Logger.tag(LogTags.DB_INIT.tag).error("Unable to delete saved collection at '{}'.", snapshotFile.getAbsolutePath());
+		}
+	}
+
+	/**
+	 Records the changes between two states. Small changes are appended to the journal, while large ones (or a journal
+	 that has grown too long) result in a fresh snapshot.
+	 @param prev The previously saved state.
+	 @param next The state to save.
+	 */
+	void save(DeckState prev, DeckState next) {
+		int[] changed = next.changedCards(prev, Integer.max(COMPACT_THRESHOLD - journaledChanges, 0));
+		try {
+			if (changed == null) {
+				writeSnapshot(next);
+			} else if (changed.length > 0) {
+				appendJournal(next, changed);
+			}
+		} catch (IOException e) {
+			Logger.tag(LogTags.DB_ACTION.tag).error(e, "Unable to save collection.");
+		}
+	}
+
+	/** Flushes anything pending to disk and closes the journal. */
+	void close() {
+		if (journal != null) {
+			try {
+				journal.flush();
+				journalStream.getFD().sync();
+				journal.close();
+			} catch (IOException e) {
+				Logger.tag(LogTags.DB_ACTION.tag).error(e, "Unable to close collection journal.");
+			}
+			journal = null;
+		}
+	}
+
+	private void appendJournal(DeckState state, int[] changed) throws IOException {
+		if (journal == null) {
+			File parent = journalFile.getAbsoluteFile().getParentFile();
+			if (!parent.exists() && !parent.mkdirs()) {
+				throw new IOException("Unable to create directory " + parent.getAbsolutePath());
+			}
+			boolean append = journalFile.exists() && journalFile.length() > 0;
+			journalStream = new FileOutputStream(journalFile, append);
+			journal = new DataOutputStream(new BufferedOutputStream(journalStream));
+			if (!append) {
+				writeHeader(journal);
+			}
+		}
+
+		//Each batch is written as a whole, followed by its checksum, so a torn write is detected on load.
+		ByteArrayOutputStream batchBytes = new ByteArrayOutputStream(changed.length * entrySize(VERSION) + 4);
+		DataOutputStream batch = new DataOutputStream(batchBytes);
+		batch.writeInt(changed.length);
+		for (int id : changed) {
+			writeEntry(batch, state, id);
+		}
+
+		CRC32 checksum = new CRC32();
+		checksum.update(batchBytes.toByteArray());
+		batchBytes.writeTo(journal);
+		journal.writeLong(checksum.getValue());
+		journal.flush();
+		journaledChanges += changed.length;
+
+		if (++unsyncedBatches >= SYNC_INTERVAL) {
+			journalStream.getFD().sync();
+			unsyncedBatches = 0;
+		}
+	}
+
+	private void writeSnapshot(DeckState state) throws IOException {
+		Logger.tag(LogTags.DB_ACTION.tag).info("Compacting saved collection.");
+		File parent = snapshotFile.getAbsoluteFile().getParentFile();
+		if (!parent.exists() && !parent.mkdirs()) {
+			throw new IOException("Unable to create directory " + parent.getAbsolutePath());
+		}
+
+		File tempFile = new File(parent, snapshotFile.getName() + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(tempFile)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+			writeHeader(out);
+
+			int[] saved = new DeckState(cardCount).changedCards(state, cardCount);
+			out.writeInt(saved.length);
+			for (int id : saved) {
+				writeEntry(out, state, id);
+			}
+			out.flush();
+			stream.getFD().sync();
+		}
+		Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		//Everything in the journal is now part of the snapshot.
+		close();
+		if (journalFile.exists() && !journalFile.delete()) {
+			throw new IOException("Unable to clear journal " + journalFile.getAbsolutePath());
+		}
+		journaledChanges = 0;
+		unsyncedBatches = 0;
+		journalTorn = false;
+	}
+
+	//Sets journalTorn if it stops anywhere other than the end of the file.
+	private int replayJournal(DataInputStream in, int version, int[] owned, int[] inDeck, boolean[] banned) throws IOException {
+		int replayed = 0;
+		while (true) {
+			byte[] batch;
+			try {
+				int first = in.read();
+				if (first < 0) {
+					break;
+				}
+				int entries = (first << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+				//Batches never list a card twice, so can't be bigger than the database that they were written against.
+				if (entries < 0 || entries > Integer.max(cardCount, COMPACT_THRESHOLD) * 2) {
+					Logger.tag(LogTags.DB_INIT.tag).warn("Collection journal has a corrupt entry. Dropping everything after it.");
+					journalTorn = true;
+					break;
+				}
+				batch = new byte[4 + entries * entrySize(version)];
+				batch[0] = (byte) (entries >>> 24);
+				batch[1] = (byte) (entries >>> 16);
+				batch[2] = (byte) (entries >>> 8);
+				batch[3] = (byte) entries;
+				in.readFully(batch, 4, batch.length - 4);
+
+				CRC32 checksum = new CRC32();
+				checksum.update(batch);
+				if (in.readLong() != checksum.getValue()) {
+					Logger.tag(LogTags.DB_INIT.tag).warn("Collection journal has a corrupt entry. Dropping everything after it.");
+					journalTorn = true;
+					break;
+				}
+			} catch (EOFException e) {
+				Logger.tag(LogTags.DB_INIT.tag).warn("Collection journal ends in an incomplete entry. Dropping it.");
+				journalTorn = true;
+				break;
+			}
+
+			DataInputStream entries = new DataInputStream(new ByteArrayInputStream(batch, 4, batch.length - 4));
+			while (entries.available() > 0) {
+				readEntry(entries, version, owned, inDeck, banned);
+				replayed++;
+			}
+		}
+		return replayed;
+	}
+
+	private void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	//Returns the file's version, or 0 if it can't be read.
+	private int readHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			return 0;
+		}
+
+		int version = in.readInt();
+		if (version == VERSION_CARD_IDS) {
+			return in.readLong() == fingerprint && in.readInt() == cardCount ? version : 0;
+		}
+		return version == VERSION ? version : 0;
+	}
+
+	private static int entrySize(int version) {
+		return (version == VERSION_CARD_IDS ? Integer.BYTES : Long.BYTES * 2) + 5;
+	}
+
+	private void writeEntry(DataOutputStream out, DeckState state, int id) throws IOException {
+		UUID scryfallId = cardList.get(id).getScryfallId();
+		out.writeLong(scryfallId.getMostSignificantBits());
+		out.writeLong(scryfallId.getLeastSignificantBits());
+		out.writeShort(Integer.min(state.getOwned(id), MAX_COUNT));
+		out.writeShort(Integer.min(state.copiesInDeck(id), MAX_COUNT));
+		out.writeBoolean(state.isBanned(id));
+	}
+
+	private void readEntry(DataInputStream in, int version, int[] owned, int[] inDeck, boolean[] banned) throws IOException {
+		int id;
+		if (version == VERSION_CARD_IDS) {
+			id = in.readInt();
+			if (id < 0 || id >= cardCount) {
+				throw new IOException("Invalid card id " + id);
+			}
+		} else {
+			Integer knownId = ids.get(new UUID(in.readLong(), in.readLong()));
+			if (knownId == null) {
+				unknownCards++;
+				in.skipBytes(5);
+				return;
+			}
+			id = knownId;
+		}
+		owned[id] = in.readUnsignedShort();
+		inDeck[id] = in.readUnsignedShort();
+		banned[id] = in.readBoolean();
+	}
+}
@@ -0,0 +1,274 @@
+package database.card;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ Checks decks against a format. Checking a deck from a file goes through every card once. Checking the user's deck
+ is incremental: the results of each rule are kept between edits, and only the rules that depend on something that
+ changed get checked again. Editing one card only re-checks the printings of that card, plus the deck size rules if
+ the size changed. The incremental side is only used by the database worker.
+
+ Copies are counted over every printing of a card, so each printing in the deck can find the same problem. Problems
+ are only listed once. */
+final class DeckValidator {
+	private final DeckFormat format;
+	//Rules that depend on DeckRule.Input.CARD, and the rest.
+	private final DeckRule[] cardRules;
+	private final DeckRule[] deckRules;
+	//Problems with each card in the user's deck, by id and then by card rule. Only cards with problems are kept.
+	private final Map<Integer, String[]> cardProblems = new TreeMap<>();
+	//Problems found by each deck rule.
+	private final String[] deckProblems;
+	private boolean checked = false;
+	private int checkedSize;
+	private Card checkedCommander;
+	private List<String> problems = Collections.emptyList();
+
+	DeckValidator(DeckFormat format) {
+		this.format = format;
+		List<DeckRule> cardRuleList = new ArrayList<>();
+		List<DeckRule> deckRuleList = new ArrayList<>();
+		for (DeckRule rule : format.getRules()) {
+			(rule.getInputs().contains(DeckRule.Input.CARD) ? cardRuleList : deckRuleList).add(rule);
+		}
+		cardRules = cardRuleList.toArray(new DeckRule[0]);
+		deckRules = deckRuleList.toArray(new DeckRule[0]);
+		deckProblems = new String[deckRules.length];
+	}
+
+	DeckFormat getFormat() {
+		return format;
+	}
+
+	/** @return Every problem with the user's deck as of the last update. */
+	List<String> getProblems() {
+		return problems;
+	}
+
+	/**
+	 Checks the user's deck again after it changed.
+	 @param state     The new deck state.
+	 @param groups    The printings of each card in the database.
+	 @param commander The deck's commander, or null if it doesn't have one.
+	 @param changed   Ids of the cards whose copies, owned count, or ban changed, or null if too many changed to list.
+	 @return Whether or not the problems with the deck changed.
+	 */
+	boolean update(DeckState state, PrintingGroups groups, Card commander, int[] changed) {
+		DeckView deck = new StateView(state, groups, commander);
+		//A new validator always reports, since whatever the UI is showing came from a different format.
+		boolean firstCheck = !checked;
+		boolean commanderChanged = !checked || commander != checkedCommander;
+		boolean sizeChanged = !checked || state.getDeckSize() != checkedSize;
+
+		if (!checked || changed == null) {
+			cardProblems.clear();
+			for (Card card : state.getDeckCards()) {
+				checkCard(deck, card, false);
+			}
+		} else {
+			for (int id : changed) {
+				//Copies of the other printings count towards the same limits, so their answers can change too.
+				Card card = CardDatabase.getCard(id);
+				int group = groups.getGroup(card);
+				if (group < 0) {
+					checkCard(deck, card, false);
+					continue;
+				}
+				for (int i = 0; i < groups.getPrintingCount(group); i++) {
+					checkCard(deck, groups.getPrinting(group, i), false);
+				}
+			}
+			if (commanderChanged) {
+				for (Card card : state.getDeckCards()) {
+					checkCard(deck, card, true);
+				}
+			}
+		}
+
+		for (int i = 0; i < deckRules.length; i++) {
+			if (!checked || changed == null
+					|| (sizeChanged && deckRules[i].getInputs().contains(DeckRule.Input.DECK_SIZE))
+					|| (commanderChanged && deckRules[i].getInputs().contains(DeckRule.Input.COMMANDER))) {
+				deckProblems[i] = deckRules[i].checkDeck(deck);
+			}
+		}
+		checked = true;
+		checkedSize = state.getDeckSize();
+		checkedCommander = commander;
+
+		LinkedHashSet<String> found = new LinkedHashSet<>();
+		for (String[] problems : cardProblems.values()) {
+			for (String problem : problems) {
+				if (problem != null) {
+					found.add(problem);
+				}
+			}
+		}
+		for (String problem : deckProblems) {
+			if (problem != null) {
+				found.add(problem);
+			}
+		}
+		List<String> updated = new ArrayList<>(found);
+		if (!firstCheck && updated.equals(problems)) {
+			return false;
+		}
+		problems = Collections.unmodifiableList(updated);
+		return true;
+	}
+
+	//Re-checks one card in the user's deck, against every card rule or just the ones that look at the commander.
+	private void checkCard(DeckView deck, Card card, boolean commanderRulesOnly) {
+		if (deck.printingCopies(card) == 0) {
+			cardProblems.remove(card.id);
+			return;
+		}
+
+		String[] previous = cardProblems.get(card.id);
+		String[] results = new String[cardRules.length];
+		boolean anyProblems = false;
+		for (int i = 0; i < cardRules.length; i++) {
+			if (commanderRulesOnly && !cardRules[i].getInputs().contains(DeckRule.Input.COMMANDER)) {
+				results[i] = previous == null ? null : previous[i];
+			} else {
+				results[i] = cardRules[i].checkCard(deck, card);
+			}
+			anyProblems |= results[i] != null;
+		}
+		if (anyProblems) {
+			cardProblems.put(card.id, results);
+		} else {
+			cardProblems.remove(card.id);
+		}
+	}
+
+	/**
+	 Checks a deck read from a file, from scratch. Safe to call from several threads at once.
+	 @param collection The collection and ban list to check against.
+	 @param deck       The deck.
+	 @param cards      The cards in the database, ordered by id.
+	 @param groups     The printings of each card in the database.
+	 @return A description of every problem with the deck, starting with lines that couldn't be read.
+	 */
+	List<String> check(DeckState collection, DecFileParser.CardCounts deck, List<Card> cards, PrintingGroups groups) {
+		List<String> problems = new ArrayList<>(deck.getErrors());
+		if (deck.getErrorCount() > problems.size()) {
+			problems.add((deck.getErrorCount() - problems.size()) + " more unreadable line(s)");
+		}
+
+		int[] ids = deck.listedIds();
+		int size = 0;
+		for (int id : ids) {
+			size += deck.get(id);
+		}
+		Card commander = deck.getCommanderId() >= 0 ? cards.get(deck.getCommanderId()) : null;
+		DeckView view = new CountsView(collection, deck, groups, size, commander);
+		LinkedHashSet<String> found = new LinkedHashSet<>();
+
+		for (int id : ids) {
+			if (deck.get(id) == 0) {
+				continue;
+			}
+			Card card = cards.get(id);
+			for (DeckRule rule : cardRules) {
+				String problem = rule.checkCard(view, card);
+				if (problem != null) {
+					found.add(problem);
+				}
+			}
+		}
+		for (DeckRule rule : deckRules) {
+			String problem = rule.checkDeck(view);
+			if (problem != null) {
+				found.add(problem);
+			}
+		}
+		problems.addAll(found);
+		return problems;
+	}
+
+	/** The user's deck. */
+	private static final class StateView implements DeckView {
+		private final DeckState state;
+		private final PrintingGroups groups;
+		private final Card commander;
+
+		private StateView(DeckState state, PrintingGroups groups, Card commander) {
+			this.state = state;
+			this.groups = groups;
+			this.commander = commander;
+		}
+
+		@Override
+		public int copies(Card card) {
+			return groups.sumOverPrintings(card, state::copiesInDeck);
+		}
+
+		@Override
+		public int printingCopies(Card card) {
+			return state.copiesInDeck(card);
+		}
+
+		@Override
+		public int getDeckSize() {
+			return state.getDeckSize();
+		}
+
+		@Override
+		public DeckState getCollection() {
+			return state;
+		}
+
+		@Override
+		public Card getCommander() {
+			return commander;
+		}
+	}
+
+	/** A deck read from a file. */
+	private static final class CountsView implements DeckView {
+		private final DeckState collection;
+		private final DecFileParser.CardCounts counts;
+		private final PrintingGroups groups;
+		private final int size;
+		private final Card commander;
+
+		private CountsView(DeckState collection, DecFileParser.CardCounts counts, PrintingGroups groups, int size, Card commander) {
+			this.collection = collection;
+			this.counts = counts;
+			this.groups = groups;
+			this.size = size;
+			this.commander = commander;
+		}
+
+		@Override
+		public int copies(Card card) {
+			return groups.sumOverPrintings(card, counts::get);
+		}
+
+		@Override
+		public int printingCopies(Card card) {
+			return counts.get(card.id);
+		}
+
+		@Override
+		public int getDeckSize() {
+			return size;
+		}
+
+		@Override
+		public DeckState getCollection() {
+			return collection;
+		}
+
+		@Override
+		public Card getCommander() {
+			return commander;
+		}
+	}
+}
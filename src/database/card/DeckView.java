@@ -0,0 +1,22 @@
+package database.card;
+
+/** What deck rules get to look at: a deck, and the collection and ban list it's being built from. */
+public interface DeckView {
+	/**
+	 @return The number of copies of the card in the deck, counting every printing of it. Copy limits are about the
+	 card, not which printing of it is used.
+	 */
+	int copies(Card card);
+
+	/** @return The number of copies of this exact printing in the deck. */
+	int printingCopies(Card card);
+
+	/** @return The total number of cards in the deck. */
+	int getDeckSize();
+
+	/** @return The owned counts and ban list the deck is checked against. */
+	DeckState getCollection();
+
+	/** @return The deck's commander, or null if it doesn't name one. */
+	Card getCommander();
+}
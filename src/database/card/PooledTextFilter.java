@@ -0,0 +1,123 @@
+package database.card;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ Tests one of a card's pooled strings. Since many cards share each pool entry, the answer is remembered per entry, so
+ the test itself runs at most once for every distinct string rather than once per card. Safe to share between threads:
+ racing threads can only ever store the same answer for an entry. */
+public final class PooledTextFilter implements Predicate<Card> {
+	/** The pooled string on a card to test. */
+	public enum Field {
+		/** Rules text, in lowercase. */
+		TEXT,
+		/** Type line, as printed. */
+		TYPE,
+		/** Each keyword, in lowercase. Passes if any keyword does. */
+		KEYWORD
+	}
+
+	private static final byte UNKNOWN = 0;
+	private static final byte FAILED = 1;
+	private static final byte PASSED = 2;
+
+	private final Field field;
+	private final EntryTest test;
+	//Answers for each entry of the pool that was last searched. Replaced if a card from another pool shows up.
+	private volatile Answers answers;
+
+	private PooledTextFilter(Field field, EntryTest test) {
+		this.field = field;
+		this.test = test;
+	}
+
+	/**
+	 Searches for text by comparing UTF-8 bytes directly inside of the pool, without decoding anything.
+	 @param field The field to search.
+	 @param text  The text to look for. Must already be in the same case as the field.
+	 */
+	public static PooledTextFilter contains(Field field, String text) {
+		byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+		if (field == Field.KEYWORD) {
+			return matching(field, (keyword) -> keyword.contains(text));
+		}
+		return new PooledTextFilter(field, (pool, entry) -> pool.contains(entry, needle));
+	}
+
+	/**
+	 Checks for an exact match by comparing UTF-8 bytes directly inside of the pool.
+	 @param field The field to check.
+	 @param text  The text to match. Must already be in the same case as the field.
+	 */
+	public static PooledTextFilter equalTo(Field field, String text) {
+		byte[] value = text.getBytes(StandardCharsets.UTF_8);
+		if (field == Field.KEYWORD) {
+			return matching(field, text::equals);
+		}
+		return new PooledTextFilter(field, (pool, entry) -> pool.equals(entry, value));
+	}
+
+	/**
+	 Runs an arbitrary test, like a regex, against the decoded string. Each entry is only decoded the first time a card
+	 using it gets tested.
+	 @param field The field to test.
+	 @param test  The test to run.
+	 */
+	public static PooledTextFilter matching(Field field, Predicate<String> test) {
+		if (field == Field.KEYWORD) {
+			return new PooledTextFilter(field, (pool, entry) -> {
+				for (String keyword : Card.splitKeywords(pool.get(entry))) {
+					if (test.test(keyword)) {
+						return true;
+					}
+				}
+				return false;
+			});
+		}
+		return new PooledTextFilter(field, (pool, entry) -> test.test(pool.get(entry)));
+	}
+
+	@Override
+	public boolean test(Card card) {
+		int entry;
+		switch (field) {
+			case TEXT:
+				entry = card.textEntry;
+				break;
+			case TYPE:
+				entry = card.typeEntry;
+				break;
+			default:
+				entry = card.keywordsEntry;
+				break;
+		}
+
+		Answers current = answers;
+		if (current == null || current.pool != card.strings) {
+			current = new Answers(card.strings);
+			answers = current;
+		}
+
+		byte answer = current.results[entry];
+		if (answer == UNKNOWN) {
+			answer = test.test(current.pool, entry) ? PASSED : FAILED;
+			current.results[entry] = answer;
+		}
+		return answer == PASSED;
+	}
+
+	private interface EntryTest {
+		boolean test(StringPool pool, int entry);
+	}
+
+	private static final class Answers {
+		private final StringPool pool;
+		private final byte[] results;
+
+		Answers(StringPool pool) {
+			this.pool = pool;
+			results = new byte[pool.size()];
+		}
+	}
+}
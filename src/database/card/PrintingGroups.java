@@ -0,0 +1,229 @@
+package database.card;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntUnaryOperator;
+
+/**
+ Read-only index from oracle cards to their printings, built once when the database loads. A bulk file with every
+ printing lists the same card many times over, so the card table shows one row per group and filters and sorts those,
+ with the printings only looked at when a group gets expanded. Printings share everything that filters and sorts look
+ at other than the owned and deck counts, which are added up over the group.
+
+ Groups are numbered in the order their first printing appears, and the printings of each group are stored together
+ in id order, so looking up a group's printings is just a slice of one array. Removed cards aren't in any group. */
+public final class PrintingGroups {
+	private final List<Card> cards;
+	//Group of each card by id, or -1 for removed cards.
+	private final int[] groupOf;
+	//Ids of every printing, grouped. Group g's printings run from firstPrinting[g] up to firstPrinting[g + 1].
+	private final int[] printings;
+	private final int[] firstPrinting;
+	//Printing that stands in for each group when nothing about the user's collection says otherwise.
+	private final int[] representative;
+
+	/** @param cardList The cards to group, ordered by id. */
+	PrintingGroups(List<Card> cardList) {
+		cards = cardList;
+		groupOf = new int[cardList.size()];
+		Map<UUID, Integer> groupIds = new HashMap<>(cardList.size());
+		int[] sizes = new int[cardList.size() + 1];
+		for (Card card : cardList) {
+			if (card.isRemoved) {
+				groupOf[card.id] = -1;
+				continue;
+			}
+			Integer group = groupIds.putIfAbsent(card.getOracleId(), groupIds.size());
+			groupOf[card.id] = group != null ? group : groupIds.size() - 1;
+			sizes[groupOf[card.id]]++;
+		}
+
+		int groupCount = groupIds.size();
+		firstPrinting = new int[groupCount + 1];
+		for (int group = 0; group < groupCount; group++) {
+			firstPrinting[group + 1] = firstPrinting[group] + sizes[group];
+		}
+		printings = new int[firstPrinting[groupCount]];
+		representative = new int[groupCount];
+		int[] next = Arrays.copyOf(firstPrinting, groupCount);
+		for (Card card : cardList) {
+			int group = groupOf[card.id];
+			if (group < 0) {
+				continue;
+			}
+			printings[next[group]++] = card.id;
+			if (next[group] == firstPrinting[group] + 1 || isBetterRepresentative(card, cardList.get(representative[group]))) {
+				representative[group] = card.id;
+			}
+		}
+	}
+
+	//Playable printings beat promos and tokens, and printings with an image beat ones without. Otherwise the last one
+	//listed wins, the same as looking the card up by name.
+	private static boolean isBetterRepresentative(Card card, Card current) {
+		if (card.isPlayable != current.isPlayable) {
+			return card.isPlayable;
+		}
+		return card.hasFrontImage() || !current.hasFrontImage();
+	}
+
+	/** @return The number of oracle cards. */
+	public int getGroupCount() {
+		return representative.length;
+	}
+
+	/** @return The group the card is a printing of, or -1 if the card was removed. */
+	public int getGroup(Card card) {
+		return card.id < groupOf.length ? groupOf[card.id] : -1;
+	}
+
+	/** @return The number of printings in the group. */
+	public int getPrintingCount(int group) {
+		return firstPrinting[group + 1] - firstPrinting[group];
+	}
+
+	/**
+	 @param group The group.
+	 @param index Which of the group's printings, in id order.
+	 @return The printing.
+	 */
+	public Card getPrinting(int group, int index) {
+		return cards.get(printings[firstPrinting[group] + index]);
+	}
+
+	/** @return Where the printing comes in its group's printings, or -1 if it isn't in the group. */
+	public int indexOf(int group, Card card) {
+		for (int i = firstPrinting[group]; i < firstPrinting[group + 1]; i++) {
+			if (printings[i] == card.id) {
+				return i - firstPrinting[group];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 @return The printing that filters and sorts look at for the group. Never changes, and is playable if any printing
+	 of the card is.
+	 */
+	public Card getRepresentative(int group) {
+		return cards.get(representative[group]);
+	}
+
+	/**
+	 Picks the printing to show and edit when the group as a whole is selected: one that's in the deck, then one that's
+	 owned, and otherwise the representative.
+	 @param group The group.
+	 @param deck  The deck state to look at.
+	 @return The preferred printing.
+	 */
+	public Card getPreferred(int group, DeckState deck) {
+		int owned = -1;
+		for (int i = firstPrinting[group]; i < firstPrinting[group + 1]; i++) {
+			int id = printings[i];
+			if (deck.copiesInDeck(id) > 0) {
+				return cards.get(id);
+			} else if (owned < 0 && deck.getOwned(id) > 0) {
+				owned = id;
+			}
+		}
+		return cards.get(owned >= 0 ? owned : representative[group]);
+	}
+
+	/** @return The number of copies owned over every printing in the group. */
+	public int getOwned(int group, DeckState deck) {
+		int owned = 0;
+		for (int i = firstPrinting[group]; i < firstPrinting[group + 1]; i++) {
+			owned += deck.getOwned(printings[i]);
+		}
+		return owned;
+	}
+
+	/** @return The number of copies in the deck over every printing in the group. */
+	public int copiesInDeck(int group, DeckState deck) {
+		int inDeck = 0;
+		for (int i = firstPrinting[group]; i < firstPrinting[group + 1]; i++) {
+			inDeck += deck.copiesInDeck(printings[i]);
+		}
+		return inDeck;
+	}
+
+	/** @return Whether or not the ban list hits any printing in the group. */
+	public boolean isBanned(int group, DeckState deck) {
+		for (int i = firstPrinting[group]; i < firstPrinting[group + 1]; i++) {
+			if (deck.isBanned(printings[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 Adds up a count over every printing of a card. Removed cards aren't in a group, so they only count themselves.
+	 @param card  The card.
+	 @param count Gets the count for a card id.
+	 @return The total.
+	 */
+	int sumOverPrintings(Card card, IntUnaryOperator count) {
+		int group = getGroup(card);
+		if (group < 0) {
+			return count.applyAsInt(card.id);
+		}
+		int sum = 0;
+		for (int i = firstPrinting[group]; i < firstPrinting[group + 1]; i++) {
+			sum += count.applyAsInt(printings[i]);
+		}
+		return sum;
+	}
+
+	/**
+	 Gets a field of the group's row in a JTable. Valid fields are the public static ints provided by Card.
+	 @param group    The group.
+	 @param field    The field.
+	 @param expanded Whether or not the group's printings are being shown below it, for marking the name.
+	 @return The field, summed over every printing for the owned and deck counts.
+	 */
+	public Comparable<?> get(int group, int field, boolean expanded) {
+		DeckState deck = CardDatabase.getDeckState();
+		switch (field) {
+			case Card.NAME:
+				String name = getRepresentative(group).getName();
+				if (getPrintingCount(group) == 1) {
+					return new CardField<>(name, name);
+				}
+				return new CardField<>(name, (expanded ? "\u25be " : "\u25b8 ") + name + " (" + getPrintingCount(group) + ")");
+			case Card.IN_TRUNK:
+				return new CardField<>(getOwned(group, deck));
+			case Card.IN_DECK:
+				return new CardField<>(copiesInDeck(group, deck));
+			default:
+				return getRepresentative(group).get(field);
+		}
+	}
+
+	/**
+	 Gets a field of a printing's row in a JTable, shown below its group's row. Sorts exactly the same as the group's
+	 row, so the printings always stay together right below it, but shows the printing's own name and counts.
+	 @param group The group.
+	 @param index Which of the group's printings.
+	 @param field The field.
+	 @return The field.
+	 */
+	public Comparable<?> getPrintingField(int group, int index, int field) {
+		Card printing = getPrinting(group, index);
+		DeckState deck = CardDatabase.getDeckState();
+		switch (field) {
+			case Card.NAME:
+				String label = printing.getPrinting().isEmpty() ? "printing " + (index + 1) : printing.getPrinting();
+				return new CardField<>(getRepresentative(group).getName(), "      " + label);
+			case Card.IN_TRUNK:
+				return new CardField<>(getOwned(group, deck), String.valueOf(deck.getOwned(printing)));
+			case Card.IN_DECK:
+				return new CardField<>(copiesInDeck(group, deck), String.valueOf(deck.copiesInDeck(printing)));
+			default:
+				return getRepresentative(group).get(field);
+		}
+	}
+}
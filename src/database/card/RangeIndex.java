@@ -0,0 +1,104 @@
+package database.card;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ Read-only index over one numeric card field, built once when the database loads. Stores every card's value in a
+ sorted primitive array alongside its id, so a range of values is found with two binary searches and turned straight
+ into a set of ids. Cards without a real value for the field (missing or variable stats) aren't indexed at all, so no
+ range ever matches them. */
+public final class RangeIndex {
+	private final float[] values;
+	private final int[] ids;
+	private final int cardCount;
+
+	/**
+	 @param cardList The cards to index, ordered by id.
+	 @param hasValue Whether or not a card has a real value for the field.
+	 @param getter   Gets the value of the field.
+	 */
+	RangeIndex(List<Card> cardList, Predicate<Card> hasValue, ToDoubleFunction<Card> getter) {
+		cardCount = cardList.size();
+
+		//Pack each value and id into a long that sorts by value, so the sort stays on primitives.
+		long[] entries = new long[cardCount];
+		int size = 0;
+		for (Card card : cardList) {
+			if (hasValue.test(card)) {
+				int bits = Float.floatToIntBits((float) getter.applyAsDouble(card));
+				int sortable = bits ^ ((bits >> 31) & 0x7FFFFFFF);
+				entries[size++] = ((long) sortable << 32) | card.id;
+			}
+		}
+		Arrays.sort(entries, 0, size);
+
+		values = new float[size];
+		ids = new int[size];
+		for (int i = 0; i < size; i++) {
+			int sortable = (int) (entries[i] >> 32);
+			values[i] = Float.intBitsToFloat(sortable ^ ((sortable >> 31) & 0x7FFFFFFF));
+			ids[i] = (int) entries[i];
+		}
+	}
+
+	/**
+	 Finds every card with a value inside of a range. Use infinite bounds for one sided ranges.
+	 @param min          Lower bound of the range.
+	 @param includeMin   Whether or not a value equal to min is inside of the range.
+	 @param max          Upper bound of the range.
+	 @param includeMax   Whether or not a value equal to max is inside of the range.
+	 @return The ids of the matching cards.
+	 */
+	public BitSet select(double min, boolean includeMin, double max, boolean includeMax) {
+		BitSet selected = new BitSet(cardCount);
+		int end = upperBound(max, includeMax);
+		for (int i = lowerBound(min, includeMin); i < end; i++) {
+			selected.set(ids[i]);
+		}
+		return selected;
+	}
+
+	/** @return The number of cards inside of a range, without building the set. Takes the same arguments as select. */
+	public int count(double min, boolean includeMin, double max, boolean includeMax) {
+		return Integer.max(upperBound(max, includeMax) - lowerBound(min, includeMin), 0);
+	}
+
+	/** @return The number of cards that have a value for this field. */
+	public int size() {
+		return values.length;
+	}
+
+	//Index of the first value that's inside of the range's lower bound.
+	private int lowerBound(double min, boolean includeMin) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < min || (!includeMin && values[mid] == min)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	//Index just past the last value that's inside of the range's upper bound.
+	private int upperBound(double max, boolean includeMax) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < max || (includeMax && values[mid] == max)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
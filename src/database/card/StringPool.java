@@ -0,0 +1,199 @@
+package database.card;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ Read-only arena of deduplicated UTF-8 strings. Rules text, type lines and keywords repeat a lot between cards,
+ especially reprints, so cards hold an entry number into the pool instead of their own copy. Entries are stored back
+ to back, and entry i runs from offsets[i] up to offsets[i + 1]. Safe to read from any number of threads. */
+public final class StringPool {
+	private final ByteBuffer bytes;
+	private final IntBuffer offsets;
+	//Backing array of bytes, if it has one. Lets searches skip the buffer bounds checks.
+	private final byte[] array;
+	private final int arrayOffset;
+	//Decoded entries handed out by getCached, made the first time it's called. Races only cost a repeat decode.
+	private String[] cache;
+
+	/**
+	 @param bytes   Every entry's UTF-8 bytes, back to back. Must not be changed afterwards.
+	 @param offsets Start of each entry in bytes, followed by the end of the last one.
+	 */
+	StringPool(ByteBuffer bytes, IntBuffer offsets) {
+		this.bytes = bytes;
+		this.offsets = offsets;
+		if (bytes.hasArray()) {
+			array = bytes.array();
+			arrayOffset = bytes.arrayOffset();
+		} else {
+			array = null;
+			arrayOffset = 0;
+		}
+	}
+
+	/** @return The number of distinct strings in the pool. */
+	public int size() {
+		return offsets.limit() - 1;
+	}
+
+	/** @return The total number of bytes used by every entry. */
+	public int byteSize() {
+		return offsets.get(offsets.limit() - 1);
+	}
+
+	/** @return The length of the entry in UTF-8 bytes. */
+	public int length(int entry) {
+		return offsets.get(entry + 1) - offsets.get(entry);
+	}
+
+	/** @return A copy of where each entry starts, followed by where the last one ends. */
+	int[] getOffsets() {
+		int[] copy = new int[offsets.limit()];
+		offsets.duplicate().get(copy);
+		return copy;
+	}
+
+	/** @return A read-only view of every entry's bytes, back to back. */
+	ByteBuffer getBytes() {
+		ByteBuffer view = bytes.asReadOnlyBuffer();
+		view.position(0);
+		view.limit(byteSize());
+		return view;
+	}
+
+	/** @return A new copy of the entry as a String. */
+	public String get(int entry) {
+		int start = offsets.get(entry);
+		int length = offsets.get(entry + 1) - start;
+		if (array != null) {
+			return new String(array, arrayOffset + start, length, StandardCharsets.UTF_8);
+		}
+
+		byte[] copy = new byte[length];
+		for (int i = 0; i < length; i++) {
+			copy[i] = bytes.get(start + i);
+		}
+		return new String(copy, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 Gets an entry as a String, decoding it only the first time. Meant for entries read over and over, like the type
+	 line a table sorts by. Entries are deduplicated, so every card sharing a type line shares one String.
+	 */
+	public String getCached(int entry) {
+		String[] decoded = cache;
+		if (decoded == null) {
+			decoded = new String[size()];
+			cache = decoded;
+		}
+		String string = decoded[entry];
+		if (string == null) {
+			string = get(entry);
+			decoded[entry] = string;
+		}
+		return string;
+	}
+
+	/**
+	 Checks if an entry contains a run of bytes, without decoding it. Works for any UTF-8 text, since a character's
+	 encoding never shows up in the middle of a different character.
+	 @param entry  The entry to search.
+	 @param needle UTF-8 bytes to look for.
+	 @return Whether or not the needle is somewhere in the entry.
+	 */
+	public boolean contains(int entry, byte[] needle) {
+		int start = offsets.get(entry);
+		int last = offsets.get(entry + 1) - needle.length;
+		if (needle.length == 0) {
+			return true;
+		}
+
+		byte first = needle[0];
+		for (int i = start; i <= last; i++) {
+			if (byteAt(i) != first) {
+				continue;
+			}
+			int j = 1;
+			while (j < needle.length && byteAt(i + j) == needle[j]) {
+				j++;
+			}
+			if (j == needle.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** @return Whether or not the entry is exactly the provided UTF-8 bytes. */
+	public boolean equals(int entry, byte[] value) {
+		int start = offsets.get(entry);
+		if (offsets.get(entry + 1) - start != value.length) {
+			return false;
+		}
+
+		for (int i = 0; i < value.length; i++) {
+			if (byteAt(start + i) != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private byte byteAt(int index) {
+		return array != null ? array[arrayOffset + index] : bytes.get(index);
+	}
+
+	/**
+	 Collects strings for a new pool while cards are being loaded. Adding the same string twice returns the same entry.
+	 Not thread safe. */
+	static final class Builder {
+		private final Map<String, Integer> entries = new HashMap<>();
+		private byte[] bytes = new byte[1 << 16];
+		private int byteCount = 0;
+		private int[] offsets = new int[1 << 10];
+
+		/** @return The entry number for the string, adding it to the pool if needed. */
+		int add(String string) {
+			Integer entry = entries.get(string);
+			if (entry != null) {
+				return entry;
+			}
+
+			byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+			if (byteCount + utf8.length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Integer.max(bytes.length * 2, byteCount + utf8.length));
+			}
+			System.arraycopy(utf8, 0, bytes, byteCount, utf8.length);
+
+			int newEntry = entries.size();
+			if (newEntry + 1 >= offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[newEntry] = byteCount;
+			byteCount += utf8.length;
+			offsets[newEntry + 1] = byteCount;
+			entries.put(string, newEntry);
+			return newEntry;
+		}
+
+		/**
+		 @return A pool holding every string added so far, sharing the builder's arrays rather than copying them. Stays
+		 valid while more strings get added, since existing entries are never moved or changed, but only covers the
+		 entries added before it was taken. Must be published to other threads safely.
+		 */
+		StringPool snapshot() {
+			return new StringPool(ByteBuffer.wrap(bytes), IntBuffer.wrap(offsets, 0, entries.size() + 1).slice());
+		}
+
+		/** @return A pool holding every string added so far. The builder must not be used afterwards. */
+		StringPool build() {
+			return new StringPool(ByteBuffer.wrap(Arrays.copyOf(bytes, byteCount)),
+					IntBuffer.wrap(Arrays.copyOf(offsets, entries.size() + 1)));
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package database.card;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ Results of checking .dec files, by the file's contents and everything else the answer depends on: the format, the
+ collection, the ban list, and the card database. Checking the same deck again, like a folder being validated on
+ every build, only costs a hash of the file. Safe to use from several threads at once. */
+final class ValidationCache {
+	//Starts over once it's this big, rather than keeping track of which entries are the oldest.
+	private static final int MAX_ENTRIES = 1 << 14;
+
+	private final Map<Key, List<String>> results = new ConcurrentHashMap<>();
+
+	/** @return The key for a deck with these contents, checked against the rest. */
+	static Key key(ByteBuffer contents, DeckFormat format, DeckState collection, int databaseVersion) {
+		//64 bit FNV-1a.
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0, end = contents.limit(); i < end; i++) {
+			hash ^= contents.get(i) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return new Key(hash, contents.limit(), format.version, collection.getCollectionVersion(),
+				collection.getBanVersion(), databaseVersion);
+	}
+
+	/** @return The problems found the last time a deck with this key was checked, or null if it hasn't been. */
+	List<String> get(Key key) {
+		return results.get(key);
+	}
+
+	void put(Key key, List<String> problems) {
+		if (results.size() >= MAX_ENTRIES) {
+			results.clear();
+		}
+		results.put(key, problems);
+	}
+
+	static final class Key {
+		private final long hash;
+		private final int length;
+		private final long formatVersion;
+		private final long collectionVersion;
+		private final long banVersion;
+		private final int databaseVersion;
+
+		private Key(long hash, int length, long formatVersion, long collectionVersion, long banVersion, int databaseVersion) {
+			this.hash = hash;
+			this.length = length;
+			this.formatVersion = formatVersion;
+			this.collectionVersion = collectionVersion;
+			this.banVersion = banVersion;
+			this.databaseVersion = databaseVersion;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash && length == other.length && formatVersion == other.formatVersion
+					&& collectionVersion == other.collectionVersion && banVersion == other.banVersion
+					&& databaseVersion == other.databaseVersion;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(hash) * 31 + Long.hashCode(collectionVersion ^ banVersion ^ formatVersion) + databaseVersion;
+		}
+	}
+}
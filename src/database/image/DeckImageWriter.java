@@ -0,0 +1,176 @@
+package database.image;
+
+import application.LogTags;
+import ar.com.hjg.pngj.*;
+import database.card.Card;
+import database.card.DeckState;
+import metrics.Histogram;
+import metrics.Metrics;
+import org.tinylog.Level;
+import org.tinylog.Logger;
+import org.tinylog.TaggedLogger;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+
+/**
+ Writes decks out as pages of card images. Kept apart from ImageStore so the png library is only loaded by an export,
+ rather than whenever an image is shown. */
+final class DeckImageWriter {
+	private DeckImageWriter() {
+	}
+
+	private static final int CARD_SIZE_X = 480;
+	private static final int CARD_SIZE_Y = 680;
+	private static final int CARDS_X = 10;
+	private static final int CARDS_Y = 7;
+	private static final int IMAGE_SIZE_X = CARD_SIZE_X * CARDS_X;
+	private static final int IMAGE_SIZE_Y = CARD_SIZE_Y * CARDS_Y;
+	private static final Histogram deckImagePageTime = Metrics.histogram("deckImage.page");
+
+	/** Writes the deck image pages. Only called through ImageStore.writeDeckImage, which keeps exports one at a time. */
+	static void write(DeckState deck, File filepath) {
+		PngWriter currDeckImage = null;
+		TaggedLogger log = Logger.tag(LogTags.DECK_IMAGE.tag);
+		try {
+			log.info("Writing new deck image with {} cards.", deck.getDeckSize());
+
+			final ImageInfo imageInfo = new ImageInfo(IMAGE_SIZE_X, IMAGE_SIZE_Y, 8, false);
+			final ImageLineInt writerLine = new ImageLineInt(imageInfo);
+			final DataBuffer[] activeBuffers = new DataBuffer[CARDS_X];
+
+			boolean firstCard = true;
+			Iterable<Card> cards = deck.getDeckCards();
+			Iterator<Card> cardIterator = cards.iterator();
+			Card card = null;
+			int currCardCopy = 0;
+			boolean writeFlipped = false;
+
+			int pageNum = 0;
+			final String parentPath = filepath.getParent() + File.separator;
+			final String baseFilename = filepath.getName().substring(0, filepath.getName().lastIndexOf('.'));
+			final String ext = filepath.getName().substring(filepath.getName().lastIndexOf('.'));
+
+			while (cardIterator.hasNext()) {
+				if (firstCard) {
+					card = cardIterator.next();
+					firstCard = false;
+				}
+
+				//Each loop iteration writes a png 'page'.
+				long pageStart = System.nanoTime();
+				DeckPageEvent pageEvent = new DeckPageEvent();
+				pageEvent.begin();
+				int pageCards = 0;
+				{
+					File currFile = new File(parentPath + baseFilename + (writeFlipped ? "_back_" : "_") + pageNum++ + ext);
+					log.info("Writing to {}", filepath.getName());
+					currDeckImage = new PngWriter(currFile, imageInfo);
+					pageEvent.file = currFile.getName();
+				}
+				boolean logBuffers = LogTags.DECK_IMAGE.isEnabled(Level.DEBUG);
+
+				//Whenever we reach a row the current cards don't extend into, get the new active buffers.
+				boolean lastCardOnPage = false;
+				for (int y = 0; y < IMAGE_SIZE_Y; y++) {
+					if (y % CARD_SIZE_Y == 0) {
+						if (logBuffers) {
+							log.debug("Getting image buffers.");
+						}
+						for (int index = 0; index < CARDS_X; index++) {
+							if (card == null && !lastCardOnPage) { //When out of cards, clear buffers and print blackspace.
+								if (logBuffers) {
+									log.debug("Getting null buffer.");
+								}
+								activeBuffers[index] = null;
+							//Print a card back as the last card on a given page to avoid play issues with dual face cards.
+							} else if (lastCardOnPage || (y == IMAGE_SIZE_Y - CARD_SIZE_Y && index + 1 == CARDS_X)) {
+								if (logBuffers) {
+									log.debug("Getting buffer for default card back.");
+								}
+								activeBuffers[index] = ImageStore.getDefaultCardBack().getRaster().getDataBuffer();
+								lastCardOnPage = false;
+							} else {
+								if (logBuffers) {
+									log.debug("Getting buffer for card {}", card.getName());
+								}
+
+								BufferedImage image = null;
+								URL imageUrl = writeFlipped ? card.getBackImageUrl() : card.getFrontImageUrl();
+								if (imageUrl != null) {
+									image = ImageStore.getImageFromScryfall(writeFlipped ? card.getBackImageUrl() : card.getFrontImageUrl());
+								}
+								if (image == null) {
+									image = ImageStore.getDefaultCardBack();
+								}
+
+								activeBuffers[index] = image.getRaster().getDataBuffer();
+								pageCards++;
+								currCardCopy++;
+								if (currCardCopy >= deck.copiesInDeck(card)) {
+									if (cardIterator.hasNext()) {
+										card = cardIterator.next();
+										currCardCopy = 0;
+									} else {
+										card = null;
+										lastCardOnPage = true;
+									}
+								}
+							}
+						}
+					}
+
+					//Write the current row in the image.
+					for (int cardX = 0; cardX < CARDS_X; cardX++) {
+						DataBuffer cardBuffer = activeBuffers[cardX];
+						if (cardBuffer != null) {
+							for (int x = 0; x < CARD_SIZE_X; x++) {
+								int outIndex = 3 * (x + cardX * CARD_SIZE_X);
+								int cardIndex = 3 * (x + ((y % CARD_SIZE_Y) * CARD_SIZE_X));
+								writerLine.getScanline()[outIndex] = cardBuffer.getElem(cardIndex + 2);     //R
+								writerLine.getScanline()[outIndex + 1] = cardBuffer.getElem(cardIndex + 1); //G
+								writerLine.getScanline()[outIndex + 2] = cardBuffer.getElem(cardIndex);        //B
+							}
+						} else {
+							for (int x = 3 * cardX * CARD_SIZE_X; x < 3 * (cardX * CARD_SIZE_X + CARD_SIZE_X); x++) {
+								writerLine.getScanline()[x] = 0;
+							}
+						}
+					}
+					currDeckImage.writeRow(writerLine);
+				}
+
+				log.info("Deck image written.");
+				currDeckImage.end();
+				deckImagePageTime.recordSince(pageStart);
+				pageEvent.end();
+				if (pageEvent.shouldCommit()) {
+					pageEvent.backFaces = writeFlipped;
+					pageEvent.cards = pageCards;
+					pageEvent.commit();
+				}
+				if (!cardIterator.hasNext() && !writeFlipped) {
+					log.info("Flipping cards.");
+					writeFlipped = true;
+					cardIterator = cards.iterator();
+					firstCard = true;
+					currCardCopy = 0;
+					pageNum = 0;
+				}
+			}
+			currDeckImage = null;
+		} catch (PngjException | IOException e) {
+			log.error(e, "Unable to write image.");
+		} catch (InterruptedException e) {
+			log.error("Image loading interrupted.");
+		} finally {
+			if (currDeckImage != null) {
+				currDeckImage.close();
+			}
+		}
+	}
+}
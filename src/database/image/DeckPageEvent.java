@@ -0,0 +1,21 @@
+package database.image;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight recorder event covering one page of a deck image being rendered and written. */
+@Name("mtgdeckbuddy.DeckImagePage")
+@Label("Deck Image Page")
+@Category({"MtgDeckBuddy", "Images"})
+final class DeckPageEvent extends Event {
+	@Label("File")
+	String file;
+
+	@Label("Back Faces")
+	boolean backFaces;
+
+	@Label("Cards")
+	int cards;
+}
@@ -0,0 +1,35 @@
+package database.image;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Flight recorder event covering one request for a card image. */
+@Name("mtgdeckbuddy.ImageFetch")
+@Label("Image Fetch")
+@Category({"MtgDeckBuddy", "Images"})
+final class ImageFetchEvent extends Event {
+	@Label("URL")
+	String url;
+
+	@Label("Source")
+	@Description("memory if the image was cached, network if it was downloaded, or failed.")
+	String source;
+
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+	@Label("Rate Limit Wait")
+	@Timespan
+	long waitTime;
+
+	@Label("Transfer Time")
+	@Description("Time spent downloading and decoding the image.")
+	@Timespan
+	long transferTime;
+}
@@ -2,6 +2,7 @@ package database.image;
 
 import application.LogTags;
 import database.card.Card;
+import metrics.Metrics;
 import org.tinylog.Logger;
 
 import java.util.Collection;
@@ -20,34 +21,8 @@ public class ImagePrefetchThread {
 			try {
 				Logger.tag(LogTags.PREFETCH.tag).info("Prefetching cards.");
 				//No point trying to prefetch more images than can be cached.
-				int prefetchPool = ImageStore.MAX_CACHED_IMAGES;
-				Card currentCard = guiPrefetchQueue.poll();
-				while (currentCard != null && prefetchPool > 0) {
-					Logger.tag(LogTags.PREFETCH.tag).trace("Prefetching card for gui {}.", currentCard.getName());
-					if (currentCard.frontImageUrl != null) {
-						ImageStore.getImageFromScryfall(currentCard.frontImageUrl);
-						prefetchPool--;
-					}
-					if (currentCard.backImageUrl != null) {
-						ImageStore.getImageFromScryfall(currentCard.backImageUrl);
-						prefetchPool--;
-					}
-					currentCard = guiPrefetchQueue.poll();
-				}
-
-				currentCard = deckPrefetchQueue.poll();
-				while (currentCard != null && prefetchPool > 0) {
-					Logger.tag(LogTags.PREFETCH.tag).trace("Prefetching card for deck {}.", currentCard.getName());
-					if (currentCard.frontImageUrl != null) {
-						ImageStore.getImageFromScryfall(currentCard.frontImageUrl);
-						prefetchPool--;
-					}
-					if (currentCard.backImageUrl != null) {
-						ImageStore.getImageFromScryfall(currentCard.backImageUrl);
-						prefetchPool--;
-					}
-					currentCard = deckPrefetchQueue.poll();
-				}
+				int prefetchPool = prefetch(guiPrefetchQueue, "gui", ImageStore.MAX_CACHED_IMAGES);
+				prefetch(deckPrefetchQueue, "deck", prefetchPool);
 
 				Logger.tag(LogTags.PREFETCH.tag).info("Prefetching complete.");
 				synchronized (imagePrefetchActive) {
@@ -65,6 +40,52 @@ public class ImagePrefetchThread {
 		prefetchThread.setName("Image Prefetcher");
 		prefetchThread.start();
 		prefetchThread.setPriority(1);
+		Metrics.gauge("image.prefetch.queue", () -> guiPrefetchQueue.size() + deckPrefetchQueue.size());
+	}
+
+	/**
+	 Fetches images for cards from a queue, until either the queue or the pool runs out.
+	 @param queue        Cards to fetch images for. Cards are removed as they're fetched.
+	 @param queueName    Name of the queue, for logging.
+	 @param prefetchPool The number of images that can still be fetched.
+	 @return What's left of the pool.
+	 @throws InterruptedException If the prefetch lists changed partway through.
+	 */
+	private static int prefetch(Deque<Card> queue, String queueName, int prefetchPool) throws InterruptedException {
+		PrefetchBatchEvent event = new PrefetchBatchEvent();
+		event.begin();
+		int cards = 0;
+		int images = 0;
+		boolean finished = false;
+		try {
+			Card currentCard = queue.poll();
+			while (currentCard != null && prefetchPool > 0) {
+				Logger.tag(LogTags.PREFETCH.tag).trace("Prefetching card for {} {}.", queueName, currentCard.getName());
+				if (currentCard.getFrontImageUrl() != null) {
+					ImageStore.getImageFromScryfall(currentCard.getFrontImageUrl());
+					prefetchPool--;
+					images++;
+				}
+				if (currentCard.getBackImageUrl() != null) {
+					ImageStore.getImageFromScryfall(currentCard.getBackImageUrl());
+					prefetchPool--;
+					images++;
+				}
+				cards++;
+				currentCard = queue.poll();
+			}
+			finished = true;
+			return prefetchPool;
+		} finally {
+			event.end();
+			if (cards > 0 && event.shouldCommit()) {
+				event.queue = queueName;
+				event.cards = cards;
+				event.images = images;
+				event.interrupted = !finished;
+				event.commit();
+			}
+		}
 	}
 
 	public static void setPrefetchList(Collection<Card> cards) {
@@ -1,19 +1,23 @@
 package database.image;
 
 import application.LogTags;
-import ar.com.hjg.pngj.*;
 import database.card.Card;
+import database.card.DeckState;
 import gui.UIConstants;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
 import org.tinylog.Logger;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 public class ImageStore {
@@ -22,16 +26,32 @@ public class ImageStore {
 
 	private static final long MIN_REQUEST_DELAY = 100;
 	static final int MAX_CACHED_IMAGES = 60;
+	//Decoded the first time it's needed. Only touched with defaultCardBackLock held.
 	private static BufferedImage defaultCardBack;
+	private static final Object defaultCardBackLock = new Object();
 	private static final Map<String, BufferedImage> remoteImageCache = new WeakHashMap<>(MAX_CACHED_IMAGES);
 	private static final Set<String> cachedImageList = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
 		@Override
 		protected boolean removeEldestEntry(Map.Entry eldest) {
-			return size() > MAX_CACHED_IMAGES;
+			if (size() > MAX_CACHED_IMAGES) {
+				cacheEvictions.increment();
+				return true;
+			}
+			return false;
 		}
 	});
 	private static long lastRequestTime = 0;
 
+	private static final Counter cacheHits = Metrics.counter("image.cache.hits");
+	private static final Counter cacheMisses = Metrics.counter("image.cache.misses");
+	private static final Counter cacheEvictions = Metrics.counter("image.cache.evictions");
+	private static final Histogram rateLimitWait = Metrics.histogram("image.rateLimitWait");
+	private static final Histogram downloadTime = Metrics.histogram("image.download");
+	private static final Counter downloadBytes = Metrics.counter("image.download.bytes");
+	private static final Counter downloadFailures = Metrics.counter("image.download.failures");
+	private static final Counter thumbnailDiskHits = Metrics.counter("image.thumbnail.diskHits");
+	private static final File THUMBNAIL_DIRECTORY = new File("cache", "thumbnails");
+
 	/**
 	 * Returns an image icon from the jar file based on the provided path.
 	 *
@@ -45,8 +65,7 @@ public class ImageStore {
 			//noinspection StringEquality
 			if (path == "images/defaultcardback.jpg") {
 				try {
-					defaultCardBack = ImageIO.read(resourceId);
-					return new ScaleableImageIcon(defaultCardBack);
+					return new ScaleableImageIcon(getDefaultCardBack());
 				} catch (IOException e) {
 					//If this fires, then the path that was provided was incorrect or something is missing from the jar.
 					throw new RuntimeException(e);
@@ -74,6 +93,32 @@ public class ImageStore {
 		return icon;
 	}
 
+	//Shared by the GUI's card back icon and deck image exports.
+	static BufferedImage getDefaultCardBack() throws IOException {
+		synchronized (defaultCardBackLock) {
+			if (defaultCardBack == null) {
+				URL resourceId = ImageStore.class.getClassLoader().getResource("images/defaultcardback.jpg");
+				if (resourceId == null) {
+					throw new FileNotFoundException("images/defaultcardback.jpg is missing from the jar.");
+				}
+				defaultCardBack = ImageIO.read(resourceId);
+			}
+			return defaultCardBack;
+		}
+	}
+
+	/**
+	 Decodes the default card back ahead of time. Meant to be run on its own thread while the GUI is being built, since
+	 the first image read has to load all of ImageIO.
+	 */
+	public static void preloadDefaultCardBack() {
+		try {
+			getDefaultCardBack();
+		} catch (IOException e) {
+			Logger.tag(LogTags.IMAGE_LOAD.tag).error(e, "Unable to load the default card back.");
+		}
+	}
+
 	public static synchronized ImageIcon getCardImage(URL imageUrl) throws InterruptedException {
 		BufferedImage rawImage = getImageFromScryfall(imageUrl);
 		if (rawImage == null) {
@@ -86,161 +131,221 @@ public class ImageStore {
 		return icon;
 	}
 
-	static synchronized BufferedImage getImageFromScryfall(URL imageUrl) throws InterruptedException {
+	/**
+	 * Returns the full size image at the provided URL, from the cache if possible.
+	 *
+	 * @param imageUrl The Scryfall image to get.
+	 * @return The image, or null if it couldn't be loaded.
+	 * @throws InterruptedException If interrupted while waiting to rate limit requests to Scryfall.
+	 */
+	public static synchronized BufferedImage getImageFromScryfall(URL imageUrl) throws InterruptedException {
 		String urlString = imageUrl.toString();
+		ImageFetchEvent event = new ImageFetchEvent();
+		event.begin();
 
 		//Check if we already have the image, and can reuse it first!
 		BufferedImage image = remoteImageCache.get(urlString);
 		if (image != null) {
+			cacheHits.increment();
 			Logger.tag(LogTags.IMAGE_LOAD.tag).debug("Loaded image from cache '{}'.", urlString);
+			commitFetch(event, urlString, "memory", 0, 0, 0);
 			return image;
 		}
+		cacheMisses.increment();
+
+		image = download(imageUrl, event);
+		if (image == null) {
+			return null;
+		}
+		remoteImageCache.put(urlString, image);
+		cachedImageList.add(urlString);
+		return image;
+	}
+
+	/**
+	 Gets a card's front face as a small thumbnail. Thumbnails are saved to the thumbnail folder the first time they're
+	 made from Scryfall's small image, and read back from there afterwards. Only takes the image store's lock when it has
+	 to download, so reading saved thumbnails doesn't wait behind full size images.
+	 @param card The card to get a thumbnail for.
+	 @return The thumbnail, sized to UIConstants.THUMBNAIL_SIZE, or null if the card has no image or it couldn't be loaded.
+	 @throws InterruptedException If interrupted while waiting to rate limit requests to Scryfall.
+	 */
+	static BufferedImage getThumbnail(Card card) throws InterruptedException {
+		URL imageUrl = card.getFrontImageUrl();
+		if (imageUrl == null) {
+			return null;
+		}
+		ImageFetchEvent event = new ImageFetchEvent();
+		event.begin();
+
+		File file = new File(THUMBNAIL_DIRECTORY, card.getScryfallId() + ".jpg");
+		if (file.isFile()) {
+			long readStart = System.nanoTime();
+			try {
+				BufferedImage thumbnail = ImageIO.read(file);
+				if (thumbnail != null) {
+					thumbnailDiskHits.increment();
+					commitFetch(event, file.getPath(), "disk", file.length(), 0, System.nanoTime() - readStart);
+					return thumbnail;
+				}
+			} catch (IOException e) {
+				Logger.tag(LogTags.IMAGE_LOAD.tag).warn(e, "Unable to read thumbnail '{}'. Downloading it again.", file);
+			}
+		}
+
+		BufferedImage image = download(smallImageUrl(imageUrl), event);
+		if (image == null) {
+			return null;
+		}
+		BufferedImage thumbnail = scale(image, UIConstants.THUMBNAIL_SIZE.width, UIConstants.THUMBNAIL_SIZE.height);
+
+		File tempFile = new File(THUMBNAIL_DIRECTORY, file.getName() + ".tmp");
+		try {
+			if (!THUMBNAIL_DIRECTORY.isDirectory() && !THUMBNAIL_DIRECTORY.mkdirs()) {
+				throw new IOException("Unable to create " + THUMBNAIL_DIRECTORY);
+			}
+			if (!ImageIO.write(thumbnail, "jpg", tempFile)) {
+				throw new IOException("No jpg writer available.");
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			//Only costs a download next time.
+			Logger.tag(LogTags.IMAGE_LOAD.tag).warn(e, "Unable to save thumbnail '{}'.", file);
+			//noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+		}
+		return thumbnail;
+	}
+
+	//Scryfall serves every image size under the same path, so the small image is a much lighter download to shrink.
+	private static URL smallImageUrl(URL imageUrl) {
+		String url = imageUrl.toString();
+		if (!url.contains("/border_crop/")) {
+			return imageUrl;
+		}
+		try {
+			return new URL(url.replace("/border_crop/", "/small/"));
+		} catch (MalformedURLException e) {
+			return imageUrl;
+		}
+	}
+
+	//Halves the image until it's within a factor of two of the target, since a single big bilinear step skips pixels.
+	private static BufferedImage scale(BufferedImage image, int width, int height) {
+		BufferedImage scaled = image;
+		int currentWidth = image.getWidth();
+		int currentHeight = image.getHeight();
+		do {
+			currentWidth = Integer.max(currentWidth / 2, width);
+			currentHeight = Integer.max(currentHeight / 2, height);
+			BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = step.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(scaled, 0, 0, currentWidth, currentHeight, null);
+			g.dispose();
+			scaled = step;
+		} while (currentWidth != width || currentHeight != height);
+		return scaled;
+	}
+
+	/**
+	 Downloads an image from Scryfall, waiting first if the last request was too recent.
+	 @param imageUrl The image to download.
+	 @param event    Event to record the download with.
+	 @return The image, or null if it couldn't be downloaded.
+	 @throws InterruptedException If interrupted while waiting to rate limit requests to Scryfall.
+	 */
+	private static synchronized BufferedImage download(URL imageUrl, ImageFetchEvent event) throws InterruptedException {
+		String urlString = imageUrl.toString();
+		long waitTime = 0;
 
 		//Avoid sending too many requests to Scryfall at once and getting blocked.
 		long currentTime = System.currentTimeMillis();
 		if (currentTime < lastRequestTime + MIN_REQUEST_DELAY) {
 			long delay = lastRequestTime + MIN_REQUEST_DELAY - currentTime;
 			Logger.tag(LogTags.IMAGE_LOAD.tag).debug("Delaying request by {}. Last request {}, current request {}.", delay, currentTime, lastRequestTime);
+			long waitStart = System.nanoTime();
 			Thread.sleep(delay);
+			waitTime = System.nanoTime() - waitStart;
+			rateLimitWait.record(waitTime);
 		} else {
 			Logger.tag(LogTags.IMAGE_LOAD.tag).debug("No delay required. Last request {}, current request {}.", currentTime, lastRequestTime);
 		}
 
-		try {
-			image = ImageIO.read(imageUrl);
+		BufferedImage image;
+		long downloadStart = System.nanoTime();
+		try (CountingInputStream in = new CountingInputStream(imageUrl.openStream())) {
+			image = ImageIO.read(in);
+			long transferTime = System.nanoTime() - downloadStart;
+			downloadTime.record(transferTime);
+			downloadBytes.add(in.count);
+			commitFetch(event, urlString, "network", in.count, waitTime, transferTime);
 			Logger.tag(LogTags.IMAGE_LOAD.tag).info("Loaded image from Scryfall '{}'.", urlString);
 		} catch (IOException e) {
+			downloadFailures.increment();
+			commitFetch(event, urlString, "failed", 0, waitTime, System.nanoTime() - downloadStart);
 			Logger.tag(LogTags.IMAGE_LOAD.tag).warn("Unable to load image '{}':\n{}", imageUrl);
 			e.printStackTrace();
 			return null;
 		}
 
 		lastRequestTime = System.currentTimeMillis();
-		remoteImageCache.put(urlString, image);
-		cachedImageList.add(urlString);
 		return image;
 	}
 
-	private static final int CARD_SIZE_X = 480;
-	private static final int CARD_SIZE_Y = 680;
-	private static final int CARDS_X = 10;
-	private static final int CARDS_Y = 7;
-	private static final int IMAGE_SIZE_X = CARD_SIZE_X * CARDS_X;
-	private static final int IMAGE_SIZE_Y = CARD_SIZE_Y * CARDS_Y;
-	public static synchronized void writeDeckImage(Iterable<Card> cards, int deckSize, File filepath) {
-		PngWriter currDeckImage = null;
-		try {
-			Logger.tag(LogTags.DECK_IMAGE.tag).info("Writing new deck image with {} cards.", deckSize);
-
-			final ImageInfo imageInfo = new ImageInfo(IMAGE_SIZE_X, IMAGE_SIZE_Y, 8, false);
-			final ImageLineInt writerLine = new ImageLineInt(imageInfo);
-			final DataBuffer[] activeBuffers = new DataBuffer[CARDS_X];
-
-			boolean firstCard = true;
-			Iterator<Card> cardIterator = cards.iterator();
-			Card card = null;
-			int currCardCopy = 0;
-			boolean writeFlipped = false;
-
-			int pageNum = 0;
-			final String parentPath = filepath.getParent() + File.separator;
-			final String baseFilename = filepath.getName().substring(0, filepath.getName().lastIndexOf('.'));
-			final String ext = filepath.getName().substring(filepath.getName().lastIndexOf('.'));
-
-			while (cardIterator.hasNext()) {
-				if (firstCard) {
-					card = cardIterator.next();
-					firstCard = false;
-				}
+	private static void commitFetch(ImageFetchEvent event, String url, String source, long bytes, long waitTime, long transferTime) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.url = url;
+			event.source = source;
+			event.bytes = bytes;
+			event.waitTime = waitTime;
+			event.transferTime = transferTime;
+			event.commit();
+		}
+	}
 
-				//Each loop iteration writes a png 'page'.
-				{
-					File currFile = new File(parentPath + baseFilename + (writeFlipped ? "_back_" : "_") + pageNum++ + ext);
-					Logger.tag(LogTags.DECK_IMAGE.tag).info("Writing to {}", filepath.getName());
-					currDeckImage = new PngWriter(currFile, imageInfo);
-				}
+	/**
+	 Writes the deck out as pages of card images, for printing or for use in Tabletop Simulator.
+	 @param deck     The deck to write.
+	 @param filepath File to write the first page to. Later pages, and the pages of back faces, get numbered names.
+	 */
+	public static synchronized void writeDeckImage(DeckState deck, File filepath) {
+		//Kept in its own class so that the png library only gets loaded when a deck is actually exported.
+		DeckImageWriter.write(deck, filepath);
+	}
 
-				//Whenever we reach a row the current cards don't extend into, get the new active buffers.
-				boolean lastCardOnPage = false;
-				for (int y = 0; y < IMAGE_SIZE_Y; y++) {
-					if (y % CARD_SIZE_Y == 0) {
-						Logger.tag(LogTags.DECK_IMAGE.tag).debug("Getting image buffers.");
-						for (int index = 0; index < CARDS_X; index++) {
-							if (card == null && !lastCardOnPage) { //When out of cards, clear buffers and print blackspace.
-								Logger.tag(LogTags.DECK_IMAGE.tag).debug("Getting null buffer.");
-								activeBuffers[index] = null;
-							//Print a card back as the last card on a given page to avoid play issues with dual face cards.
-							} else if (lastCardOnPage || (y == IMAGE_SIZE_Y - CARD_SIZE_Y && index + 1 == CARDS_X)) {
-								Logger.tag(LogTags.DECK_IMAGE.tag).debug("Getting buffer for default card back.");
-								activeBuffers[index] = defaultCardBack.getRaster().getDataBuffer();
-								lastCardOnPage = false;
-							} else {
-								Logger.tag(LogTags.DECK_IMAGE.tag).debug("Getting buffer for card {}", card.getName());
-
-								BufferedImage image = null;
-								URL imageUrl = writeFlipped ? card.backImageUrl : card.frontImageUrl;
-								if (imageUrl != null) {
-									image = getImageFromScryfall(writeFlipped ? card.backImageUrl : card.frontImageUrl);
-								}
-								if (image == null) {
-									image = defaultCardBack;
-								}
-
-								activeBuffers[index] = image.getRaster().getDataBuffer();
-								currCardCopy++;
-								if (currCardCopy >= card.copiesInDeck()) {
-									if (cardIterator.hasNext()) {
-										card = cardIterator.next();
-										currCardCopy = 0;
-									} else {
-										card = null;
-										lastCardOnPage = true;
-									}
-								}
-							}
-						}
-					}
-
-					//Write the current row in the image.
-					for (int cardX = 0; cardX < CARDS_X; cardX++) {
-						DataBuffer cardBuffer = activeBuffers[cardX];
-						if (cardBuffer != null) {
-							for (int x = 0; x < CARD_SIZE_X; x++) {
-								int outIndex = 3 * (x + cardX * CARD_SIZE_X);
-								int cardIndex = 3 * (x + ((y % CARD_SIZE_Y) * CARD_SIZE_X));
-								writerLine.getScanline()[outIndex] = cardBuffer.getElem(cardIndex + 2);     //R
-								writerLine.getScanline()[outIndex + 1] = cardBuffer.getElem(cardIndex + 1); //G
-								writerLine.getScanline()[outIndex + 2] = cardBuffer.getElem(cardIndex);        //B
-							}
-						} else {
-							for (int x = 3 * cardX * CARD_SIZE_X; x < 3 * (cardX * CARD_SIZE_X + CARD_SIZE_X); x++) {
-								writerLine.getScanline()[x] = 0;
-							}
-						}
-					}
-					currDeckImage.writeRow(writerLine);
-				}
+	/** Counts the bytes read through it, for download metrics. */
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count = 0;
 
-				Logger.tag(LogTags.DECK_IMAGE.tag).info("Deck image written.");
-				currDeckImage.end();
-				if (!cardIterator.hasNext() && !writeFlipped) {
-					Logger.tag(LogTags.DECK_IMAGE.tag).info("Flipping cards.");
-					writeFlipped = true;
-					cardIterator = cards.iterator();
-					firstCard = true;
-					currCardCopy = 0;
-					pageNum = 0;
-				}
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
 			}
-			currDeckImage = null;
-		} catch (PngjException e) {
-			Logger.tag(LogTags.DECK_IMAGE.tag).error(e, "Unable to write image.");
-		} catch (InterruptedException e) {
-			Logger.tag(LogTags.DECK_IMAGE.tag).error("Image loading interrupted.");
-		} finally {
-			if (currDeckImage != null) {
-				currDeckImage.close();
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count += read;
 			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
 		}
 	}
 
@@ -0,0 +1,27 @@
+package database.image;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight recorder event covering one pass over a prefetch queue. */
+@Name("mtgdeckbuddy.PrefetchBatch")
+@Label("Image Prefetch Batch")
+@Category({"MtgDeckBuddy", "Images"})
+final class PrefetchBatchEvent extends Event {
+	@Label("Queue")
+	@Description("gui for cards near the table's view, deck for cards in the deck.")
+	String queue;
+
+	@Label("Cards")
+	int cards;
+
+	@Label("Images")
+	int images;
+
+	@Label("Interrupted")
+	@Description("Whether the queues changed before the batch finished.")
+	boolean interrupted;
+}
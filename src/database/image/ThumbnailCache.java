@@ -0,0 +1,158 @@
+package database.image;
+
+import application.LogTags;
+import database.card.Card;
+import gui.UIConstants;
+import metrics.Counter;
+import metrics.Metrics;
+import org.tinylog.Logger;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ Card thumbnails for browsing lots of cards at once. Thumbnails are loaded through ImageStore in the background, and
+ kept in slots of one big atlas image, so painting a screen full of them is a set of copies out of a single image
+ rather than one image per card. When the atlas is full, the least recently drawn thumbnail gives up its slot.
+
+ Everything other than the loader thread runs on the event thread. */
+public class ThumbnailCache {
+	private ThumbnailCache() {
+	}
+
+	private static final int SLOTS_X = 16;
+	private static final int SLOTS_Y = 16;
+	/** The most thumbnails that can be in memory at once, so there's no point asking for more than this. */
+	public static final int CAPACITY = SLOTS_X * SLOTS_Y;
+	private static final int WIDTH = UIConstants.THUMBNAIL_SIZE.width;
+	private static final int HEIGHT = UIConstants.THUMBNAIL_SIZE.height;
+	//How long a thumbnail that failed to load is left alone before it's tried again.
+	private static final long RETRY_NANOS = 60_000_000_000L;
+
+	//Made on first use, since it's a fair chunk of memory for something that may never be shown.
+	private static BufferedImage atlas;
+	//Atlas slot of every card in it, by Scryfall id, least recently drawn first.
+	private static final LinkedHashMap<UUID, Integer> slots = new LinkedHashMap<>(CAPACITY, 0.75f, true);
+	private static final BlockingDeque<Card> wanted = new LinkedBlockingDeque<>();
+	//Cards the loader has taken, but not yet handed back. Touched by both threads.
+	private static final Set<UUID> loading = ConcurrentHashMap.newKeySet();
+	//When each card whose thumbnail failed to load can be tried again, so it isn't asked for over and over.
+	private static final Map<UUID, Long> failed = new ConcurrentHashMap<>();
+	private static Runnable loadedListener = null;
+
+	private static final Counter evictions = Metrics.counter("image.thumbnail.evictions");
+
+	static {
+		Thread loader = new Thread(ThumbnailCache::load, "Thumbnail Loader");
+		loader.setDaemon(true);
+		loader.setPriority(Thread.MIN_PRIORITY);
+		loader.start();
+		Metrics.gauge("image.thumbnail.queue", wanted::size);
+	}
+
+	/**
+	 Draws a card's thumbnail, if it's been loaded. Must be called on the event thread.
+	 @return Whether or not there was a thumbnail to draw.
+	 */
+	public static boolean draw(Graphics g, Card card, int x, int y) {
+		Integer slot = slots.get(card.getScryfallId());
+		if (slot == null) {
+			return false;
+		}
+		int sourceX = (slot % SLOTS_X) * WIDTH;
+		int sourceY = (slot / SLOTS_X) * HEIGHT;
+		g.drawImage(atlas, x, y, x + WIDTH, y + HEIGHT, sourceX, sourceY, sourceX + WIDTH, sourceY + HEIGHT, null);
+		return true;
+	}
+
+	/**
+	 Replaces the cards waiting on thumbnails with these ones, which are loaded in order. Cards that are already loaded
+	 or on their way are skipped. Must be called on the event thread.
+	 @param cards The cards to load thumbnails for, most wanted first. Only the first CAPACITY are used.
+	 */
+	public static void request(List<Card> cards) {
+		List<Card> missing = new ArrayList<>();
+		long now = System.nanoTime();
+		for (Card card : cards.subList(0, Integer.min(cards.size(), CAPACITY))) {
+			UUID id = card.getScryfallId();
+			Long retry = failed.get(id);
+			if (card.getFrontImageUrl() != null && !slots.containsKey(id) && !loading.contains(id)
+					&& (retry == null || retry - now <= 0)) {
+				missing.add(card);
+			}
+		}
+		wanted.clear();
+		wanted.addAll(missing);
+		Logger.tag(LogTags.PREFETCH.tag).debug("Requested {} thumbnails.", missing.size());
+	}
+
+	/** Sets something to run on the event thread whenever a thumbnail finishes loading, like a repaint. */
+	public static void setLoadedListener(Runnable listener) {
+		loadedListener = listener;
+	}
+
+	private static void load() {
+		while (true) {
+			Card card;
+			try {
+				card = wanted.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			UUID id = card.getScryfallId();
+			loading.add(id);
+			BufferedImage thumbnail = null;
+			try {
+				thumbnail = ImageStore.getThumbnail(card);
+			} catch (InterruptedException e) {
+				loading.remove(id);
+				return;
+			} catch (RuntimeException e) {
+				Logger.tag(LogTags.IMAGE_LOAD.tag).warn(e, "Unable to load thumbnail for {}.", card.getName());
+			}
+			if (thumbnail == null) {
+				failed.put(id, System.nanoTime() + RETRY_NANOS);
+				loading.remove(id);
+				continue;
+			}
+			failed.remove(id);
+			BufferedImage loaded = thumbnail;
+			SwingUtilities.invokeLater(() -> store(id, loaded));
+		}
+	}
+
+	private static void store(UUID id, BufferedImage thumbnail) {
+		loading.remove(id);
+		if (atlas == null) {
+			atlas = new BufferedImage(SLOTS_X * WIDTH, SLOTS_Y * HEIGHT, BufferedImage.TYPE_INT_RGB);
+		}
+
+		//A card requested again while the loader was taking it can be loaded twice, so it keeps the slot it already has.
+		Integer existing = slots.get(id);
+		int slot;
+		if (existing != null) {
+			slot = existing;
+		} else if (slots.size() < CAPACITY) {
+			slot = slots.size();
+		} else {
+			Iterator<Map.Entry<UUID, Integer>> eldest = slots.entrySet().iterator();
+			slot = eldest.next().getValue();
+			eldest.remove();
+			evictions.increment();
+		}
+		slots.put(id, slot);
+
+		Graphics2D g = atlas.createGraphics();
+		g.drawImage(thumbnail, (slot % SLOTS_X) * WIDTH, (slot / SLOTS_X) * HEIGHT, WIDTH, HEIGHT, null);
+		g.dispose();
+		if (loadedListener != null) {
+			loadedListener.run();
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package gui;
+
+import application.LogTags;
+import metrics.Counter;
+import metrics.Metrics;
+import org.tinylog.Logger;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ Catches the event thread taking too long on a single event. A background thread checks on whatever event is being
+ dispatched, and once it passes the threshold, grabs the event thread's stack to show where the time is going. Stalls
+ are grouped by event type and the innermost MtgDeckBuddy frame, and the worst groups are written to a report on exit.
+
+ Off by default, since sampling stacks isn't free. Turned on with -Dmtgdeckbuddy.edt.stallMillis=<milliseconds>. The
+ report goes to edt-stalls.txt, or -Dmtgdeckbuddy.edt.report=<file>. */
+final class EdtWatchdog {
+	private static final int REPORTED_STALLS = 10;
+	private static final int REPORTED_FRAMES = 15;
+	private static final String DEFAULT_REPORT_FILE = "edt-stalls.txt";
+	private static final Counter stallCount = Metrics.counter("ui.edt.stalls");
+
+	private final long thresholdNanos;
+	//Event being dispatched right now, or null while the event thread is idle. Only set by the event thread.
+	private volatile Dispatch current;
+	//Event thread stack taken during the current stall, if the watchdog got to it in time.
+	private final AtomicReference<Sample> sample = new AtomicReference<>();
+	//Stall groups by event and frame. Only touched with the watchdog locked.
+	private final Map<String, Stall> stalls = new HashMap<>();
+
+	private EdtWatchdog(long thresholdNanos) {
+		this.thresholdNanos = thresholdNanos;
+	}
+
+	/** @return A started watchdog if one was asked for, otherwise null. */
+	static EdtWatchdog startIfEnabled() {
+		Long thresholdMillis = Long.getLong("mtgdeckbuddy.edt.stallMillis");
+		if (thresholdMillis == null || thresholdMillis <= 0) {
+			return null;
+		}
+
+		EdtWatchdog watchdog = new EdtWatchdog(TimeUnit.MILLISECONDS.toNanos(thresholdMillis));
+		Thread thread = new Thread(watchdog::watch, "EDT Watchdog");
+		thread.setDaemon(true);
+		thread.start();
+		File reportFile = new File(System.getProperty("mtgdeckbuddy.edt.report", DEFAULT_REPORT_FILE));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> watchdog.writeReport(reportFile), "EDT Watchdog Report"));
+		Logger.tag(LogTags.EDT_WATCHDOG.tag).info("Watching for event thread stalls over {}ms.", thresholdMillis);
+		return watchdog;
+	}
+
+	/**
+	 Called on the event thread before dispatching an event.
+	 @return The dispatch this one interrupts, to hand back to dispatchFinished. Dispatches nest when something like
+	 a modal dialog runs its own event loop.
+	 */
+	Object dispatchStarted(AWTEvent event, long startNanos) {
+		Dispatch outer = current;
+		current = new Dispatch(event, Thread.currentThread(), startNanos);
+		return outer;
+	}
+
+	/**
+	 Called on the event thread once an event has been dispatched.
+	 @param outer Whatever dispatchStarted returned.
+	 */
+	void dispatchFinished(Object outer) {
+		long now = System.nanoTime();
+		Dispatch dispatch = current;
+		//The outer event was only waiting on the nested loop, so its clock restarts rather than counting that time.
+		current = outer == null ? null : ((Dispatch) outer).resumed(now);
+
+		long elapsed = now - dispatch.startNanos;
+		if (elapsed < thresholdNanos) {
+			return;
+		}
+		Sample taken = sample.getAndSet(null);
+		StackTraceElement[] stack = taken != null && taken.dispatch == dispatch ? taken.stack : null;
+		stallCount.increment();
+		record(dispatch.describe(), stack, elapsed);
+	}
+
+	private void watch() {
+		long pollMillis = Long.max(TimeUnit.NANOSECONDS.toMillis(thresholdNanos) / 4, 1);
+		Dispatch sampled = null;
+		while (true) {
+			try {
+				Thread.sleep(pollMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			Dispatch dispatch = current;
+			if (dispatch == null || dispatch == sampled || System.nanoTime() - dispatch.startNanos < thresholdNanos) {
+				continue;
+			}
+			StackTraceElement[] stack = dispatch.thread.getStackTrace();
+			//Only keep it if the same event is still running, otherwise the stack is from something else.
+			if (current == dispatch) {
+				sample.set(new Sample(dispatch, stack));
+			}
+			sampled = dispatch;
+		}
+	}
+
+	private synchronized void record(String event, StackTraceElement[] stack, long elapsedNanos) {
+		String frame = stack == null ? "unknown" : ownFrame(stack);
+		Stall stall = stalls.computeIfAbsent(event + " in " + frame, (key) -> new Stall());
+		stall.count++;
+		stall.totalNanos += elapsedNanos;
+		if (elapsedNanos >= stall.maxNanos) {
+			stall.maxNanos = elapsedNanos;
+			if (stack != null) {
+				stall.stack = stack;
+			}
+		}
+		Logger.tag(LogTags.EDT_WATCHDOG.tag).info("Event thread spent {}ms on {} in {}.",
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), event, frame);
+	}
+
+	/** @return The stall groups that took the most time in total, worst first, with a sample stack for each. */
+	synchronized String report() {
+		List<Map.Entry<String, Stall>> worst = new ArrayList<>(stalls.entrySet());
+		worst.sort((a, b) -> Long.compare(b.getValue().totalNanos, a.getValue().totalNanos));
+
+		StringBuilder report = new StringBuilder();
+		for (Map.Entry<String, Stall> entry : worst.subList(0, Integer.min(REPORTED_STALLS, worst.size()))) {
+			Stall stall = entry.getValue();
+			report.append(entry.getKey())
+					.append(": ").append(stall.count).append(" stalls, ")
+					.append(TimeUnit.NANOSECONDS.toMillis(stall.totalNanos)).append("ms total, ")
+					.append(TimeUnit.NANOSECONDS.toMillis(stall.maxNanos)).append("ms worst\n");
+			if (stall.stack != null) {
+				for (int i = 0; i < Integer.min(REPORTED_FRAMES, stall.stack.length); i++) {
+					report.append("\tat ").append(stall.stack[i]).append('\n');
+				}
+			}
+		}
+		return report.toString();
+	}
+
+	//Goes to a file rather than the log, since the logger may already be shut down by the time this runs.
+	private void writeReport(File file) {
+		String report = "Worst event thread stalls over " + TimeUnit.NANOSECONDS.toMillis(thresholdNanos) + "ms:\n" + report();
+		try {
+			Files.write(file.toPath(), report.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			Logger.tag(LogTags.EDT_WATCHDOG.tag).warn(e, "Unable to write event thread stalls to {}.", file.getAbsolutePath());
+		}
+	}
+
+	//Innermost frame from our own code, since the top of the stack is usually somewhere in Swing or the JDK.
+	private static String ownFrame(StackTraceElement[] stack) {
+		for (StackTraceElement frame : stack) {
+			String className = frame.getClassName();
+			if (!className.startsWith("java.") && !className.startsWith("javax.") && !className.startsWith("sun.")
+					&& !className.startsWith("jdk.") && !className.startsWith("com.sun.") && !className.startsWith("com.formdev.")
+					&& !className.equals(TimedEventQueue.class.getName())) {
+				return className + "." + frame.getMethodName() + "(" + frame.getFileName() + ":" + frame.getLineNumber() + ")";
+			}
+		}
+		return stack.length > 0 ? stack[0].toString() : "unknown";
+	}
+
+	private static final class Dispatch {
+		private final AWTEvent event;
+		private final Thread thread;
+		private final long startNanos;
+
+		private Dispatch(AWTEvent event, Thread thread, long startNanos) {
+			this.event = event;
+			this.thread = thread;
+			this.startNanos = startNanos;
+		}
+
+		private Dispatch resumed(long nanos) {
+			return new Dispatch(event, thread, nanos);
+		}
+
+		private String describe() {
+			return event.getClass().getSimpleName() + " from " + event.getSource().getClass().getSimpleName();
+		}
+	}
+
+	private static final class Sample {
+		private final Dispatch dispatch;
+		private final StackTraceElement[] stack;
+
+		private Sample(Dispatch dispatch, StackTraceElement[] stack) {
+			this.dispatch = dispatch;
+			this.stack = stack;
+		}
+	}
+
+	private static final class Stall {
+		private int count;
+		private long totalNanos;
+		private long maxNanos;
+		private StackTraceElement[] stack;
+	}
+}
@@ -1,8 +1,11 @@
 package gui;
 
 import application.LogTags;
+import application.StartupTimeline;
 import com.formdev.flatlaf.FlatDarkLaf;
 import database.card.Card;
+import database.card.DeckState;
+import database.image.ImageStore;
 import gui.panes.CardFilterPane;
 import gui.panes.CardInfoPane;
 import gui.panes.CardListPane;
@@ -11,7 +14,10 @@ import gui.panes.models.CardTableModel;
 import org.tinylog.Logger;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Gui {
 	private static CardListPane cardListGui;
@@ -21,14 +27,23 @@ public class Gui {
 	private static JFrame frame;
 
 	private static final CountDownLatch guiAvailable = new CountDownLatch(1);
+	//Updates that arrived before the window existed, run in order once it does. Guarded by itself.
+	private static final List<Runnable> pendingUpdates = new ArrayList<>();
 	private static boolean isDeckLocked = false;
+	//Whether or not newly loaded cards are already waiting to be added to the table.
+	private static final AtomicBoolean loadedRowsPending = new AtomicBoolean(false);
 
 	private Gui() {
 	}
 
 	public static void init() {
 		Logger.tag(LogTags.UI_SYNC.tag).info("Initializing GUI.");
+		//The first image read loads all of ImageIO, so the card back is decoded while the look and feel is set up.
+		Thread preload = new Thread(ImageStore::preloadDefaultCardBack, "Card Back Preload");
+		preload.setDaemon(true);
+		preload.start();
 		FlatDarkLaf.setup();
+		TimedEventQueue.install();
 		SwingUtilities.invokeLater(() -> {
 			cardFilterGui = new CardFilterPane();
 			cardListGui = new CardListPane();
@@ -62,90 +77,122 @@ public class Gui {
 			frame.pack();
 			frame.setMinimumSize(frame.getSize());
 			frame.setVisible(true);
-			guiAvailable.countDown();
+			List<Runnable> pending;
+			synchronized (pendingUpdates) {
+				guiAvailable.countDown();
+				pending = new ArrayList<>(pendingUpdates);
+				pendingUpdates.clear();
+			}
 			Logger.tag(LogTags.UI_SYNC.tag).info("GUI Initialized.");
+			StartupTimeline.mark(StartupTimeline.Milestone.WINDOW_VISIBLE);
+			pending.forEach(Runnable::run);
 		});
 	}
 
 	public static void setBusyLoading(boolean isBusy) {
-		SwingUtilities.invokeLater(() -> {
-			if (guiAvailable.getCount() == 0) {
-				cardListGui.setBusy(isBusy || isDeckLocked);
-			} else {
-				setBusyLoading(isBusy);
-			}
-		});
+		whenAvailable(() -> cardListGui.setBusy(isBusy || isDeckLocked));
+	}
+
+	/** Refreshes the card table after the card database has been updated. Returns immediately. */
+	public static void cardDatabaseUpdated() {
+		whenAvailable(() -> cardListGui.updateTable());
 	}
 
-	public static void setDeckSize(int value) {
-		SwingUtilities.invokeLater(() -> menuBar.setDeckSizeCounter(value));
+	/**
+	 Adds cards to the table while the card database is still loading. Returns immediately. Batches arrive faster than
+	 the table can take them, so only one update is queued at a time, and it picks up every card loaded by then.
+	 */
+	public static void cardsLoaded() {
+		if (!loadedRowsPending.getAndSet(true)) {
+			addLoadedRows();
+		}
+	}
+
+	private static void addLoadedRows() {
+		whenAvailable(() -> {
+			loadedRowsPending.set(false);
+			cardListGui.initTable();
+			if (cardListGui.getRowCount() > 0) {
+				StartupTimeline.mark(StartupTimeline.Milestone.TABLE_POPULATED);
+			}
+		});
 	}
 
 	public static void initializeCardListTable() {
-		SwingUtilities.invokeLater(() -> cardListGui.initTable());
+		whenAvailable(() -> {
+			cardListGui.initTable();
+			//A database loaded from the store comes in all at once, without any partial tables before it.
+			StartupTimeline.mark(StartupTimeline.Milestone.TABLE_POPULATED);
+			StartupTimeline.mark(StartupTimeline.Milestone.TABLE_COMPLETE);
+		});
 	}
 
 	public static void setSelectedCard(Card card, ImageIcon front, ImageIcon back) {
-		SwingUtilities.invokeLater(() -> cardInfoGui.setCard(card, front, back));
+		SwingUtilities.invokeLater(() -> {
+			cardInfoGui.setCard(card, front, back);
+			if (front != null) {
+				StartupTimeline.mark(StartupTimeline.Milestone.FIRST_IMAGE);
+			}
+		});
 	}
 
 	public static void setCardFilter(RowFilter<CardTableModel, Integer> filter) {
 		SwingUtilities.invokeLater(() -> cardListGui.setFilter(filter));
 	}
 
-	public static void updateCardInfo(int id) {
-		SwingUtilities.invokeLater(() -> cardListGui.updateRow(id));
+	/**
+	 Enables or disables everything in the UI that can edit the deck. Returns immediately.
+	 @param enabled Whether or not deck editing should be enabled.
+	 */
+	public static void setDeckEditingEnabled(boolean enabled) {
+		whenAvailable(() -> {
+			Logger.tag(LogTags.UI_SYNC.tag).info(enabled ? "Unlocking deck editing." : "Locking deck editing.");
+			isDeckLocked = !enabled;
+			cardInfoGui.setEnableDeckEditing(enabled);
+			menuBar.setEnableDeckEditing(enabled);
+			cardListGui.setBusy(!enabled);
+		});
 	}
 
-	public static void editDeck(Runnable action) {
-		lockDeck();
-		action.run();
-		unlockDeck();
+	/**
+	 Called by the database worker whenever the problems with the deck change. Returns immediately.
+	 @param problems Every problem with the deck, in the current format.
+	 */
+	public static void deckProblemsChanged(List<String> problems) {
+		whenAvailable(() -> menuBar.setDeckProblems(problems));
 	}
 
-	private static void lockDeck() {
-		Object lock = new Object();
-		SwingUtilities.invokeLater(() -> {
-			Logger.tag(LogTags.UI_SYNC.tag).info("Locking deck editing.");
-			isDeckLocked = true;
-			cardInfoGui.setEnableDeckEditing(false);
-			menuBar.setEnableDeckEditing(false);
-			cardListGui.setBusy(true);
-			synchronized (lock) {
-				lock.notifyAll();
-			}
-		});
-		try {
-			synchronized (lock) {
-				lock.wait();
+	/**
+	 Called by the database worker whenever a batch of deck edits has been applied. Returns immediately.
+	 @param deck         The newly published deck state.
+	 @param changedCards Ids of the cards that changed, or null if too many changed to update one by one.
+	 */
+	public static void deckStateChanged(DeckState deck, int[] changedCards) {
+		whenAvailable(() -> {
+			menuBar.setDeckStats(deck.getStats());
+			if (changedCards == null) {
+				cardListGui.updateTable();
+			} else {
+				for (int id : changedCards) {
+					cardListGui.updateRow(id);
+				}
 			}
-		} catch (InterruptedException e) {
-			//Nothing to do.
-		}
-	}
-
-	private static void unlockDeck() {
-		Object lock = new Object();
-		SwingUtilities.invokeLater(() -> {
-			Logger.tag(LogTags.UI_SYNC.tag).info("Unlocking deck editing.");
-			isDeckLocked = false;
-			cardInfoGui.setEnableDeckEditing(true);
-			menuBar.setEnableDeckEditing(true);
-			cardListGui.setBusy(false);
-			cardListGui.updateTable();
 			cardInfoGui.tryEnableAddButton();
 			cardInfoGui.tryEnableRemoveButton();
-			synchronized (lock) {
-				lock.notifyAll();
-			}
 		});
-		try {
-			synchronized (lock) {
-				lock.wait();
+	}
+
+	/** Runs the update on the event dispatch thread once the window exists, after any updates that came before it. */
+	private static void whenAvailable(Runnable update) {
+		if (guiAvailable.getCount() != 0) {
+			synchronized (pendingUpdates) {
+				if (guiAvailable.getCount() != 0) {
+					pendingUpdates.add(update);
+					return;
+				}
 			}
-		} catch (InterruptedException e) {
-			//Nothing to do.
 		}
+		SwingUtilities.invokeLater(update);
 	}
 
 	public static JFrame getFrame() {
@@ -0,0 +1,63 @@
+package gui;
+
+import application.UserInterface;
+import database.card.Card;
+import database.card.DeckState;
+import database.image.ImagePrefetchThread;
+
+import javax.swing.*;
+import java.util.List;
+
+/**
+ Routes updates from the card database to the Swing GUI. */
+public class SwingInterface implements UserInterface {
+	@Override
+	public void setBusyLoading(boolean isBusy) {
+		Gui.setBusyLoading(isBusy);
+	}
+
+	@Override
+	public void cardsLoaded() {
+		Gui.cardsLoaded();
+	}
+
+	@Override
+	public void databaseLoaded() {
+		Gui.initializeCardListTable();
+	}
+
+	@Override
+	public void databaseUpdated() {
+		Gui.cardDatabaseUpdated();
+	}
+
+	@Override
+	public void deckStateChanged(DeckState deck, int[] changedCards) {
+		Gui.deckStateChanged(deck, changedCards);
+	}
+
+	@Override
+	public void deckCardsChanged(List<Card> deckCards) {
+		ImagePrefetchThread.setDeckPrefetchList(deckCards);
+	}
+
+	@Override
+	public void deckProblemsChanged(List<String> problems) {
+		Gui.deckProblemsChanged(problems);
+	}
+
+	@Override
+	public void setDeckEditingEnabled(boolean enabled) {
+		Gui.setDeckEditingEnabled(enabled);
+	}
+
+	@Override
+	public void setSelectedCard(Card card, ImageIcon front, ImageIcon back) {
+		Gui.setSelectedCard(card, front, back);
+	}
+
+	@Override
+	public void showMessage(String message) {
+		SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(Gui.getFrame(), message));
+	}
+}
@@ -0,0 +1,43 @@
+package gui;
+
+import metrics.Histogram;
+import metrics.Metrics;
+
+import java.awt.*;
+import java.awt.event.InvocationEvent;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Event queue that times everything the event thread runs, so a sluggish UI shows up in metrics. Records how long each
+ event takes to handle, and for invokeLater tasks, how long they sat in the queue first. Also feeds the stall watchdog,
+ when it's turned on. */
+final class TimedEventQueue extends EventQueue {
+	private static final Histogram dispatchTime = Metrics.histogram("ui.edt.dispatch");
+	private static final Histogram waitTime = Metrics.histogram("ui.edt.wait");
+
+	private final EdtWatchdog watchdog = EdtWatchdog.startIfEnabled();
+
+	/** Replaces the system event queue with a timed one. */
+	static void install() {
+		Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimedEventQueue());
+	}
+
+	@Override
+	protected void dispatchEvent(AWTEvent event) {
+		long start = System.nanoTime();
+		if (event instanceof InvocationEvent) {
+			//Only has millisecond precision, which is plenty for spotting a backed up queue.
+			long waitedMillis = System.currentTimeMillis() - ((InvocationEvent) event).getWhen();
+			waitTime.record(TimeUnit.MILLISECONDS.toNanos(waitedMillis));
+		}
+		Object outer = watchdog == null ? null : watchdog.dispatchStarted(event, start);
+		try {
+			super.dispatchEvent(event);
+		} finally {
+			dispatchTime.recordSince(start);
+			if (watchdog != null) {
+				watchdog.dispatchFinished(outer);
+			}
+		}
+	}
+}
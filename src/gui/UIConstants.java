@@ -11,12 +11,11 @@ public class UIConstants {
 	//Card Info Pane
 	public static final Dimension CARD_INFO_PANE_SIZE = new Dimension(320, 420);
 	public static final Dimension CARD_IMAGE_SIZE = new Dimension(288, 408);
-	public static final ImageIcon DEFAULT_CARD_ICON = ImageStore.getLocalIcon("images/defaultcardback.jpg", CARD_IMAGE_SIZE);
 	public static final Dimension FLIP_BUTTON_SIZE = new Dimension(30, 30);
 	public static final Dimension CARD_BUTTON_SIZE = new Dimension(125, 50);
 
 	//Card Filter Pane
-	public static final Dimension CARD_FILTER_PANE_SIZE = new Dimension(320, 140);
+	public static final Dimension CARD_FILTER_PANE_SIZE = new Dimension(320, 165);
 	public static final Dimension COLOR_BUTTON_SIZE = new Dimension(42, 42);
 	public static final Insets SEARCH_BOX_MARGIN = new Insets(0, 0, 0, 0);
 
@@ -51,6 +50,10 @@ public class UIConstants {
 		CARD_LIST_PANE_MIN_SIZE = new Dimension(xSize, ySize);
 	}
 
+	//Card Grid
+	public static final Dimension THUMBNAIL_SIZE = new Dimension(120, 168);
+	public static final int GRID_GAP = 8;
+
 	static {
 		UIManager.put("ScrollBar.trackArc", 3);
 		UIManager.put("ScrollBar.showButtons", true);
@@ -58,4 +61,17 @@ public class UIConstants {
 		UIManager.put("ScrollBar.minimumThumbSize", new Dimension(30, 30));
 		UIManager.put("ScrollBar.width", new Dimension(20, 20));
 	}
+
+	private static ImageIcon defaultCardIcon;
+
+	/**
+	 @return The card back shown in place of missing card images. Loaded the first time it's asked for, so the rest of
+	 the window doesn't wait on the image. Must be called from the event thread.
+	 */
+	public static ImageIcon getDefaultCardIcon() {
+		if (defaultCardIcon == null) {
+			defaultCardIcon = ImageStore.getLocalIcon("images/defaultcardback.jpg", CARD_IMAGE_SIZE);
+		}
+		return defaultCardIcon;
+	}
 }
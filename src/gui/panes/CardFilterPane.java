@@ -5,6 +5,7 @@ import database.card.CardColor;
 import gui.UIConstants;
 import gui.elements.ImageToggleButton;
 import gui.elements.SearchBox;
+import gui.panes.models.CardQuery;
 import gui.panes.models.CardTableFilter;
 
 import javax.swing.*;
@@ -21,6 +22,7 @@ public class CardFilterPane extends JPanel {
 	private final SearchBox keywordField = new SearchBox("Keywords");
 	private final SearchBox typeField = new SearchBox("Type");
 	private final SearchBox textField = new SearchBox("Card Text");
+	private final SearchBox queryField = new SearchBox("Query, like t:creature c:ur cmc<=3");
 
 	public CardFilterPane() {
 		JButton searchButton = new JButton("Search");
@@ -54,6 +56,7 @@ public class CardFilterPane extends JPanel {
 		keywordField.addKeyListener(enterButtonListener);
 		typeField.addKeyListener(enterButtonListener);
 		textField.addKeyListener(enterButtonListener);
+		queryField.addKeyListener(enterButtonListener);
 
 		GroupLayout.SequentialGroup manaHorizontalLayout = layout.createSequentialGroup();
 		manaHorizontalLayout.addGap(UIConstants.MARGIN);
@@ -78,6 +81,7 @@ public class CardFilterPane extends JPanel {
 										.addComponent(keywordField)
 										.addComponent(typeField)
 										.addComponent(textField)
+										.addComponent(queryField)
 								)
 								.addGap(UIConstants.MARGIN)
 				)
@@ -95,6 +99,7 @@ public class CardFilterPane extends JPanel {
 				.addComponent(keywordField)
 				.addComponent(typeField)
 				.addComponent(textField)
+				.addComponent(queryField)
 				.addGroup(layout.createParallelGroup()
 						.addComponent(searchButton)
 						.addComponent(resetButton)
@@ -115,6 +120,7 @@ public class CardFilterPane extends JPanel {
 		typeField.setText("");
 		keywordField.setText("");
 		textField.setText("");
+		queryField.setText("");
 		CardTableFilter.setFilterList(null);
 	}
 
@@ -147,6 +153,15 @@ public class CardFilterPane extends JPanel {
 			filters.add(CardTableFilter.createTextFilter(textField.getText()));
 		}
 
+		if (!queryField.getText().isEmpty()) {
+			try {
+				filters.add(CardQuery.parse(queryField.getText()));
+			} catch (CardQuery.QueryException e) {
+				JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid query", JOptionPane.WARNING_MESSAGE);
+				return;
+			}
+		}
+
 		CardTableFilter.setFilterList(filters);
 	}
 }
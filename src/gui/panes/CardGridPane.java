@@ -0,0 +1,185 @@
+package gui.panes;
+
+import database.card.Card;
+import database.image.ThumbnailCache;
+import gui.UIConstants;
+import gui.panes.models.CardTableModel;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ Shows the rows of the card table as a grid of thumbnails, in the same order and with the same filter. Only the cells
+ that are on screen get painted, and only the thumbnails for those cells and the screen after them get loaded, so
+ scrolling through every card stays smooth. Clicking a card selects it in the table. */
+class CardGridPane extends JComponent implements Scrollable {
+	private static final int CELL_WIDTH = UIConstants.THUMBNAIL_SIZE.width + UIConstants.GRID_GAP;
+	private static final int CELL_HEIGHT = UIConstants.THUMBNAIL_SIZE.height + UIConstants.GRID_GAP;
+
+	private final JTable cardTable;
+	//Columns the grid's height was last worked out for.
+	private int laidOutColumns = 1;
+
+	CardGridPane(JTable cardTable) {
+		this.cardTable = cardTable;
+		setOpaque(true);
+		setToolTipText("");
+		ThumbnailCache.setLoadedListener(this::repaint);
+
+		addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				//The height depends on how many columns fit, which the viewport only finds out about after it sets the width.
+				if (getColumns() != laidOutColumns) {
+					laidOutColumns = getColumns();
+					revalidate();
+				}
+				updateWanted();
+			}
+		});
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				int row = rowAtPoint(e.getPoint());
+				if (row >= 0) {
+					cardTable.setRowSelectionInterval(row, row);
+					cardTable.scrollRectToVisible(cardTable.getCellRect(row, 0, true));
+					scrollRectToVisible(cellBounds(row));
+				}
+			}
+		});
+	}
+
+	/** Resizes the grid to fit the table's rows, and loads thumbnails for whatever's now on screen. */
+	void rowsChanged() {
+		revalidate();
+		repaint();
+		updateWanted();
+	}
+
+	/** Asks for thumbnails of the cards on screen, then the ones a screen further down. */
+	void updateWanted() {
+		int count = getCardCount();
+		Rectangle visible = getVisibleRect();
+		if (count == 0 || visible.isEmpty()) {
+			return;
+		}
+		int columns = getColumns();
+		int firstRow = Integer.min(visible.y / CELL_HEIGHT * columns, count);
+		int lastRow = Integer.min(((visible.y + 2 * visible.height) / CELL_HEIGHT + 1) * columns, count);
+		List<Card> cards = new ArrayList<>(lastRow - firstRow);
+		for (int row = firstRow; row < lastRow; row++) {
+			cards.add(getCard(row));
+		}
+		ThumbnailCache.request(cards);
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		g.setColor(getBackground());
+		Rectangle clip = g.getClipBounds();
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		int count = getCardCount();
+		int columns = getColumns();
+		int firstLine = clip.y / CELL_HEIGHT;
+		int lastLine = (clip.y + clip.height) / CELL_HEIGHT;
+		int selected = cardTable.getSelectedRow();
+		FontMetrics metrics = g.getFontMetrics();
+		for (int line = firstLine; line <= lastLine; line++) {
+			for (int column = 0; column < columns; column++) {
+				int row = line * columns + column;
+				if (row >= count) {
+					return;
+				}
+				int x = column * CELL_WIDTH + UIConstants.GRID_GAP / 2;
+				int y = line * CELL_HEIGHT + UIConstants.GRID_GAP / 2;
+				if (row == selected) {
+					g.setColor(UIManager.getColor("Table.selectionBackground"));
+					g.fillRect(x - UIConstants.GRID_GAP / 2, y - UIConstants.GRID_GAP / 2, CELL_WIDTH, CELL_HEIGHT);
+				}
+
+				Card card = getCard(row);
+				if (!ThumbnailCache.draw(g, card, x, y)) {
+					//Placeholder until the thumbnail shows up.
+					g.setColor(getForeground().darker().darker());
+					g.drawRect(x, y, UIConstants.THUMBNAIL_SIZE.width - 1, UIConstants.THUMBNAIL_SIZE.height - 1);
+					g.setColor(getForeground());
+					String name = card.getName();
+					int textWidth = metrics.stringWidth(name);
+					g.drawString(name, x + Integer.max((UIConstants.THUMBNAIL_SIZE.width - textWidth) / 2, 2),
+							y + UIConstants.THUMBNAIL_SIZE.height / 2);
+				}
+			}
+		}
+	}
+
+	@Override
+	public String getToolTipText(MouseEvent event) {
+		int row = rowAtPoint(event.getPoint());
+		return row >= 0 ? getCard(row).getName() : null;
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		int lines = (getCardCount() + getColumns() - 1) / getColumns();
+		return new Dimension(CELL_WIDTH, lines * CELL_HEIGHT);
+	}
+
+	@Override
+	public Dimension getPreferredScrollableViewportSize() {
+		return new Dimension(4 * CELL_WIDTH, 2 * CELL_HEIGHT);
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+		return orientation == SwingConstants.VERTICAL ? CELL_HEIGHT / 4 : CELL_WIDTH / 4;
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+		return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportWidth() {
+		return true;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight() {
+		return false;
+	}
+
+	//Until the card table has its real model, it's only showing a blank placeholder row.
+	private int getCardCount() {
+		return cardTable.getModel() instanceof CardTableModel ? cardTable.getRowCount() : 0;
+	}
+
+	private Card getCard(int row) {
+		return ((CardTableModel) cardTable.getModel()).getCardAt(cardTable.convertRowIndexToModel(row));
+	}
+
+	private int getColumns() {
+		return Integer.max(getWidth() / CELL_WIDTH, 1);
+	}
+
+	private int rowAtPoint(Point point) {
+		if (point.x >= getColumns() * CELL_WIDTH) {
+			return -1;
+		}
+		int row = point.y / CELL_HEIGHT * getColumns() + point.x / CELL_WIDTH;
+		return row < getCardCount() ? row : -1;
+	}
+
+	private Rectangle cellBounds(int row) {
+		int columns = getColumns();
+		return new Rectangle(row % columns * CELL_WIDTH, row / columns * CELL_HEIGHT, CELL_WIDTH, CELL_HEIGHT);
+	}
+}
@@ -2,7 +2,8 @@ package gui.panes;
 
 import application.LogTags;
 import database.card.Card;
-import gui.Gui;
+import database.card.CardDatabase;
+import database.card.DeckState;
 import gui.UIConstants;
 import gui.elements.ImageToggleButton;
 import org.tinylog.Logger;
@@ -12,8 +13,8 @@ import java.awt.event.ActionEvent;
 
 public class CardInfoPane extends JPanel {
 
-	private final JLabel cardFrontImage = new JLabel(UIConstants.DEFAULT_CARD_ICON);
-	private final JLabel cardBackImage = new JLabel(UIConstants.DEFAULT_CARD_ICON);
+	private final JLabel cardFrontImage = new JLabel(UIConstants.getDefaultCardIcon());
+	private final JLabel cardBackImage = new JLabel(UIConstants.getDefaultCardIcon());
 	private final ImageToggleButton flipButton = new ImageToggleButton("flip", UIConstants.FLIP_BUTTON_SIZE);
 	private Card currentCard;
 	private final JButton addButton = new JButton("Add");
@@ -80,8 +81,8 @@ public class CardInfoPane extends JPanel {
 			flipButton.setVisible(true);
 		} else {
 			flipButton.setVisible(false);
-			front = front != null ? front : UIConstants.DEFAULT_CARD_ICON;
-			back = back != null ? back : UIConstants.DEFAULT_CARD_ICON;
+			front = front != null ? front : UIConstants.getDefaultCardIcon();
+			back = back != null ? back : UIConstants.getDefaultCardIcon();
 		}
 
 		flipButton.setSelected(false);
@@ -96,7 +97,8 @@ public class CardInfoPane extends JPanel {
 	}
 
 	public void tryEnableAddButton() {
-		addButton.setEnabled(enableDeckEditing && currentCard != null && currentCard.copiesInDeck() < currentCard.deckMax());
+		DeckState deck = CardDatabase.getDeckState();
+		addButton.setEnabled(enableDeckEditing && currentCard != null && deck.copiesInDeck(currentCard) < deck.deckMax(currentCard));
 	}
 
 	public void tryEnableRemoveButton() {
@@ -111,17 +113,11 @@ public class CardInfoPane extends JPanel {
 
 	private void addToDeck(ActionEvent actionEvent) {
 		Logger.tag(LogTags.USER_INPUT.tag).info("Adding {} - #{} to deck.", currentCard.getName(), currentCard.id);
-		currentCard.addToDeck(1);
-		Gui.updateCardInfo(currentCard.id);
-		tryEnableAddButton();
-		tryEnableRemoveButton();
+		CardDatabase.addToDeck(currentCard, 1);
 	}
 
 	private void removeFromDeck(ActionEvent actionEvent) {
 		Logger.tag(LogTags.USER_INPUT.tag).info("Removing {} - #{} from deck.", currentCard.getName(), currentCard.id);
-		currentCard.addToDeck(-1);
-		Gui.updateCardInfo(currentCard.id);
-		tryEnableAddButton();
-		tryEnableRemoveButton();
+		CardDatabase.addToDeck(currentCard, -1);
 	}
 }
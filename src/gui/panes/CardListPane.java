@@ -15,12 +15,16 @@ import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 public class CardListPane extends JPanel {
 	private final JTable cardTable;
+	private final CardGridPane cardGrid;
 	private final JProgressBar busyIndicator;
 	private CardTableSorter sorter;
 	private CardTableModel model;
@@ -47,6 +51,14 @@ public class CardListPane extends JPanel {
 		JScrollPane tableScrollPane = new JScrollPane(cardTable);
 		tableScrollPane.getVerticalScrollBar().addAdjustmentListener((e) -> updatePrefetching());
 
+		//Only thumbnails are fetched for the grid, since full size images are only needed for the selected card.
+		cardGrid = new CardGridPane(cardTable);
+		JScrollPane gridScrollPane = new JScrollPane(cardGrid);
+		gridScrollPane.getViewport().addChangeListener((e) -> cardGrid.updateWanted());
+		JTabbedPane views = new JTabbedPane();
+		views.addTab("List", tableScrollPane);
+		views.addTab("Grid", gridScrollPane);
+
 		TableColumnModel columnModel = cardTable.getColumnModel();
 		for (int i = 0; i < columnModel.getColumnCount(); i++) {
 			TableColumn column = columnModel.getColumn(i);
@@ -65,7 +77,7 @@ public class CardListPane extends JPanel {
 
 		layout.setVerticalGroup(layout.createSequentialGroup()
 				.addGap(UIConstants.MARGIN)
-				.addComponent(tableScrollPane)
+				.addComponent(views)
 				.addComponent(busyIndicator)
 				.addGap(UIConstants.MARGIN)
 		);
@@ -73,7 +85,7 @@ public class CardListPane extends JPanel {
 		layout.setHorizontalGroup(layout.createSequentialGroup()
 				.addGap(UIConstants.MARGIN)
 				.addGroup(layout.createParallelGroup()
-						.addComponent(tableScrollPane)
+						.addComponent(views)
 						.addComponent(busyIndicator)
 				)
 				.addGap(UIConstants.MARGIN)
@@ -83,12 +95,62 @@ public class CardListPane extends JPanel {
 			int selectedIndex = cardTable.getSelectedRow();
 			if (selectedIndex >= 0 && selectedIndex < cardTable.getRowCount()) {
 				selectedIndex = cardTable.convertRowIndexToModel(selectedIndex);
-				Card card = CardDatabase.getCard(selectedIndex);
+				Card card = model.getCardAt(selectedIndex);
 				CardDatabase.loadAndDisplayImage(card);
 			}
+			cardGrid.repaint();
+		});
+
+		//Printings of a card are shown below it by double clicking it, or with the arrow keys.
+		cardTable.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				int row = cardTable.rowAtPoint(e.getPoint());
+				if (e.getClickCount() == 2 && row >= 0 && model != null) {
+					int modelRow = cardTable.convertRowIndexToModel(row);
+					setExpanded(row, !model.isExpanded(modelRow));
+				}
+			}
+		});
+		cardTable.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT).put(KeyStroke.getKeyStroke("RIGHT"), "expandPrintings");
+		cardTable.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT).put(KeyStroke.getKeyStroke("LEFT"), "collapsePrintings");
+		cardTable.getActionMap().put("expandPrintings", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				setExpanded(cardTable.getSelectedRow(), true);
+			}
+		});
+		cardTable.getActionMap().put("collapsePrintings", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				setExpanded(cardTable.getSelectedRow(), false);
+			}
 		});
 	}
 
+	//Shows or hides the printings of the card in a row of the table, keeping that row selected.
+	private void setExpanded(int row, boolean expand) {
+		if (model == null || row < 0 || row >= cardTable.getRowCount()) {
+			return;
+		}
+		int modelRow = cardTable.convertRowIndexToModel(row);
+		if (!model.isExpandable(modelRow)) {
+			return;
+		}
+		model.setExpanded(modelRow, expand);
+		row = cardTable.convertRowIndexToView(modelRow);
+		if (row >= 0) {
+			cardTable.setRowSelectionInterval(row, row);
+			//Sorting keeps the printings right below the card, so scroll them into view along with it.
+			Rectangle shown = cardTable.getCellRect(row, 0, true);
+			if (expand) {
+				int printings = model.getGroups().getPrintingCount(model.getGroupAt(modelRow));
+				shown.add(cardTable.getCellRect(Integer.min(row + printings, cardTable.getRowCount() - 1), 0, true));
+			}
+			cardTable.scrollRectToVisible(shown);
+		}
+	}
+
 	public void updatePrefetching() {
 		if (model != null && model.getRowCount() > 1) {
 			Rectangle viewport = cardTable.getVisibleRect();
@@ -104,15 +166,23 @@ public class CardListPane extends JPanel {
 					"Requesting prefetch for rows:\n\tFirst row = {},\n\tVisible rows = {},\n\tLast row = {}",
 					firstRow, visibleRows, lastRow);
 			for(int row=firstRow; row <= lastRow; row++) {
-				int id = cardTable.convertRowIndexToModel(row);
-				visibleCards.add(CardDatabase.getCard(id));
+				visibleCards.add(model.getCardAt(cardTable.convertRowIndexToModel(row)));
 			}
 
 			ImagePrefetchThread.setPrefetchList(visibleCards);
 		}
 	}
 
+	/**
+	 Shows the cards that have been loaded so far. Safe to call again as more get loaded, which just adds the new rows.
+	 */
 	public void initTable() {
+		if (model != null) {
+			model.addLoadedRows();
+			cardGrid.rowsChanged();
+			return;
+		}
+
 		model = new CardTableModel();
 		sorter = new CardTableSorter(this, model);
 		if (cachedFilter != null) {
@@ -124,6 +194,13 @@ public class CardListPane extends JPanel {
 		cardTable.setRowSorter(sorter);
 		cardTable.setModel(model);
 		cardTable.setEnabled(true);
+		sorter.addRowSorterListener((e) -> cardGrid.rowsChanged());
+		cardGrid.rowsChanged();
+	}
+
+	/** @return The number of rows in the table, before filtering. */
+	public int getRowCount() {
+		return model != null ? model.getRowCount() : 0;
 	}
 
 	public void setBusy(boolean isBusy) {
@@ -144,7 +221,10 @@ public class CardListPane extends JPanel {
 	public void updateRow(int id) {
 		if (model != null) {
 			Logger.tag(LogTags.UI_UPDATES.tag).debug("Updating table row for card #{}.", id);
-			model.fireTableRowsUpdated(id, id);
+			for (int row : model.getRowsFor(CardDatabase.getCard(id))) {
+				model.fireTableRowsUpdated(row, row);
+			}
+			cardGrid.repaint();
 		} else {
 			Logger.tag(LogTags.UI_UPDATES.tag).error("Attempted to update a card row when the model has not been fully initialized.");
 		}
@@ -153,7 +233,8 @@ public class CardListPane extends JPanel {
 	public void updateTable() {
 		if (model != null) {
 			Logger.tag(LogTags.UI_UPDATES.tag).debug("Updating table for all cards.");
-			model.fireTableDataChanged();
+			model.reload();
+			cardGrid.rowsChanged();
 		} else {
 			Logger.tag(LogTags.UI_UPDATES.tag).error("Attempted to update a the card table when the model has not been fully initialized.");
 		}
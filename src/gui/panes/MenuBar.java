@@ -2,6 +2,8 @@ package gui.panes;
 
 import application.LogTags;
 import database.card.CardDatabase;
+import database.card.DeckFormat;
+import database.card.DeckStats;
 import gui.Gui;
 import gui.panes.models.CardTableFilter;
 import org.tinylog.Logger;
@@ -10,15 +12,25 @@ import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 
 public class MenuBar extends JMenuBar {
 	private static final FileFilter DEC_FILTER = new FileNameExtensionFilter("MTG Gen Decklist (.dec)", "dec");
 	private static final FileFilter IMG_FILTER = new FileNameExtensionFilter("Portable Network Graphics (.PNG)", "png");
+	private static final FileFilter JSON_FILTER = new FileNameExtensionFilter("Scryfall Bulk Data (.json)", "json");
+	//Most problems with the deck to list in the deck size tooltip.
+	private static final int MAX_SHOWN_PROBLEMS = 15;
 	private final JLabel deckSizeCounter = new JLabel("Deck Size - 0");
+	private DeckStats deckStats = null;
+	private List<String> deckProblems = Collections.emptyList();
 	private final JMenuItem readCollection;
 	private final JMenuItem readDeck;
 	private final JMenuItem readBanList;
+	private final JMenuItem readRestrictedList;
+	private final JMenuItem updateCards;
 	private final JMenuItem clearCollection;
 	private final JMenuItem clearDeck;
 	private final JMenuItem fillCollection;
@@ -38,6 +50,10 @@ public class MenuBar extends JMenuBar {
 		readBanList.addActionListener((e) -> importPopup(DEC_FILTER, JFileChooser.FILES_ONLY, CardDatabase::readBans));
 		readBanList.setMnemonic('b');
 		fileMenu.add(readBanList);
+		readRestrictedList = new JMenuItem("Import Restricted List");
+		readRestrictedList.addActionListener((e) -> importPopup(DEC_FILTER, JFileChooser.FILES_ONLY, CardDatabase::readRestrictedList));
+		readRestrictedList.setMnemonic('r');
+		fileMenu.add(readRestrictedList);
 		JMenuItem exportDeck = new JMenuItem("Save Deck");
 		exportDeck.addActionListener((e) -> exportPopup(DEC_FILTER, ".dec", CardDatabase::saveDeck));
 		exportDeck.setMnemonic('e');
@@ -46,6 +62,11 @@ public class MenuBar extends JMenuBar {
 		exportImage.addActionListener((e) -> exportPopup(IMG_FILTER, ".png", CardDatabase::saveDeckImage));
 		exportImage.setMnemonic('e');
 		fileMenu.add(exportImage);
+		fileMenu.addSeparator();
+		updateCards = new JMenuItem("Update Card Database");
+		updateCards.addActionListener((e) -> importPopup(JSON_FILTER, JFileChooser.FILES_ONLY, CardDatabase::updateCardDatabase));
+		updateCards.setMnemonic('u');
+		fileMenu.add(updateCards);
 		add(fileMenu);
 
 		JMenu editMenu = new JMenu("Edit");
@@ -90,18 +111,61 @@ public class MenuBar extends JMenuBar {
 		viewMenu.add(viewNonPlayable);
 		add(viewMenu);
 
+		JMenu formatMenu = new JMenu("Format");
+		formatMenu.setMnemonic('o');
+		ButtonGroup formats = new ButtonGroup();
+		for (DeckFormat format : DeckFormat.getBuiltIn()) {
+			String name = Character.toUpperCase(format.name.charAt(0)) + format.name.substring(1);
+			JRadioButtonMenuItem formatItem = new JRadioButtonMenuItem(name);
+			formatItem.addActionListener((e) -> CardDatabase.setDeckFormat(format));
+			formatItem.setSelected(format == CardDatabase.getDeckFormat());
+			formats.add(formatItem);
+			formatMenu.add(formatItem);
+		}
+		add(formatMenu);
+
 		add(Box.createHorizontalGlue());
 		add(deckSizeCounter);
 	}
 
-	public void setDeckSizeCounter(int value) {
-		deckSizeCounter.setText("Deck Size - " + value);
+	public void setDeckStats(DeckStats stats) {
+		deckStats = stats;
+		updateDeckSizeCounter();
+	}
+
+	public void setDeckProblems(List<String> problems) {
+		deckProblems = problems;
+		updateDeckSizeCounter();
+	}
+
+	private void updateDeckSizeCounter() {
+		List<String> lines = new ArrayList<>();
+		if (deckStats != null) {
+			lines.addAll(deckStats.describe());
+		}
+		if (!deckProblems.isEmpty()) {
+			lines.add("");
+			lines.add(deckProblems.size() + " problem(s) in " + CardDatabase.getDeckFormat() + ":");
+			lines.addAll(deckProblems.subList(0, Integer.min(deckProblems.size(), MAX_SHOWN_PROBLEMS)));
+			if (deckProblems.size() > MAX_SHOWN_PROBLEMS) {
+				lines.add("...");
+			}
+		}
+		StringBuilder tooltip = new StringBuilder("<html>");
+		for (String line : lines) {
+			tooltip.append(line.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")).append("<br>");
+		}
+		deckSizeCounter.setToolTipText(tooltip.append("</html>").toString());
+		deckSizeCounter.setText("Deck Size - " + (deckStats == null ? 0 : deckStats.getDeckSize())
+				+ (deckProblems.isEmpty() ? "" : " - " + deckProblems.size() + " problem(s)"));
 	}
 
 	public void setEnableDeckEditing(boolean enabled) {
 		readBanList.setEnabled(enabled);
+		readRestrictedList.setEnabled(enabled);
 		readDeck.setEnabled(enabled);
 		readCollection.setEnabled(enabled);
+		updateCards.setEnabled(enabled);
 		clearCollection.setEnabled(enabled);
 		fillCollection.setEnabled(enabled);
 		clearDeck.setEnabled(enabled);
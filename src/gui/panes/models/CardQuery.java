@@ -0,0 +1,828 @@
+package gui.panes.models;
+
+import database.card.Card;
+import database.card.CardColor;
+import database.card.CardDatabase;
+import database.card.PooledTextFilter;
+import database.card.RangeIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ Card search query, compiled into an execution plan. Uses a small Scryfall style syntax:
+   bolt, "lightning bolt"   Name contains the words.
+   n: name:                 Name contains. Use = for an exact match.
+   t: type:                 Type line contains.
+   o: text: oracle:         Card text contains.
+   kw: keyword:             Has the keyword.
+   c: color: ci: id:        Color identity includes the colors, like c:ur. c=ur is exact, c<=ur is within. c:c is colorless.
+   cmc mv                   Mana value, compared with = != < <= > >=.
+   pow power loy loyalty    Power (or loyalty), compared the same way. Cards without one, or with a variable one like
+                            '*', never match.
+   tou toughness            Toughness, compared the same way.
+ Text values can be /regular expressions/. Terms next to each other must all match, "or" between terms matches either
+ side, "-" in front of a term negates it, and parentheses group terms.
+
+ Every term is given a cost per card, and a selectivity measured against a sample of the card database. Terms that are
+ ANDed together run cheapest and most selective first, while ORed terms run cheapest and most likely to match first,
+ so expensive checks like regexes only run on the cards that survive everything else. */
+public final class CardQuery implements Predicate<Card> {
+	//Relative cost of testing a single card, roughly in tens of nanoseconds.
+	static final double COST_INDEXED = 0.2;
+	static final double COST_COLOR = 1;
+	static final double COST_NUMBER = 1;
+	static final double COST_KEYWORD = 3;
+	static final double COST_NAME = 6;
+	static final double COST_TYPE = 6;
+	static final double COST_TEXT = 12;
+	static final double COST_REGEX = 40;
+	//Cost of filters that come from elsewhere without saying what they cost.
+	private static final double COST_UNKNOWN = 20;
+	//Number of cards to test each term against when estimating how many cards it matches.
+	private static final int SAMPLE_SIZE = 512;
+
+	private final Node root;
+
+	private CardQuery(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 Thrown when a query can't be parsed. The message says what went wrong and where. */
+	public static class QueryException extends IllegalArgumentException {
+		QueryException(String message, int position) {
+			super(message + " (at character " + (position + 1) + ")");
+		}
+	}
+
+	/**
+	 Parses and plans a query.
+	 @param query The query to parse.
+	 @return The planned query.
+	 @throws QueryException If the query isn't valid.
+	 */
+	public static CardQuery parse(String query) {
+		Node root = new Parser(query).parse();
+		return new CardQuery(root.plan(sample()));
+	}
+
+	/**
+	 Plans a set of filters that must all match. Filters created by CardTableFilter or parse() carry their own costs,
+	 anything else is treated as moderately expensive.
+	 @param filters The filters to combine.
+	 @return A query matching cards that pass every filter.
+	 */
+	public static CardQuery allOf(List<Predicate<Card>> filters) {
+		List<Node> children = new ArrayList<>(filters.size());
+		for (Predicate<Card> filter : filters) {
+			if (filter instanceof CardQuery) {
+				children.add(((CardQuery) filter).root);
+			} else if (filter instanceof Node) {
+				children.add((Node) filter);
+			} else {
+				children.add(new Leaf(filter.toString(), COST_UNKNOWN, filter));
+			}
+		}
+		return new CardQuery(new And(children).plan(sample()));
+	}
+
+	/**
+	 Wraps a filter so that planning knows how expensive it is.
+	 @param description How the filter would be written in a query.
+	 @param cost        Relative cost of testing one card. See the COST_ constants.
+	 @param filter      The filter.
+	 @return The wrapped filter.
+	 */
+	static Predicate<Card> withCost(String description, double cost, Predicate<Card> filter) {
+		return new Leaf(description, cost, filter);
+	}
+
+	@Override
+	public boolean test(Card card) {
+		return root.test(card);
+	}
+
+	/** @return The expected cost of testing a single card, in the units of the COST_ constants. */
+	public double getExpectedCost() {
+		return root.cost;
+	}
+
+	/** @return Estimated fraction of cards that match the query. */
+	public double getSelectivity() {
+		return root.selectivity;
+	}
+
+	/** @return The query in the order it will be evaluated, with each term's cost and selectivity. */
+	public String explain() {
+		StringBuilder plan = new StringBuilder();
+		root.describe(plan, true);
+		return plan.toString();
+	}
+
+	/** @return The query in the order it will be evaluated. */
+	@Override
+	public String toString() {
+		StringBuilder plan = new StringBuilder();
+		root.describe(plan, false);
+		return plan.toString();
+	}
+
+	//Evenly spaced cards from the database, to estimate selectivities with. Empty if the database isn't loaded yet.
+	private static List<Card> sample() {
+		int cardCount = CardDatabase.getCardCount();
+		int step = Integer.max(cardCount / SAMPLE_SIZE, 1);
+		List<Card> sample = new ArrayList<>(Integer.min(cardCount, SAMPLE_SIZE + 1));
+		for (int id = 0; id < cardCount; id += step) {
+			Card card = CardDatabase.getCard(id);
+			if (!card.isRemoved) {
+				sample.add(card);
+			}
+		}
+		return sample;
+	}
+
+	//Fraction of the sample matching the node. Smoothed so that nothing is ever estimated as always or never matching.
+	private static double measureSelectivity(Node node, List<Card> sample) {
+		int matches = 0;
+		for (Card card : sample) {
+			if (node.test(card)) {
+				matches++;
+			}
+		}
+		return (matches + 0.5) / (sample.size() + 1.0);
+	}
+
+	/**
+	 A step in the plan. Cost is the expected cost of testing one card, selectivity the fraction of cards that pass. */
+	private abstract static class Node implements Predicate<Card> {
+		double cost;
+		double selectivity = 0.5;
+
+		/** Orders this node's children and fills in the cost and selectivity estimates. Returns the planned node. */
+		abstract Node plan(List<Card> sample);
+
+		abstract void describe(StringBuilder out, boolean withEstimates);
+
+		void describeEstimates(StringBuilder out) {
+			out.append(String.format(Locale.ROOT, "{cost=%.1f, matches=%.1f%%}", cost, selectivity * 100));
+		}
+	}
+
+	private static final class Leaf extends Node {
+		private final String description;
+		private final Predicate<Card> filter;
+
+		private Leaf(String description, double cost, Predicate<Card> filter) {
+			this.description = description;
+			this.cost = cost;
+			this.filter = filter;
+		}
+
+		@Override
+		public boolean test(Card card) {
+			return filter.test(card);
+		}
+
+		@Override
+		Node plan(List<Card> sample) {
+			if (!sample.isEmpty()) {
+				selectivity = measureSelectivity(this, sample);
+			}
+			return this;
+		}
+
+		@Override
+		void describe(StringBuilder out, boolean withEstimates) {
+			out.append(description);
+			if (withEstimates) {
+				describeEstimates(out);
+			}
+		}
+	}
+
+	/**
+	 Term answered up front by one of the database's indexes, leaving only a bit lookup per card. The selectivity is
+	 exact rather than sampled. If the database gets updated afterwards, the ids are out of date, so each card gets
+	 tested directly instead. */
+	private static final class IndexedLeaf extends Node {
+		private final String description;
+		private final BitSet ids;
+		private final Predicate<Card> fallback;
+		private final int databaseVersion;
+
+		private IndexedLeaf(String description, BitSet ids, Predicate<Card> fallback, int databaseVersion) {
+			this.description = description;
+			this.ids = ids;
+			this.fallback = fallback;
+			this.databaseVersion = databaseVersion;
+			cost = COST_INDEXED;
+			selectivity = (ids.cardinality() + 0.5) / (CardDatabase.getCardCount() + 1.0);
+		}
+
+		@Override
+		public boolean test(Card card) {
+			if (databaseVersion != CardDatabase.getDatabaseVersion()) {
+				return fallback.test(card);
+			}
+			return ids.get(card.id);
+		}
+
+		@Override
+		Node plan(List<Card> sample) {
+			return this;
+		}
+
+		@Override
+		void describe(StringBuilder out, boolean withEstimates) {
+			out.append(description);
+			if (withEstimates) {
+				describeEstimates(out);
+			}
+		}
+
+		//Combines every indexed term in a group into one, by intersecting or merging their ids.
+		private static Node[] merge(Node[] nodes, boolean intersect) {
+			List<Node> merged = new ArrayList<>(nodes.length);
+			IndexedLeaf combined = null;
+			for (Node node : nodes) {
+				if (!(node instanceof IndexedLeaf)) {
+					merged.add(node);
+				} else if (combined == null) {
+					combined = (IndexedLeaf) node;
+				} else {
+					IndexedLeaf other = (IndexedLeaf) node;
+					BitSet ids = (BitSet) combined.ids.clone();
+					Predicate<Card> fallback;
+					if (intersect) {
+						ids.and(other.ids);
+						fallback = combined.fallback.and(other.fallback);
+					} else {
+						ids.or(other.ids);
+						fallback = combined.fallback.or(other.fallback);
+					}
+					//Mismatched versions make sure a mix of stale and current ids always falls back.
+					int version = combined.databaseVersion == other.databaseVersion ? other.databaseVersion : -1;
+					combined = new IndexedLeaf(combined.description + (intersect ? " " : " or ") + other.description, ids, fallback, version);
+				}
+			}
+			if (combined != null) {
+				merged.add(combined);
+			}
+			return merged.toArray(new Node[0]);
+		}
+	}
+
+	private static final class Not extends Node {
+		private Node child;
+
+		private Not(Node child) {
+			this.child = child;
+		}
+
+		@Override
+		public boolean test(Card card) {
+			return !child.test(card);
+		}
+
+		@Override
+		Node plan(List<Card> sample) {
+			child = child.plan(sample);
+			cost = child.cost;
+			selectivity = 1 - child.selectivity;
+			return this;
+		}
+
+		@Override
+		void describe(StringBuilder out, boolean withEstimates) {
+			out.append('-');
+			child.describe(out, false);
+			if (withEstimates) {
+				describeEstimates(out);
+			}
+		}
+	}
+
+	private static final class And extends Node {
+		private Node[] children;
+
+		private And(List<Node> children) {
+			this.children = children.toArray(new Node[0]);
+		}
+
+		@Override
+		public boolean test(Card card) {
+			for (Node child : children) {
+				if (!child.test(card)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		Node plan(List<Card> sample) {
+			if (children.length == 1) {
+				return children[0].plan(sample);
+			}
+
+			Node[] planned = new Node[children.length];
+			for (int i = 0; i < children.length; i++) {
+				planned[i] = children[i].plan(sample);
+			}
+			children = IndexedLeaf.merge(planned, true);
+			if (children.length == 1) {
+				return children[0];
+			}
+			//Optimal order for independent filters: by cost per card rejected.
+			Arrays.sort(children, Comparator.comparingDouble((Node child) -> child.cost / (1 - child.selectivity)));
+
+			double reached = 1;
+			cost = 0;
+			for (Node child : children) {
+				cost += reached * child.cost;
+				reached *= child.selectivity;
+			}
+			selectivity = sample.isEmpty() ? reached : measureSelectivity(this, sample);
+			return this;
+		}
+
+		@Override
+		void describe(StringBuilder out, boolean withEstimates) {
+			out.append('(');
+			for (int i = 0; i < children.length; i++) {
+				if (i > 0) {
+					out.append(' ');
+				}
+				children[i].describe(out, withEstimates);
+			}
+			out.append(')');
+			if (withEstimates) {
+				describeEstimates(out);
+			}
+		}
+	}
+
+	private static final class Or extends Node {
+		private Node[] children;
+
+		private Or(List<Node> children) {
+			this.children = children.toArray(new Node[0]);
+		}
+
+		@Override
+		public boolean test(Card card) {
+			for (Node child : children) {
+				if (child.test(card)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		Node plan(List<Card> sample) {
+			if (children.length == 1) {
+				return children[0].plan(sample);
+			}
+
+			Node[] planned = new Node[children.length];
+			for (int i = 0; i < children.length; i++) {
+				planned[i] = children[i].plan(sample);
+			}
+			children = IndexedLeaf.merge(planned, false);
+			if (children.length == 1) {
+				return children[0];
+			}
+			//Optimal order for independent filters: by cost per card accepted.
+			Arrays.sort(children, Comparator.comparingDouble((Node child) -> child.cost / child.selectivity));
+
+			double reached = 1;
+			cost = 0;
+			for (Node child : children) {
+				cost += reached * child.cost;
+				reached *= 1 - child.selectivity;
+			}
+			selectivity = sample.isEmpty() ? 1 - reached : measureSelectivity(this, sample);
+			return this;
+		}
+
+		@Override
+		void describe(StringBuilder out, boolean withEstimates) {
+			out.append('(');
+			for (int i = 0; i < children.length; i++) {
+				if (i > 0) {
+					out.append(" or ");
+				}
+				children[i].describe(out, withEstimates);
+			}
+			out.append(')');
+			if (withEstimates) {
+				describeEstimates(out);
+			}
+		}
+	}
+
+	/**
+	 Recursive descent parser for the query syntax. Produces an unplanned tree. */
+	private static final class Parser {
+		private final String query;
+		private int pos = 0;
+
+		private Parser(String query) {
+			this.query = query;
+		}
+
+		private Node parse() {
+			Node root = parseOr();
+			skipSpaces();
+			if (pos < query.length()) {
+				throw new QueryException("Unexpected '" + query.charAt(pos) + "'", pos);
+			}
+			return root;
+		}
+
+		private Node parseOr() {
+			List<Node> alternatives = new ArrayList<>(1);
+			alternatives.add(parseAnd());
+			while (matchWord("or")) {
+				alternatives.add(parseAnd());
+			}
+			return alternatives.size() == 1 ? alternatives.get(0) : new Or(flatten(alternatives, Or.class));
+		}
+
+		private Node parseAnd() {
+			List<Node> terms = new ArrayList<>(4);
+			while (true) {
+				skipSpaces();
+				if (pos >= query.length() || query.charAt(pos) == ')' || isWord("or")) {
+					break;
+				} else if (matchWord("and")) {
+					continue;
+				}
+				terms.add(parseUnary());
+			}
+
+			if (terms.isEmpty()) {
+				throw new QueryException("Expected a search term", pos);
+			}
+			return terms.size() == 1 ? terms.get(0) : new And(flatten(terms, And.class));
+		}
+
+		private Node parseUnary() {
+			char c = query.charAt(pos);
+			if (c == '-') {
+				pos++;
+				if (pos >= query.length() || Character.isWhitespace(query.charAt(pos))) {
+					throw new QueryException("Expected a search term after '-'", pos);
+				}
+				return new Not(parseUnary());
+			} else if (c == '(') {
+				int start = pos++;
+				Node group = parseOr();
+				skipSpaces();
+				if (pos >= query.length() || query.charAt(pos) != ')') {
+					throw new QueryException("Unclosed parenthesis", start);
+				}
+				pos++;
+				return group;
+			}
+			return parseTerm();
+		}
+
+		private Node parseTerm() {
+			int start = pos;
+			while (pos < query.length() && Character.isLetter(query.charAt(pos))) {
+				pos++;
+			}
+			String field = query.substring(start, pos).toLowerCase(Locale.ROOT);
+			String op = readOperator();
+			if (field.isEmpty() || op == null) {
+				//Plain words search card names.
+				pos = start;
+				Value value = readValue(false);
+				return textTerm("", ":", value, COST_NAME, null);
+			}
+
+			switch (field) {
+				case "n":
+				case "name":
+					return textTerm(field, op, readValue(true), COST_NAME, null);
+				case "t":
+				case "type":
+					return textTerm(field, op, readValue(true), COST_TYPE, PooledTextFilter.Field.TYPE);
+				case "o":
+				case "text":
+				case "oracle":
+					return textTerm(field, op, readValue(true), COST_TEXT, PooledTextFilter.Field.TEXT);
+				case "kw":
+				case "keyword":
+					return keywordTerm(field, op, readValue(true), start);
+				case "c":
+				case "color":
+				case "ci":
+				case "id":
+				case "identity":
+					return colorTerm(field, op, readValue(false), start);
+				case "cmc":
+				case "mv":
+				case "mana":
+					return numberTerm(field, op, readValue(false), Card.MANA);
+				case "pow":
+				case "power":
+				case "loy":
+				case "loyalty":
+					return numberTerm(field, op, readValue(false), Card.POWER_OR_LOYALTY);
+				case "tou":
+				case "toughness":
+					return numberTerm(field, op, readValue(false), Card.TOUGHNESS);
+				default:
+					throw new QueryException("Unknown field '" + field + "'", start);
+			}
+		}
+
+		private Node textTerm(String field, String op, Value value, double cost, PooledTextFilter.Field pooled) {
+			String written = field.isEmpty() ? value.written : field + op + value.written;
+			if (value.isRegex) {
+				if (!op.equals(":")) {
+					throw new QueryException("Regexes can only be used with ':'", pos);
+				}
+				Pattern regex = compile(value.text);
+				return new Leaf(written, cost + COST_REGEX, textTest(pooled, (text) -> regex.matcher(text).find()));
+			}
+
+			String text = value.text.toLowerCase(Locale.ROOT);
+			Predicate<Card> equalTo;
+			switch (op) {
+				case ":":
+					//Rules text is already lowercase in the pool, so it can be searched without decoding anything.
+					return new Leaf(written, cost, pooled == PooledTextFilter.Field.TEXT
+							? PooledTextFilter.contains(pooled, text)
+							: textTest(pooled, (string) -> string.contains(text)));
+				case "=":
+				case "!=":
+					equalTo = pooled == PooledTextFilter.Field.TEXT
+							? PooledTextFilter.equalTo(pooled, text)
+							: textTest(pooled, (string) -> string.equals(text));
+					return new Leaf(written, cost, op.equals("=") ? equalTo : equalTo.negate());
+				default:
+					throw new QueryException("Text can only be compared with ':', '=' or '!='", pos);
+			}
+		}
+
+		//Runs a test against the lowercase form of a field. Names aren't pooled, since every card's name is different.
+		private static Predicate<Card> textTest(PooledTextFilter.Field pooled, Predicate<String> test) {
+			if (pooled == null) {
+				return (card) -> test.test(card.getName().toLowerCase(Locale.ROOT));
+			} else if (pooled == PooledTextFilter.Field.TYPE) {
+				return PooledTextFilter.matching(pooled, (type) -> test.test(type.toLowerCase(Locale.ROOT)));
+			}
+			return PooledTextFilter.matching(pooled, test);
+		}
+
+		private Node keywordTerm(String field, String op, Value value, int start) {
+			String written = field + op + value.written;
+			if (value.isRegex) {
+				Pattern regex = compile(value.text);
+				return new Leaf(written, COST_KEYWORD + COST_REGEX,
+						PooledTextFilter.matching(PooledTextFilter.Field.KEYWORD, (keyword) -> regex.matcher(keyword).find()));
+			} else if (!op.equals(":") && !op.equals("=")) {
+				throw new QueryException("Keywords can only be compared with ':' or '='", start);
+			}
+
+			String keyword = value.text.toLowerCase(Locale.ROOT);
+			return new Leaf(written, COST_KEYWORD, PooledTextFilter.equalTo(PooledTextFilter.Field.KEYWORD, keyword));
+		}
+
+		private Node colorTerm(String field, String op, Value value, int start) {
+			int colors = 0;
+			for (char symbol : value.text.toUpperCase(Locale.ROOT).toCharArray()) {
+				if (symbol == 'C') {
+					continue;
+				}
+				CardColor color = CardColor.getColorFromScryfall(String.valueOf(symbol));
+				if (color == CardColor.COLORLESS) {
+					throw new QueryException("Unknown color '" + symbol + "'", start);
+				}
+				colors |= 1 << color.ordinal();
+			}
+
+			int query = colors;
+			IntPredicate test;
+			switch (op) {
+				case ":":
+				case ">=":
+					//Asking for colorless means exactly colorless, since every card contains no colors.
+					test = query == 0 ? (card) -> card == 0 : (card) -> (card & query) == query;
+					break;
+				case "=":
+					test = (card) -> card == query;
+					break;
+				case "!=":
+					test = (card) -> card != query;
+					break;
+				case "<=":
+					test = (card) -> (card & ~query) == 0;
+					break;
+				case "<":
+					test = (card) -> (card & ~query) == 0 && card != query;
+					break;
+				case ">":
+					test = (card) -> (card & query) == query && card != query;
+					break;
+				default:
+					throw new QueryException("Unknown operator '" + op + "'", start);
+			}
+			return new Leaf(field + op + value.written, COST_COLOR, (card) -> test.test(colorMask(card)));
+		}
+
+		private Node numberTerm(String field, String op, Value value, int cardField) {
+			double number;
+			try {
+				number = Double.parseDouble(value.text);
+			} catch (NumberFormatException e) {
+				throw new QueryException("'" + value.text + "' is not a number", pos - value.written.length());
+			}
+
+			double min = Double.NEGATIVE_INFINITY;
+			double max = Double.POSITIVE_INFINITY;
+			boolean includeMin = true;
+			boolean includeMax = true;
+			switch (op) {
+				case ":":
+				case "=":
+				case "!=":
+					min = number;
+					max = number;
+					break;
+				case "<":
+					includeMax = false;
+					//Fall through.
+				case "<=":
+					max = number;
+					break;
+				case ">":
+					includeMin = false;
+					//Fall through.
+				case ">=":
+					min = number;
+					break;
+				default:
+					throw new QueryException("Unknown operator '" + op + "'", pos);
+			}
+
+			String written = field + op + value.written;
+			Predicate<Card> hasValue = cardField == Card.POWER_OR_LOYALTY ? Card::hasFixedPowerOrLoyalty
+					: cardField == Card.TOUGHNESS ? Card::hasFixedToughness : (card) -> true;
+			ToDoubleFunction<Card> getter = cardField == Card.POWER_OR_LOYALTY ? Card::getPowerOrLoyalty
+					: cardField == Card.TOUGHNESS ? Card::getToughness : Card::getManaValue;
+			double finalMin = min;
+			double finalMax = max;
+			boolean finalIncludeMin = includeMin;
+			boolean finalIncludeMax = includeMax;
+			DoublePredicate inRange = (x) -> (x > finalMin || (finalIncludeMin && x == finalMin)) && (x < finalMax || (finalIncludeMax && x == finalMax));
+			DoublePredicate test = op.equals("!=") ? (x) -> x != number : inRange;
+			Predicate<Card> direct = (card) -> !card.isRemoved && hasValue.test(card) && test.test(getter.applyAsDouble(card));
+
+			//Indexes only exist once every card has loaded.
+			if (CardDatabase.isLoaded()) {
+				int databaseVersion = CardDatabase.getDatabaseVersion();
+				RangeIndex index = CardDatabase.getRangeIndex(cardField);
+				BitSet ids;
+				if (op.equals("!=")) {
+					ids = index.select(Double.NEGATIVE_INFINITY, true, number, false);
+					ids.or(index.select(number, false, Double.POSITIVE_INFINITY, true));
+				} else {
+					ids = index.select(min, includeMin, max, includeMax);
+				}
+				return new IndexedLeaf(written, ids, direct, databaseVersion);
+			}
+
+			//No database to index yet, so test each card directly.
+			return new Leaf(written, COST_NUMBER, direct);
+		}
+
+		private Pattern compile(String regex) {
+			try {
+				return Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+			} catch (PatternSyntaxException e) {
+				throw new QueryException("Invalid regex: " + e.getDescription(), pos);
+			}
+		}
+
+		private String readOperator() {
+			for (String op : new String[]{"!=", "<=", ">=", ":", "=", "<", ">"}) {
+				if (query.startsWith(op, pos)) {
+					pos += op.length();
+					return op;
+				}
+			}
+			return null;
+		}
+
+		private Value readValue(boolean allowRegex) {
+			int start = pos;
+			if (pos >= query.length()) {
+				throw new QueryException("Expected a value", pos);
+			}
+
+			char c = query.charAt(pos);
+			if (c == '"' || (allowRegex && c == '/')) {
+				StringBuilder text = new StringBuilder();
+				pos++;
+				while (pos < query.length() && query.charAt(pos) != c) {
+					//Allow escaping the closing character inside of the value.
+					if (query.charAt(pos) == '\\' && pos + 1 < query.length() && query.charAt(pos + 1) == c) {
+						pos++;
+					}
+					text.append(query.charAt(pos++));
+				}
+				if (pos >= query.length()) {
+					throw new QueryException("Unclosed " + c, start);
+				}
+				pos++;
+				return new Value(text.toString(), query.substring(start, pos), c == '/');
+			}
+
+			while (pos < query.length() && !Character.isWhitespace(query.charAt(pos)) && query.charAt(pos) != ')') {
+				pos++;
+			}
+			if (pos == start) {
+				throw new QueryException("Expected a value", pos);
+			}
+			return new Value(query.substring(start, pos), query.substring(start, pos), false);
+		}
+
+		private void skipSpaces() {
+			while (pos < query.length() && Character.isWhitespace(query.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		//Whether the next token is the given word on its own, like "or", as opposed to the start of a longer word.
+		private boolean isWord(String word) {
+			int end = pos + word.length();
+			return query.regionMatches(true, pos, word, 0, word.length())
+					&& (end == query.length() || Character.isWhitespace(query.charAt(end)) || query.charAt(end) == '(');
+		}
+
+		private boolean matchWord(String word) {
+			skipSpaces();
+			if (isWord(word)) {
+				pos += word.length();
+				return true;
+			}
+			return false;
+		}
+
+		//Merges nested groups of the same kind, so that they're planned together.
+		private static List<Node> flatten(List<Node> nodes, Class<? extends Node> kind) {
+			List<Node> flat = new ArrayList<>(nodes.size());
+			for (Node node : nodes) {
+				if (kind == And.class && node instanceof And) {
+					Collections.addAll(flat, ((And) node).children);
+				} else if (kind == Or.class && node instanceof Or) {
+					Collections.addAll(flat, ((Or) node).children);
+				} else {
+					flat.add(node);
+				}
+			}
+			return flat;
+		}
+	}
+
+	private static final class Value {
+		private final String text;
+		//The value as it was written in the query, including quotes.
+		private final String written;
+		private final boolean isRegex;
+
+		private Value(String text, String written, boolean isRegex) {
+			this.text = text;
+			this.written = written;
+			this.isRegex = isRegex;
+		}
+	}
+
+	//Color identity as a bit per color. Colorless cards are 0.
+	private static int colorMask(Card card) {
+		int mask = 0;
+		for (CardColor color : card.colorIdentity) {
+			if (color != CardColor.COLORLESS) {
+				mask |= 1 << color.ordinal();
+			}
+		}
+		return mask;
+	}
+}
@@ -1,15 +1,26 @@
 package gui.panes.models;
 
 
+import application.LogTags;
 import database.card.Card;
 import database.card.CardColor;
 import database.card.CardDatabase;
+import database.card.DeckState;
+import database.card.PooledTextFilter;
+import database.card.PrintingGroups;
 import gui.Gui;
+import metrics.Histogram;
+import metrics.Metrics;
+import org.tinylog.Logger;
 
 import javax.swing.*;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -22,10 +33,22 @@ public class CardTableFilter {
 	private static boolean viewingUnowned = false;
 	private static boolean viewingBanned = false;
 	private static boolean viewingNonPlayable = false;
-	private static List<Predicate<Card>> currentFilters;
+	//Every active filter, planned into one query so that the cheapest and most selective run first.
+	private static Predicate<Card> currentFilter;
+
+	private static final Histogram filterTime = Metrics.histogram("ui.filter");
+
+	private static final int MAX_CACHED_RESULTS = 32;
+	//Results of recent filters, keyed by view flags and the planned query. Only touched with the class locked.
+	private static final Map<String, CachedResult> cachedResults = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_CACHED_RESULTS;
+		}
+	};
 
 	public static Predicate<Card> createManaFilter(Set<CardColor> colors) {
-		return (card) -> {
+		return CardQuery.withCost("colors" + colors, CardQuery.COST_COLOR, (card) -> {
 			if (colors.contains(CardColor.COLORLESS)) { //OR
 				if (colors.size() == 1) {
 					return card.colorIdentity.contains(CardColor.COLORLESS);
@@ -41,76 +64,82 @@ public class CardTableFilter {
 			} else { //AND
 				return card.colorIdentity.size() == colors.size() && colors.containsAll(card.colorIdentity);
 			}
-		};
+		});
 	}
 
 	public static Predicate<Card> createNameFilter(String query) {
 		if (query.startsWith("REGEX:")) {
 			Pattern regex = Pattern.compile(query.toLowerCase().substring("REGEX:".length()));
-			return (card -> regex.matcher(card.getName().toLowerCase()).find());
+			return CardQuery.withCost("name:" + query, CardQuery.COST_REGEX + CardQuery.COST_NAME, card -> regex.matcher(card.getName().toLowerCase()).find());
 		} else if (query.startsWith("EQUALS:")) {
 			String squery = query.substring("EQUALS:".length()).toLowerCase();
-			return (card -> card.getName().equalsIgnoreCase(squery));
+			return CardQuery.withCost("name=" + squery, CardQuery.COST_NAME, card -> card.getName().equalsIgnoreCase(squery));
 		} else {
 			String lquery = query.toLowerCase();
-			return (card) -> card.getName().toLowerCase().contains(lquery);
+			return CardQuery.withCost("name:" + lquery, CardQuery.COST_NAME, (card) -> card.getName().toLowerCase().contains(lquery));
 		}
 	}
 
 	public static Predicate<Card> createTextFilter(String query) {
 		if (query.startsWith("REGEX:")) {
 			Pattern regex = Pattern.compile(query.toLowerCase().substring("REGEX:".length()));
-			return (card -> regex.matcher(card.cardText).find());
+			return CardQuery.withCost("text:" + query, CardQuery.COST_REGEX + CardQuery.COST_TEXT,
+					PooledTextFilter.matching(PooledTextFilter.Field.TEXT, (text) -> regex.matcher(text).find()));
 		} else if (query.startsWith("EQUALS:")) {
 			String squery = query.substring("EQUALS:".length()).toLowerCase();
-			return (card -> card.cardText.equals(squery));
+			return CardQuery.withCost("text=" + squery, CardQuery.COST_TEXT, PooledTextFilter.equalTo(PooledTextFilter.Field.TEXT, squery));
 		} else {
 			String lquery = query.toLowerCase();
-			return (card) -> card.cardText.contains(lquery);
+			return CardQuery.withCost("text:" + lquery, CardQuery.COST_TEXT, PooledTextFilter.contains(PooledTextFilter.Field.TEXT, lquery));
 		}
 	}
 
 	public static Predicate<Card> createTypeFilter(String query) {
 		if (query.startsWith("REGEX:")) {
 			Pattern regex = Pattern.compile(query.toLowerCase().substring("REGEX:".length()));
-			return (card -> regex.matcher(card.getType().toLowerCase()).find());
+			return CardQuery.withCost("type:" + query, CardQuery.COST_REGEX + CardQuery.COST_TYPE,
+					PooledTextFilter.matching(PooledTextFilter.Field.TYPE, (type) -> regex.matcher(type.toLowerCase()).find()));
 		} else if (query.startsWith("EQUALS:")) {
 			String squery = query.substring("EQUALS:".length()).toLowerCase();
-			return (card -> card.getType().equalsIgnoreCase(squery));
+			return CardQuery.withCost("type=" + squery, CardQuery.COST_TYPE,
+					PooledTextFilter.matching(PooledTextFilter.Field.TYPE, (type) -> type.equalsIgnoreCase(squery)));
 		} else {
 			String lquery = query.toLowerCase();
-			return (card) -> card.getType().toLowerCase().contains(lquery);
+			return CardQuery.withCost("type:" + lquery, CardQuery.COST_TYPE,
+					PooledTextFilter.matching(PooledTextFilter.Field.TYPE, (type) -> type.toLowerCase().contains(lquery)));
 		}
 	}
 
 	public static Predicate<Card> createKeywordFilter(String query) {
 		String[] splitStrings = query.split("\\+");
-		Collection<String[]> andGroups = new ArrayList<>(splitStrings.length);
+		Collection<Predicate<Card>> andGroups = new ArrayList<>(splitStrings.length);
 		for (String splitString : splitStrings) {
-			andGroups.add(splitString.split(","));
+			Set<String> group = new HashSet<>();
+			for (String keyword : splitString.split(",")) {
+				group.add(keyword.toLowerCase());
+			}
+			andGroups.add(PooledTextFilter.matching(PooledTextFilter.Field.KEYWORD, group::contains));
 		}
 
-		return (card) -> {
-			for (String[] group : andGroups) {
-				boolean isValid = false;
-				for (String keyword : group) {
-					if (card.keywords.contains(keyword.toLowerCase())) {
-						isValid = true;
-						break;
-					}
-				}
-
-				if (!isValid) {
+		return CardQuery.withCost("keywords:" + query, CardQuery.COST_KEYWORD * splitStrings.length, (card) -> {
+			for (Predicate<Card> group : andGroups) {
+				if (!group.test(card)) {
 					return false;
 				}
 			}
 
 			return true;
-		};
+		});
 	}
 
 	public static void setFilterList(List<Predicate<Card>> filters) {
-		currentFilters = filters;
+		if (filters == null || filters.isEmpty()) {
+			currentFilter = null;
+		} else {
+			CardQuery query = CardQuery.allOf(filters);
+			Logger.tag(LogTags.USER_INPUT.tag).debug("Filtering with plan {}", query.explain());
+			currentFilter = query;
+		}
 		createTableFilter();
 	}
 
@@ -139,35 +168,160 @@ public class CardTableFilter {
 		createTableFilter();
 	}
 
-	private static void createTableFilter() {
+	private static synchronized void createTableFilter() {
+		String key = (viewingDeck ? "D" : "-") + (viewingCollection ? "C" : "-") + (viewingUnowned ? "U" : "-")
+				+ (viewingBanned ? "B" : "-") + (viewingNonPlayable ? "N" : "-") + " " + (currentFilter == null ? "" : currentFilter);
+		CachedResult result = cachedResults.get(key);
+		if (result == null) {
+			result = new CachedResult(currentFilter, viewingDeck, viewingCollection, viewingUnowned, viewingBanned, viewingNonPlayable);
+			cachedResults.put(key, result);
+		} else {
+			Logger.tag(LogTags.USER_INPUT.tag).debug("Reusing cached results for {}", key);
+		}
+
+		CachedResult filter = result;
 		Gui.setCardFilter(new RowFilter<CardTableModel, Integer>() {
+			//The sorter only calls this from the event thread, so the last answer can be kept without locking.
+			private DeckState lastDeck;
+			private PrintingGroups lastGroups;
+			private BitSet lastVisible;
+
 			@Override
 			public boolean include(Entry<? extends CardTableModel, ? extends Integer> entry) {
-				Card card = CardDatabase.getCard(entry.getIdentifier());
+				DeckState deck = CardDatabase.getDeckState();
+				CardTableModel model = entry.getModel();
+				if (deck != lastDeck || model.getGroups() != lastGroups || lastVisible == null) {
+					long start = System.nanoTime();
+					lastVisible = filter.getVisible(deck, model.getGroups());
+					filterTime.recordSince(start);
+					lastDeck = deck;
+					lastGroups = model.getGroups();
+				}
+				//A printing's row is shown whenever its group's row is.
+				return lastVisible.get(model.getGroupAt(entry.getIdentifier()));
+			}
+		});
+	}
 
-				//Test against views.
-				if (!viewingDeck && card.copiesInDeck() > 0) {
-					return false;
-				} else if (!viewingUnowned && card.getOwned() == 0) {
-					return false;
-				} else if (!viewingCollection && (card.getOwned() > 0 && card.copiesInDeck() == 0)) {
-					return false;
-				} else if (!viewingBanned && card.banned) {
-					return false;
-				} else if (!viewingNonPlayable && !card.isPlayable) {
-					return false;
+	/**
+	 Groups of printings that one combination of filters and view flags lets through, or ids of cards while the database
+	 is still loading and cards haven't been grouped. The provided filters and the playable check never change for a
+	 card, so they're run once, on each group's representative printing. The other view checks depend on the deck state,
+	 count every printing in the group, and are only rerun when a version they actually depend on changes. */
+	private static final class CachedResult {
+		private final Predicate<Card> filter;
+		private final boolean viewingDeck;
+		private final boolean viewingCollection;
+		private final boolean viewingUnowned;
+		private final boolean viewingBanned;
+		private final boolean viewingNonPlayable;
+		private final boolean dependsOnCollection;
+		private final boolean dependsOnBans;
+
+		private BitSet matches;
+		private int matchedDatabaseVersion;
+		private PrintingGroups matchedGroups;
+		//Groups or cards below this number have been checked against the filter. Grows as cards load.
+		private int matchedCount;
+		private BitSet visible;
+		private long collectionVersion;
+		private long banVersion;
+
+		CachedResult(Predicate<Card> filter, boolean viewingDeck, boolean viewingCollection, boolean viewingUnowned,
+				boolean viewingBanned, boolean viewingNonPlayable) {
+			this.filter = filter;
+			this.viewingDeck = viewingDeck;
+			this.viewingCollection = viewingCollection;
+			this.viewingUnowned = viewingUnowned;
+			this.viewingBanned = viewingBanned;
+			this.viewingNonPlayable = viewingNonPlayable;
+			dependsOnCollection = !viewingDeck || !viewingCollection || !viewingUnowned;
+			dependsOnBans = !viewingBanned;
+		}
+
+		/**
+		 @param deck   The deck state to check the view flags against.
+		 @param groups The grouping the table's rows come from, or null if its rows are cards.
+		 @return The groups, or cards, that should be shown.
+		 */
+		synchronized BitSet getVisible(DeckState deck, PrintingGroups groups) {
+			FilterEvent event = new FilterEvent();
+			event.begin();
+			int filtered = 0;
+			int databaseVersion = CardDatabase.getDatabaseVersion();
+			if (matches == null || matchedDatabaseVersion != databaseVersion || matchedGroups != groups) {
+				matches = new BitSet();
+				matchedDatabaseVersion = databaseVersion;
+				matchedGroups = groups;
+				matchedCount = 0;
+			}
+			//Only cards that have loaded since the last check need testing. The deck state may be from before an update
+			//added cards, and can't say anything about them yet.
+			int count = groups != null ? groups.getGroupCount() : Integer.min(CardDatabase.getCardCount(), deck.getCardCount());
+			if (count > matchedCount) {
+				filtered = count - matchedCount;
+				for (int i = matchedCount; i < count; i++) {
+					Card card = groups != null ? groups.getRepresentative(i) : CardDatabase.getCard(i);
+					if (!card.isRemoved && (viewingNonPlayable || card.isPlayable) && (filter == null || filter.test(card))) {
+						matches.set(i);
+					}
 				}
+				matchedCount = count;
+				visible = null;
+			}
 
-				if (currentFilters != null) {
-					//Test provided filters.
-					for (Predicate<Card> filter : currentFilters) {
-						if (!filter.test(card)) {
-							return false;
-						}
+			if (visible != null
+					&& (!dependsOnCollection || collectionVersion == deck.getCollectionVersion())
+					&& (!dependsOnBans || banVersion == deck.getBanVersion())) {
+				commit(event, filtered, false);
+				return visible;
+			}
+
+			BitSet newVisible = (BitSet) matches.clone();
+			boolean viewChecked = dependsOnCollection || dependsOnBans;
+			if (viewChecked) {
+				for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+					boolean viewed;
+					if (groups != null) {
+						viewed = isViewed(groups.getOwned(i, deck), groups.copiesInDeck(i, deck), groups.isBanned(i, deck));
+					} else {
+						Card card = CardDatabase.getCard(i);
+						viewed = isViewed(deck.getOwned(card), deck.copiesInDeck(card), deck.isBanned(card));
+					}
+					if (!viewed) {
+						newVisible.clear(i);
 					}
 				}
-				return true;
 			}
-		});
+			visible = newVisible;
+			collectionVersion = deck.getCollectionVersion();
+			banVersion = deck.getBanVersion();
+			commit(event, filtered, viewChecked);
+			return visible;
+		}
+
+		private void commit(FilterEvent event, int filtered, boolean viewChecked) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.query = filter == null ? "" : filter.toString();
+				event.view = (viewingDeck ? "D" : "-") + (viewingCollection ? "C" : "-") + (viewingUnowned ? "U" : "-")
+						+ (viewingBanned ? "B" : "-") + (viewingNonPlayable ? "N" : "-");
+				event.filtered = filtered;
+				event.viewChecked = viewChecked ? matches.cardinality() : 0;
+				event.results = visible.cardinality();
+				event.commit();
+			}
+		}
+
+		private boolean isViewed(int owned, int inDeck, boolean banned) {
+			if (!viewingDeck && inDeck > 0) {
+				return false;
+			} else if (!viewingUnowned && owned == 0) {
+				return false;
+			} else if (!viewingCollection && (owned > 0 && inDeck == 0)) {
+				return false;
+			}
+			return viewingBanned || !banned;
+		}
 	}
 }
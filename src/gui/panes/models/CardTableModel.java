@@ -2,13 +2,162 @@ package gui.panes.models;
 
 import database.card.Card;
 import database.card.CardDatabase;
+import database.card.PrintingGroups;
 
 import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.BitSet;
 
+/**
+ Rows of the card table. Once the database is loaded, there's one row per oracle card, and the printings of a card are
+ only added as rows below it when the card gets expanded. While it's still loading, cards haven't been grouped yet, so
+ there's a row for every card instead. */
 public class CardTableModel extends AbstractTableModel {
+	//Grouping the rows are laid out from, or null while the database is loading and rows are cards.
+	private PrintingGroups groups = CardDatabase.getPrintingGroups();
+	//Cards or groups the table has been told about. Only grows through addLoadedRows, so the sorter never sees rows appear unannounced.
+	private int groupCount = groups != null ? groups.getGroupCount() : CardDatabase.getCardCount();
+	//Groups showing their printings.
+	private final BitSet expanded = new BitSet();
+	//Row of each group, or null when nothing is expanded and each group's row is just its number.
+	private int[] groupRows;
+	private int rowCount = groupCount;
+
 	@Override
 	public int getRowCount() {
-		return CardDatabase.getCardCount();
+		return rowCount;
+	}
+
+	/** Adds rows for cards loaded since the table last looked. Must be called from the event thread. */
+	public void addLoadedRows() {
+		if (CardDatabase.getPrintingGroups() != groups) {
+			//Every card is in, so the rows can switch over to groups.
+			reload();
+			return;
+		}
+		int cardCount = CardDatabase.getCardCount();
+		if (groups == null && cardCount > groupCount) {
+			int firstRow = groupCount;
+			groupCount = cardCount;
+			rowCount = cardCount;
+			fireTableRowsInserted(firstRow, cardCount - 1);
+		}
+	}
+
+	/** Refreshes every row, including any added to the card database. Must be called from the event thread. */
+	public void reload() {
+		PrintingGroups current = CardDatabase.getPrintingGroups();
+		if (current != groups) {
+			//Group numbers don't carry over between databases.
+			groups = current;
+			expanded.clear();
+			groupRows = null;
+		}
+		groupCount = groups != null ? groups.getGroupCount() : CardDatabase.getCardCount();
+		layOutRows();
+		fireTableDataChanged();
+	}
+
+	/** @return The grouping the rows are laid out from, or null if each row is a card. */
+	public PrintingGroups getGroups() {
+		return groups;
+	}
+
+	/** @return The group in the row, or the card's id if rows are cards. Printings' rows give their group. */
+	public int getGroupAt(int row) {
+		if (groupRows == null) {
+			return row;
+		}
+		int group = Arrays.binarySearch(groupRows, row);
+		return group >= 0 ? group : -group - 2;
+	}
+
+	//Which of the group's printings is in the row, or -1 for the group's own row.
+	private int getPrintingAt(int row, int group) {
+		return groupRows == null ? -1 : row - groupRows[group] - 1;
+	}
+
+	/**
+	 @param row The row.
+	 @return The card in the row. For a group's row, the printing that's preferred given the user's collection.
+	 */
+	public Card getCardAt(int row) {
+		if (groups == null) {
+			return CardDatabase.getCard(row);
+		}
+		int group = getGroupAt(row);
+		int printing = getPrintingAt(row, group);
+		return printing < 0 ? groups.getPreferred(group, CardDatabase.getDeckState()) : groups.getPrinting(group, printing);
+	}
+
+	/**
+	 @param card The card.
+	 @return Every row showing the card: its group's row and, if the group is expanded, the printing's own row.
+	 */
+	public int[] getRowsFor(Card card) {
+		if (groups == null) {
+			return card.id < rowCount ? new int[]{card.id} : new int[0];
+		}
+		int group = groups.getGroup(card);
+		if (group < 0 || group >= groupCount) {
+			return new int[0];
+		}
+		int groupRow = groupRows == null ? group : groupRows[group];
+		if (!expanded.get(group)) {
+			return new int[]{groupRow};
+		}
+		return new int[]{groupRow, groupRow + 1 + groups.indexOf(group, card)};
+	}
+
+	/** @return Whether or not the row is a group with more than one printing, so it can be expanded. */
+	public boolean isExpandable(int row) {
+		if (groups == null) {
+			return false;
+		}
+		int group = getGroupAt(row);
+		return getPrintingAt(row, group) < 0 && groups.getPrintingCount(group) > 1;
+	}
+
+	/** @return Whether or not the row is a group that's showing its printings. */
+	public boolean isExpanded(int row) {
+		return isExpandable(row) && expanded.get(getGroupAt(row));
+	}
+
+	/**
+	 Shows or hides the printings of the group in a row, as rows right below it. Must be called from the event thread.
+	 @param row    The group's row.
+	 @param expand Whether to show the printings or hide them.
+	 */
+	public void setExpanded(int row, boolean expand) {
+		if (!isExpandable(row) || isExpanded(row) == expand) {
+			return;
+		}
+		int group = getGroupAt(row);
+		int printings = groups.getPrintingCount(group);
+		expanded.set(group, expand);
+		layOutRows();
+		fireTableCellUpdated(row, Card.NAME);
+		if (expand) {
+			fireTableRowsInserted(row + 1, row + printings);
+		} else {
+			fireTableRowsDeleted(row + 1, row + printings);
+		}
+	}
+
+	//Works out where each group's row goes, after the printings of the expanded groups before it.
+	private void layOutRows() {
+		if (expanded.isEmpty()) {
+			groupRows = null;
+			rowCount = groupCount;
+			return;
+		}
+		groupRows = new int[groupCount];
+		int row = 0;
+		for (int group = 0; group < groupCount; group++) {
+			groupRows[group] = row;
+			row += expanded.get(group) ? groups.getPrintingCount(group) + 1 : 1;
+		}
+		rowCount = row;
 	}
 
 	@Override
@@ -23,7 +172,15 @@ public class CardTableModel extends AbstractTableModel {
 
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex) {
-		return CardDatabase.getCard(rowIndex).get(columnIndex);
+		if (groups == null) {
+			return CardDatabase.getCard(rowIndex).get(columnIndex);
+		}
+		int group = getGroupAt(rowIndex);
+		int printing = getPrintingAt(rowIndex, group);
+		if (printing < 0) {
+			return groups.get(group, columnIndex, expanded.get(group));
+		}
+		return groups.getPrintingField(group, printing, columnIndex);
 	}
 
 	@Override
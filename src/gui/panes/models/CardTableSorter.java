@@ -1,11 +1,16 @@
 package gui.panes.models;
 
 import gui.panes.CardListPane;
+import metrics.Histogram;
+import metrics.Metrics;
 
 import javax.swing.table.TableRowSorter;
 import java.util.Comparator;
 
 public class CardTableSorter extends TableRowSorter<CardTableModel> {
+	//Covers filtering too, since a new filter re-sorts every row.
+	private static final Histogram sortTime = Metrics.histogram("ui.table.sort");
+
 	public CardTableSorter(CardListPane pane, CardTableModel model) {
 		super(model);
 		addRowSorterListener((e) -> pane.updatePrefetching());
@@ -16,6 +21,13 @@ public class CardTableSorter extends TableRowSorter<CardTableModel> {
 		return (a, b) -> ((Comparable) a).compareTo(b);
 	}
 
+	@Override
+	public void sort() {
+		long start = System.nanoTime();
+		super.sort();
+		sortTime.recordSince(start);
+	}
+
 	@Override
 	protected boolean useToString(int column) {
 		return false;
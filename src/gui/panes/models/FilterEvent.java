@@ -0,0 +1,32 @@
+package gui.panes.models;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Flight recorder event covering one evaluation of the card table's filters. */
+@Name("mtgdeckbuddy.Filter")
+@Label("Card Filter")
+@Category({"MtgDeckBuddy", "UI"})
+final class FilterEvent extends Event {
+	@Label("Query")
+	@Description("Filter predicates in the order they run, or empty if only the view flags apply.")
+	String query;
+
+	@Label("View")
+	@Description("View flags: Deck, Collection, Unowned, Banned, Non-playable.")
+	String view;
+
+	@Label("Filtered Cards")
+	@Description("Cards run through the filter predicates. Zero when the matches were already known.")
+	int filtered;
+
+	@Label("View Checked Cards")
+	@Description("Matching cards run through the deck dependent view checks.")
+	int viewChecked;
+
+	@Label("Results")
+	int results;
+}
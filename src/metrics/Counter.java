@@ -0,0 +1,26 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Running total, like requests served or bytes downloaded. Lock free, and cheap enough to bump from hot paths on any
+ number of threads at once. */
+public final class Counter {
+	private final LongAdder count = new LongAdder();
+
+	Counter() {
+	}
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	/** @return The total so far. */
+	public long get() {
+		return count.sum();
+	}
+}
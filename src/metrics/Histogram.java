@@ -0,0 +1,92 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Distribution of durations. Values go into a log-linear histogram: one bucket range per power of two microseconds,
+ split into SUB_BUCKETS linear steps, so percentiles are accurate to about 12% while recording stays a couple of atomic
+ adds. Lock free, since any number of threads may record into it. */
+public final class Histogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	//Enough powers of two to cover about 70 minutes in microseconds.
+	private static final int MAGNITUDES = 32;
+
+	private final LongAdder totalMicros = new LongAdder();
+	private final AtomicLongArray buckets = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+
+	Histogram() {
+	}
+
+	/** Records how long something took. */
+	public void record(long nanos) {
+		long micros = Long.max(nanos / 1000, 0);
+		totalMicros.add(micros);
+		buckets.incrementAndGet(bucketOf(micros));
+	}
+
+	/** Records the time since startNanos, a value from System.nanoTime(). */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 Adds a summary of the distribution to a snapshot.
+	 @param values Snapshot to add to.
+	 @param name   Name of this histogram. Each value goes under name.count, name.p50Micros, and so on.
+	 */
+	void addTo(Map<String, Long> values, String name) {
+		long[] counts = new long[buckets.length()];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+
+		values.put(name + ".count", total);
+		values.put(name + ".meanMicros", total == 0 ? 0 : totalMicros.sum() / total);
+		values.put(name + ".p50Micros", percentile(counts, total, 0.50));
+		values.put(name + ".p90Micros", percentile(counts, total, 0.90));
+		values.put(name + ".p99Micros", percentile(counts, total, 0.99));
+		values.put(name + ".p999Micros", percentile(counts, total, 0.999));
+		values.put(name + ".maxMicros", percentile(counts, total, 1.0));
+	}
+
+	//Values under SUB_BUCKETS get a bucket each. Past that, the top SUB_BUCKET_BITS below the leading bit pick the bucket.
+	private static int bucketOf(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+		int subBucket = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return Integer.min((magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket, MAGNITUDES * SUB_BUCKETS - 1);
+	}
+
+	//Highest value that lands in the bucket.
+	private static long bucketMax(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+	}
+
+	private static long percentile(long[] counts, long total, double fraction) {
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Long.max((long) Math.ceil(total * fraction), 1);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return bucketMax(i);
+			}
+		}
+		return bucketMax(counts.length - 1);
+	}
+}
@@ -0,0 +1,180 @@
+package metrics;
+
+import application.LogTags;
+import org.json.JSONWriter;
+import org.tinylog.Logger;
+
+import javax.management.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ In process registry of counters, gauges, and latency histograms. Metrics are created the first time they're asked
+ for by name, and live for the rest of the process, so callers should hold onto them in a static field rather than
+ looking them up on every use. Names are dotted, starting with the layer they come from, like image.download.
+
+ Everything is readable through JMX under mtgdeckbuddy:type=Metrics, through the query server's /metrics endpoint,
+ and from a json file that gets rewritten periodically. The file is metrics.json by default, and can be changed with
+ -Dmtgdeckbuddy.metrics.file=<file>. -Dmtgdeckbuddy.metrics.period=<seconds> sets how often it's written, and 0 turns
+ it off. */
+public final class Metrics {
+	private static final String OBJECT_NAME = "mtgdeckbuddy:type=Metrics";
+	private static final String DEFAULT_DUMP_FILE = "metrics.json";
+	private static final int DEFAULT_DUMP_PERIOD = 60;
+
+	private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+	private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+	private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+	private static boolean started = false;
+
+	private Metrics() {
+	}
+
+	/** @return The counter with this name, creating it if needed. */
+	public static Counter counter(String name) {
+		return counters.computeIfAbsent(name, (key) -> new Counter());
+	}
+
+	/** @return The histogram with this name, creating it if needed. */
+	public static Histogram histogram(String name) {
+		return histograms.computeIfAbsent(name, (key) -> new Histogram());
+	}
+
+	/**
+	 Registers a value that's read whenever metrics are, like the length of a queue. Replaces any existing gauge with
+	 the same name.
+	 @param name  Name of the gauge.
+	 @param value Reads the current value. Must be thread safe and quick.
+	 */
+	public static void gauge(String name, LongSupplier value) {
+		gauges.put(name, value);
+	}
+
+	/** @return The current value of every metric, by name. Histograms are broken down into several values. */
+	public static Map<String, Long> snapshot() {
+		Map<String, Long> values = new TreeMap<>();
+		counters.forEach((name, counter) -> values.put(name, counter.get()));
+		gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+		histograms.forEach((name, histogram) -> histogram.addTo(values, name));
+		return values;
+	}
+
+	/** Writes every metric as a json object of names to values. */
+	public static void write(JSONWriter json) {
+		json.object();
+		for (Map.Entry<String, Long> entry : snapshot().entrySet()) {
+			json.key(entry.getKey()).value(entry.getValue());
+		}
+		json.endObject();
+	}
+
+	/**
+	 Publishes metrics through JMX and starts writing the dump file. Metrics are recorded whether or not this gets
+	 called. Does nothing if called more than once.
+	 */
+	public static synchronized void start() {
+		if (started) {
+			return;
+		}
+		started = true;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			Logger.tag(LogTags.METRICS.tag).warn(e, "Unable to publish metrics through JMX.");
+		}
+
+		long period = Long.getLong("mtgdeckbuddy.metrics.period", DEFAULT_DUMP_PERIOD);
+		if (period <= 0) {
+			return;
+		}
+		File file = new File(System.getProperty("mtgdeckbuddy.metrics.file", DEFAULT_DUMP_FILE));
+		ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "Metrics Dump");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dumper.scheduleAtFixedRate(() -> dump(file), period, period, TimeUnit.SECONDS);
+		//One last time on the way out, so short runs still leave something behind.
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(file), "Metrics Final Dump"));
+		Logger.tag(LogTags.METRICS.tag).info("Writing metrics to {} every {} seconds.", file.getAbsolutePath(), period);
+	}
+
+	//Replaces the file in one step, so nothing reading it ever sees half of a dump.
+	private static synchronized void dump(File file) {
+		File tempFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+		try {
+			try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+				JSONWriter json = new JSONWriter(writer);
+				json.object().key("time").value(Instant.now().toString()).key("metrics");
+				write(json);
+				json.endObject();
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Logger.tag(LogTags.METRICS.tag).warn(e, "Unable to write metrics to {}.", file.getAbsolutePath());
+		}
+	}
+
+	/** Shows every metric as a read only JMX attribute. New metrics show up the next time the bean is looked at. */
+	private static final class MetricsBean implements DynamicMBean {
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Long value = snapshot().get(attribute);
+			if (value == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			return value;
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			Map<String, Long> values = snapshot();
+			AttributeList list = new AttributeList();
+			for (String attribute : attributes) {
+				Long value = values.get(attribute);
+				if (value != null) {
+					list.add(new Attribute(attribute, value));
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Metrics are read only.");
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			Map<String, Long> values = snapshot();
+			MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+			int i = 0;
+			for (String name : values.keySet()) {
+				attributes[i++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+			}
+			return new MBeanInfo(Metrics.class.getName(), "MtgDeckBuddy metrics.", attributes, null, null, null);
+		}
+	}
+}
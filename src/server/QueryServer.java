@@ -0,0 +1,380 @@
+package server;
+
+import application.LogTags;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import database.card.Card;
+import database.card.CardColor;
+import database.card.CardDatabase;
+import database.card.DeckState;
+import database.image.ImageStore;
+import gui.panes.models.CardQuery;
+import gui.panes.models.CardTableFilter;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+import org.json.JSONWriter;
+import org.tinylog.Logger;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ Optional HTTP server that lets other local tools query the loaded card database. Only listens on the loopback address.
+ Everything it exposes is read only, so requests are handled in parallel without touching the database worker.
+
+ Endpoints:
+ GET  /cards/{id}                Card by id.
+ GET  /cards?name=...            Card by name, resolved the same way as .dec files.
+ GET  /search?q=&name=&type=&text=&keyword=&colors=&offset=&limit=
+                                 Cards matching every given filter, using the same syntax as the filter pane.
+                                 q takes a CardQuery, like t:creature c:ur cmc<=3.
+ POST /validate                  Checks the .dec file in the request body against the deck format, collection and ban list.
+ GET  /image/{id}?face=back      Card image as a jpeg.
+ GET  /metrics                   Every metric in the app, including request counts and latencies for each endpoint. */
+public class QueryServer {
+	private static final int DEFAULT_SEARCH_LIMIT = 100;
+	private static final int MAX_SEARCH_LIMIT = 10_000;
+	private static final int MAX_DECK_BYTES = 1 << 20;
+	private static final int BACKLOG = 1024;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private QueryServer(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+		AtomicInteger threadCount = new AtomicInteger(0);
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2, (runnable) -> {
+			Thread thread = new Thread(runnable, "Query Server " + threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+
+		addEndpoint("/cards", "GET", this::getCard);
+		addEndpoint("/search", "GET", this::search);
+		addEndpoint("/validate", "POST", this::validate);
+		addEndpoint("/image", "GET", this::getImage);
+		addEndpoint("/metrics", "GET", this::getMetrics);
+	}
+
+	/**
+	 Starts a server on the provided port. The card database must already be initialized, or be about to be.
+	 @param port Port to listen on, on the loopback address.
+	 @return The running server.
+	 @throws IOException If the port couldn't be bound.
+	 */
+	public static QueryServer start(int port) throws IOException {
+		QueryServer queryServer = new QueryServer(port);
+		queryServer.server.start();
+		Logger.tag(LogTags.SERVER.tag).info("Query server listening on {}.", queryServer.server.getAddress());
+		return queryServer;
+	}
+
+	/** Stops accepting requests, and gives running ones a second to finish. */
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	private interface Handler {
+		void handle(HttpExchange exchange) throws IOException, RequestException;
+	}
+
+	//Thrown when a request can't be answered. Turned into an error response with the given status.
+	private static class RequestException extends Exception {
+		private final int status;
+
+		RequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	private void addEndpoint(String path, String method, Handler handler) {
+		Histogram latency = Metrics.histogram("server." + method + " " + path);
+		Counter errors = Metrics.counter("server." + method + " " + path + ".errors");
+		server.createContext(path, (exchange) -> {
+			long start = System.nanoTime();
+			boolean isError = true;
+			try {
+				if (!exchange.getRequestMethod().equals(method)) {
+					throw new RequestException(405, "Use " + method + ".");
+				}
+				handler.handle(exchange);
+				isError = false;
+			} catch (RequestException e) {
+				sendError(exchange, e.status, e.getMessage());
+			} catch (IOException e) {
+				//Most likely the client going away halfway through a response.
+				Logger.tag(LogTags.SERVER.tag).debug(e, "Unable to respond to {}.", exchange.getRequestURI());
+			} catch (RuntimeException e) {
+				Logger.tag(LogTags.SERVER.tag).error(e, "Error while handling {}.", exchange.getRequestURI());
+				sendError(exchange, 500, e.toString());
+			} finally {
+				exchange.close();
+				latency.recordSince(start);
+				if (isError) {
+					errors.increment();
+				}
+			}
+		});
+	}
+
+	private void getCard(HttpExchange exchange) throws IOException, RequestException {
+		Card card;
+		String name = queryParameters(exchange).get("name");
+		if (name != null) {
+			card = CardDatabase.findCard(name);
+			if (card == null) {
+				throw new RequestException(404, "No card named '" + name + "'.");
+			}
+		} else {
+			card = cardFromPath(exchange, "/cards/");
+		}
+
+		DeckState deck = CardDatabase.getDeckState();
+		try (Writer writer = startJson(exchange)) {
+			writeCard(new JSONWriter(writer), card, deck);
+		}
+	}
+
+	private void search(HttpExchange exchange) throws IOException, RequestException {
+		Map<String, String> parameters = queryParameters(exchange);
+		List<Predicate<Card>> filters = new ArrayList<>();
+		try {
+			if (parameters.containsKey("colors")) {
+				filters.add(CardTableFilter.createManaFilter(parseColors(parameters.get("colors"))));
+			}
+			if (parameters.containsKey("name")) {
+				filters.add(CardTableFilter.createNameFilter(parameters.get("name")));
+			}
+			if (parameters.containsKey("type")) {
+				filters.add(CardTableFilter.createTypeFilter(parameters.get("type")));
+			}
+			if (parameters.containsKey("keyword")) {
+				filters.add(CardTableFilter.createKeywordFilter(parameters.get("keyword")));
+			}
+			if (parameters.containsKey("text")) {
+				filters.add(CardTableFilter.createTextFilter(parameters.get("text")));
+			}
+			if (parameters.containsKey("q")) {
+				filters.add(CardQuery.parse(parameters.get("q")));
+			}
+		} catch (PatternSyntaxException e) {
+			throw new RequestException(400, "Invalid regex: " + e.getDescription());
+		} catch (CardQuery.QueryException e) {
+			throw new RequestException(400, e.getMessage());
+		}
+		CardQuery query = CardQuery.allOf(filters);
+		int offset = intParameter(parameters, "offset", 0);
+		int limit = Integer.min(intParameter(parameters, "limit", DEFAULT_SEARCH_LIMIT), MAX_SEARCH_LIMIT);
+
+		DeckState deck = CardDatabase.getDeckState();
+		try (Writer writer = startJson(exchange)) {
+			JSONWriter json = new JSONWriter(writer);
+			json.object().key("cards").array();
+			int matches = 0;
+			int cardCount = CardDatabase.getCardCount();
+			for (int id = 0; id < cardCount; id++) {
+				Card card = CardDatabase.getCard(id);
+				if (card.isRemoved || !query.test(card)) {
+					continue;
+				}
+				if (matches >= offset && matches - offset < limit) {
+					writeCard(json, card, deck);
+				}
+				matches++;
+			}
+			json.endArray().key("matches").value(matches).key("plan").value(query.explain()).endObject();
+		}
+	}
+
+	private void validate(HttpExchange exchange) throws IOException, RequestException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+		byte[] chunk = new byte[8192];
+		try (InputStream in = exchange.getRequestBody()) {
+			for (int read = in.read(chunk); read >= 0; read = in.read(chunk)) {
+				body.write(chunk, 0, read);
+				if (body.size() > MAX_DECK_BYTES) {
+					throw new RequestException(413, "Deck is too large.");
+				}
+			}
+		}
+
+		List<String> problems = CardDatabase.validateDeck("request", ByteBuffer.wrap(body.toByteArray()));
+		try (Writer writer = startJson(exchange)) {
+			JSONWriter json = new JSONWriter(writer);
+			json.object().key("valid").value(problems.isEmpty()).key("problems").array();
+			for (String problem : problems) {
+				json.value(problem);
+			}
+			json.endArray().endObject();
+		}
+	}
+
+	private void getImage(HttpExchange exchange) throws IOException, RequestException {
+		Card card = cardFromPath(exchange, "/image/");
+		URL imageUrl = "back".equals(queryParameters(exchange).get("face")) ? card.getBackImageUrl() : card.getFrontImageUrl();
+		if (imageUrl == null) {
+			throw new RequestException(404, "Card has no image for that face.");
+		}
+
+		BufferedImage image;
+		try {
+			image = ImageStore.getImageFromScryfall(imageUrl);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RequestException(503, "Interrupted while loading image.");
+		}
+		if (image == null) {
+			throw new RequestException(502, "Unable to load image from Scryfall.");
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+		exchange.sendResponseHeaders(200, 0);
+		try (OutputStream out = new BufferedOutputStream(exchange.getResponseBody())) {
+			ImageIO.write(image, "jpg", out);
+		}
+	}
+
+	private void getMetrics(HttpExchange exchange) throws IOException {
+		try (Writer writer = startJson(exchange)) {
+			Metrics.write(new JSONWriter(writer));
+		}
+	}
+
+	//Sends headers for a streamed (chunked) json response, and returns a writer for the body.
+	private static Writer startJson(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(200, 0);
+		return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 14);
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) {
+		try {
+			StringWriter body = new StringWriter();
+			new JSONWriter(body).object().key("error").value(message).endObject();
+			byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			exchange.sendResponseHeaders(status, bytes.length);
+			exchange.getResponseBody().write(bytes);
+		} catch (IOException | IllegalStateException e) {
+			//Headers were already sent, or the client is gone. Nothing left to tell them.
+			Logger.tag(LogTags.SERVER.tag).debug("Unable to send error response: {}", message);
+		}
+	}
+
+	private static void writeCard(JSONWriter json, Card card, DeckState deck) {
+		json.object()
+				.key("id").value(card.id)
+				.key("name").value(card.getName())
+				.key("type").value(card.getType())
+				.key("mana").value(card.get(Card.MANA).toString())
+				.key("power").value(card.get(Card.POWER_OR_LOYALTY).toString())
+				.key("toughness").value(card.get(Card.TOUGHNESS).toString())
+				.key("text").value(card.getText())
+				.key("colorIdentity").array();
+		for (CardColor color : card.colorIdentity) {
+			json.value(color.niceName);
+		}
+		json.endArray().key("keywords").array();
+		for (String keyword : card.getKeywords()) {
+			json.value(keyword);
+		}
+		json.endArray()
+				.key("playable").value(card.isPlayable)
+				.key("owned").value(deck.getOwned(card))
+				.key("inDeck").value(deck.copiesInDeck(card))
+				.key("banned").value(deck.isBanned(card))
+				.key("frontImage").value(card.getFrontImageUrl() != null ? card.getFrontImageUrl().toString() : null)
+				.key("backImage").value(card.getBackImageUrl() != null ? card.getBackImageUrl().toString() : null)
+				.endObject();
+	}
+
+	private static Card cardFromPath(HttpExchange exchange, String prefix) throws RequestException {
+		String path = exchange.getRequestURI().getPath();
+		if (!path.startsWith(prefix)) {
+			throw new RequestException(400, "Expected " + prefix + "{id}.");
+		}
+
+		int id;
+		try {
+			id = Integer.parseInt(path.substring(prefix.length()));
+		} catch (NumberFormatException e) {
+			throw new RequestException(400, "Invalid card id.");
+		}
+		if (id < 0 || id >= CardDatabase.getCardCount() || CardDatabase.getCard(id).isRemoved) {
+			throw new RequestException(404, "No card with id " + id + ".");
+		}
+		return CardDatabase.getCard(id);
+	}
+
+	private static Map<String, String> queryParameters(HttpExchange exchange) throws RequestException {
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query == null || query.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, String> parameters = new HashMap<>();
+		try {
+			for (String pair : query.split("&")) {
+				int split = pair.indexOf('=');
+				if (split > 0) {
+					parameters.put(URLDecoder.decode(pair.substring(0, split), "UTF-8"), URLDecoder.decode(pair.substring(split + 1), "UTF-8"));
+				}
+			}
+		} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+			throw new RequestException(400, "Malformed query string.");
+		}
+		return parameters;
+	}
+
+	private static int intParameter(Map<String, String> parameters, String name, int defaultValue) throws RequestException {
+		String value = parameters.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			int parsed = Integer.parseInt(value);
+			if (parsed < 0) {
+				throw new RequestException(400, name + " can't be negative.");
+			}
+			return parsed;
+		} catch (NumberFormatException e) {
+			throw new RequestException(400, name + " must be a number.");
+		}
+	}
+
+	//Colors are given as Scryfall symbols, like "wu". "c" is colorless, which switches the filter to match any color.
+	private static Set<CardColor> parseColors(String symbols) throws RequestException {
+		Set<CardColor> colors = EnumSet.noneOf(CardColor.class);
+		for (char symbol : symbols.toUpperCase().toCharArray()) {
+			if (symbol == 'C') {
+				colors.add(CardColor.COLORLESS);
+				continue;
+			}
+
+			CardColor color = CardColor.getColorFromScryfall(String.valueOf(symbol));
+			if (color == CardColor.COLORLESS) {
+				throw new RequestException(400, "Unknown color '" + symbol + "'.");
+			}
+			colors.add(color);
+		}
+		return colors;
+	}
+}
@@ -0,0 +1,174 @@
+package database.card;
+
+import application.UserInterface;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ Updates a database built from update-before.json with update-after.json. Between the two, Lightning Bolt is dropped,
+ Counterspell is added at the front of the file, Llanowar Elves gets new text and stats, and Wastes stops being a basic
+ land. Every other card is the same, but the file lists them in a different order. */
+public class CardDatabaseUpdateTest {
+	private static final UUID COUNTERSPELL = UUID.fromString("0c1d2f3a-0000-4000-8000-000000000006");
+
+	@Test
+	public void updateMatchesCardsByScryfallId() throws IOException {
+		CardDatabase before = parse("update-before.json");
+		CardDatabase.Update update;
+		try (InputStream json = fixture("update-after.json")) {
+			update = CardDatabase.updateCards(before, json);
+		}
+		List<Card> oldCards = before.getCards();
+		List<Card> cards = update.database.getCards();
+
+		assertEquals(1, update.added);
+		assertEquals(1, update.removed);
+		assertEquals(2, update.changed);
+		assertEquals(2, update.unchanged);
+
+		//Cards still in the json keep their ids, wherever they're listed now.
+		assertEquals(oldCards.size() + 1, cards.size());
+		for (Card old : oldCards) {
+			Card card = cards.get(old.id);
+			assertEquals(old.getScryfallId(), card.getScryfallId());
+			assertEquals(old.getName(), card.getName());
+		}
+
+		Card counterspell = cards.get(oldCards.size());
+		assertEquals(COUNTERSPELL, counterspell.getScryfallId());
+		assertFalse(counterspell.isRemoved);
+
+		Card bolt = before.getNameIndex().find("Lightning Bolt");
+		assertTrue(cards.get(bolt.id).isRemoved);
+		assertNull(update.database.getNameIndex().find("Lightning Bolt"));
+		assertSame(counterspell, update.database.getNameIndex().find("Counterspell"));
+
+		Card elves = cards.get(before.getNameIndex().find("Llanowar Elves").id);
+		assertEquals(2, elves.getManaValue(), 0);
+		assertEquals(2, elves.getPowerOrLoyalty(), 0);
+		assertEquals("{t}: add {g}{g}.", elves.getText());
+		assertSame(elves, update.database.getNameIndex().find("Llanowar Elves"));
+		Card wastes = cards.get(before.getNameIndex().find("Wastes").id);
+		assertFalse(wastes.isBasicLand);
+		assertEquals("Land", wastes.getType());
+	}
+
+	@Test
+	public void updateKeepsCollectionDeckAndBans() throws Exception {
+		List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		CardDatabase.initCardDatabase(new QuietInterface(messages), fixtureFile("update-before.json"), null);
+		CardDatabase.fillCollection();
+		File bans = File.createTempFile("bans", ".dec");
+		bans.deleteOnExit();
+		try (Writer writer = new FileWriter(bans)) {
+			writer.write("1 Llanowar Elves\n");
+		}
+		CardDatabase.readBans(bans);
+		CardDatabase.awaitIdle();
+
+		Card bears = CardDatabase.findCard("Grizzly Bears");
+		Card bolt = CardDatabase.findCard("Lightning Bolt");
+		Card wastes = CardDatabase.findCard("Wastes");
+		Card elves = CardDatabase.findCard("Llanowar Elves");
+		CardDatabase.addToDeck(bears, 3);
+		CardDatabase.addToDeck(bolt, 2);
+		CardDatabase.addToDeck(wastes, 10);
+		CardDatabase.awaitIdle();
+		assertEquals(10, CardDatabase.getDeckState().copiesInDeck(wastes));
+
+		String summary = CardDatabase.updateCardDatabase(fixtureFile("update-after.json")).get();
+		assertEquals("1 added, 1 removed, 2 changed, 2 unchanged", summary);
+		DeckState state = CardDatabase.getDeckState();
+
+		assertEquals(99, state.getOwned(CardDatabase.getCard(bears.id)));
+		assertEquals(3, state.copiesInDeck(CardDatabase.getCard(bears.id)));
+		assertTrue(state.isBanned(CardDatabase.getCard(elves.id)));
+		//Removed cards leave the deck, and Wastes is limited to 4 copies now that it isn't a basic land.
+		assertEquals(0, state.copiesInDeck(CardDatabase.getCard(bolt.id)));
+		assertEquals(4, state.copiesInDeck(CardDatabase.getCard(wastes.id)));
+		assertEquals(7, state.getDeckSize());
+
+		Card counterspell = CardDatabase.findCard("Counterspell");
+		assertEquals(0, state.getOwned(counterspell));
+		assertEquals(0, state.copiesInDeck(counterspell));
+		assertTrue(messages.isEmpty());
+		CardDatabase.shutdown();
+	}
+
+	private static CardDatabase parse(String name) throws IOException {
+		try (InputStream json = fixture(name)) {
+			return CardDatabase.parseCards(json);
+		}
+	}
+
+	private static InputStream fixture(String name) {
+		return CardDatabaseUpdateTest.class.getResourceAsStream(name);
+	}
+
+	private static File fixtureFile(String name) throws URISyntaxException {
+		return new File(CardDatabaseUpdateTest.class.getResource(name).toURI());
+	}
+
+	/** Only keeps the messages meant for the user, so the test can check that nothing went wrong. */
+	private static final class QuietInterface implements UserInterface {
+		private final List<String> messages;
+
+		private QuietInterface(List<String> messages) {
+			this.messages = messages;
+		}
+
+		@Override
+		public void setBusyLoading(boolean isBusy) {
+		}
+
+		@Override
+		public void cardsLoaded() {
+		}
+
+		@Override
+		public void databaseLoaded() {
+		}
+
+		@Override
+		public void databaseUpdated() {
+		}
+
+		@Override
+		public void deckStateChanged(DeckState deck, int[] changedCards) {
+		}
+
+		@Override
+		public void deckCardsChanged(List<Card> deckCards) {
+		}
+
+		@Override
+		public void deckProblemsChanged(List<String> problems) {
+		}
+
+		@Override
+		public void setDeckEditingEnabled(boolean enabled) {
+		}
+
+		@Override
+		public void setSelectedCard(Card card, ImageIcon front, ImageIcon back) {
+		}
+
+		@Override
+		public void showMessage(String message) {
+			messages.add(message);
+		}
+	}
+}
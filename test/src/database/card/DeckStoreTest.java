@@ -0,0 +1,102 @@
+package database.card;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Saves a collection against the cards in update-before.json, breaks the files the way a crash would, and reloads it. */
+public class DeckStoreTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private List<Card> cards;
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		try (InputStream json = DeckStoreTest.class.getResourceAsStream("update-before.json")) {
+			cards = CardDatabase.parseCards(json).getCards();
+		}
+		directory = folder.newFolder("state");
+	}
+
+	@Test
+	public void editsAfterTornBatchSurvive() throws IOException {
+		DeckStore store = new DeckStore(directory, cards);
+		DeckState empty = new DeckState(cards.size());
+		store.save(empty, owning(empty, cards.get(0), 3));
+		store.close();
+		//Loading folds the journal into the snapshot.
+		new DeckStore(directory, cards).load();
+		assertFalse(journal().exists());
+		//A journal whose first batch only got as far as its count.
+		append(journal(), new byte[]{0x4D, 0x54, 0x47, 0x44, 0, 0, 0, 2, 0, 0, 0, 1, 42});
+
+		store = new DeckStore(directory, cards);
+		DeckState loaded = store.load();
+		assertEquals(3, loaded.getOwned(cards.get(0)));
+		DeckState second = owning(loaded, cards.get(1), 2);
+		store.save(loaded, second);
+		store.close();
+
+		DeckState reloaded = new DeckStore(directory, cards).load();
+		assertNotNull(reloaded);
+		assertEquals(3, reloaded.getOwned(cards.get(0)));
+		assertEquals(2, reloaded.getOwned(cards.get(1)));
+	}
+
+	@Test
+	public void shortJournalHeaderKeepsSnapshot() throws IOException {
+		DeckStore store = new DeckStore(directory, cards);
+		DeckState empty = new DeckState(cards.size());
+		DeckState.Editor editor = owning(empty, cards.get(0), 3).edit();
+		editor.setBanned(cards.get(1), true);
+		store.save(empty, editor.build());
+		store.close();
+		//Loading folds the journal into the snapshot.
+		new DeckStore(directory, cards).load();
+		assertFalse(journal().exists());
+		//A journal that was created, but never got its header written.
+		append(journal(), new byte[]{0x4D, 0x54, 0x47});
+
+		store = new DeckStore(directory, cards);
+		DeckState loaded = store.load();
+		assertNotNull(loaded);
+		assertEquals(3, loaded.getOwned(cards.get(0)));
+		assertTrue(loaded.isBanned(cards.get(1)));
+		assertFalse(journal().exists());
+
+		DeckState next = owning(loaded, cards.get(1), 2);
+		store.save(loaded, next);
+		store.close();
+		DeckState reloaded = new DeckStore(directory, cards).load();
+		assertEquals(3, reloaded.getOwned(cards.get(0)));
+		assertEquals(2, reloaded.getOwned(cards.get(1)));
+	}
+
+	private File journal() {
+		return new File(directory, "collection.journal");
+	}
+
+	private static DeckState owning(DeckState state, Card card, int count) {
+		DeckState.Editor editor = state.edit();
+		editor.setOwned(card, count);
+		return editor.build();
+	}
+
+	private static void append(File file, byte[] bytes) throws IOException {
+		try (OutputStream out = new FileOutputStream(file, true)) {
+			out.write(bytes);
+		}
+	}
+}